@@ -44,6 +44,7 @@ import java.util.Comparator;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
@@ -52,6 +53,15 @@ import java.util.SortedSet;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
 
 import net.sf.jsqlparser.expression.JdbcNamedParameter;
 import net.sf.jsqlparser.expression.JdbcParameter;
@@ -132,6 +142,9 @@ public class QueryAnalyzer
    /** Issue code: UPDATE of primary key */
    private static final String ISSUE_CODE_UPDATE_PRIMARY_KEY = "UPDATE of primary key";
 
+   /** Issue code: No partition pruning */
+   private static final String ISSUE_CODE_NO_PARTITION_PRUNING = "No partition pruning";
+
    /** The configuration */
    private static Properties configuration;
 
@@ -141,6 +154,9 @@ public class QueryAnalyzer
    /** Plan count */
    private static int planCount;
 
+   /** Sample count */
+   private static int sampleCount;
+
    /** Output debug information */
    private static boolean debug;
 
@@ -163,10 +179,10 @@ public class QueryAnalyzer
    private static Map<String, String> plans = new TreeMap<>();
 
    /** Planner time:  Query   Time */
-   private static Map<String, Double> plannerTimes = new TreeMap<>();
+   private static Map<String, TimeStat> plannerTimes = new TreeMap<>();
 
    /** Executor time: Query   Time */
-   private static Map<String, Double> executorTimes = new TreeMap<>();
+   private static Map<String, TimeStat> executorTimes = new TreeMap<>();
 
    /** Tables:        Name        Column  Type */
    private static Map<String, Map<String, Integer>> tables = new TreeMap<>();
@@ -234,6 +250,9 @@ public class QueryAnalyzer
    /** Partition index child: Child Parent */
    private static Map<String, String> partitionIndexChildren = new TreeMap<>();
 
+   /** Pruning        Query   Table   Description */
+   private static Map<String, Map<String, String>> pruning = new TreeMap<>();
+
    /** Issues         Query   Issues */
    private static Map<String, List<Issue>> issues = new TreeMap<>();
 
@@ -246,6 +265,12 @@ public class QueryAnalyzer
    /** Stats          Query   Stat */
    private static Map<String, QueryStat> stats = new TreeMap<>();
 
+   /** Catalog snapshot */
+   private static Catalog catalog;
+
+   /** Table locks    Table   Lock */
+   private static Map<String, ReentrantLock> tableLocks = new ConcurrentHashMap<>();
+
    /** Total stats */
    private static TotalStat totalStat = null;
 
@@ -399,8 +424,8 @@ public class QueryAnalyzer
          }
          l.add("<td" + (color != null ? " style=\"background-color: " + color + "\"" : "") + ">" + link.toString() + "</td>");
 
-         l.add("<td>" + (plannerTimes.get(q) != null ? plannerTimes.get(q) + "ms" : "") + "</td>");
-         l.add("<td>" + (plannerTimes.get(q) != null ? executorTimes.get(q) + "ms" : "") + "</td>");
+         l.add("<td>" + (plannerTimes.get(q) != null ? plannerTimes.get(q).getSpread() : "") + "</td>");
+         l.add("<td>" + (executorTimes.get(q) != null ? executorTimes.get(q).getSpread() : "") + "</td>");
          l.add("<td>" + (plans.get(q) != null ? plans.get(q) : "") + "</td>");
          l.add("</tr>");
       }
@@ -976,6 +1001,29 @@ public class QueryAnalyzer
          l.add("<p>");
       }
 
+      if (plannerTimes.containsKey(queryId) || executorTimes.containsKey(queryId))
+      {
+         l.add("<h2>Times</h2>");
+         l.add("<table>");
+         l.add("<tr>");
+         l.add("<td></td>");
+         l.add("<td><b>Samples</b></td>");
+         l.add("<td><b>Min</b></td>");
+         l.add("<td><b>Median</b></td>");
+         l.add("<td><b>P95</b></td>");
+         l.add("<td><b>Mean</b></td>");
+         l.add("<td><b>Stddev</b></td>");
+         l.add("<td><b>95% CI</b></td>");
+         l.add("<td><b>Outliers</b></td>");
+         l.add("</tr>");
+         if (plannerTimes.containsKey(queryId))
+            l.addAll(plannerTimes.get(queryId).toHTML("Planner"));
+         if (executorTimes.containsKey(queryId))
+            l.addAll(executorTimes.get(queryId).toHTML("Executor"));
+         l.add("</table>");
+         l.add("<p>");
+      }
+
       if (replay)
       {
          l.add("<p>");
@@ -1008,6 +1056,17 @@ public class QueryAnalyzer
          l.add("</ul>");
       }
 
+      if (pruning.containsKey(queryId))
+      {
+         l.add("<h2>Partition pruning</h2>");
+         l.add("<ul>");
+         for (String description : pruning.get(queryId).values())
+         {
+            l.add("<li>" + description + "</li>");
+         }
+         l.add("</ul>");
+      }
+
       if (plan != null && !"".equals(plan))
       {
          l.add("<h2>Plan</h2>");
@@ -1172,9 +1231,14 @@ public class QueryAnalyzer
    {
       List<String> l = new ArrayList<>();
 
+      l.add("Query,Planner samples,Planner min,Planner median,Planner p95,Planner mean,Planner stddev,Planner ci95," +
+            "Planner outliers,Executor samples,Executor min,Executor median,Executor p95,Executor mean," +
+            "Executor stddev,Executor ci95,Executor outliers");
+
       for (String q : plannerTimes.keySet())
       {
-         l.add(q + "," + plannerTimes.get(q) + "," + executorTimes.get(q));
+         l.add(q + "," + plannerTimes.get(q).toCSV() + "," +
+               (executorTimes.get(q) != null ? executorTimes.get(q).toCSV() : ",,,,,,,"));
       }
 
       writeFile(Paths.get("report", "result.csv"), l);
@@ -2072,11 +2136,16 @@ public class QueryAnalyzer
    }
 
    /**
-    * Process the queries
+    * Process the queries. The queries are rewritten on the connection, and the plans are
+    * executed by the workers of the pool, if any. The results are merged in order of the
+    * query identifiers
     * @param c The connection
+    * @param pool The connections of the workers
+    * @param executor The workers, or null
     * @return The query identifiers
     */
-   private static SortedSet<String> processQueries(Connection c) throws Exception
+   private static SortedSet<String> processQueries(Connection c, List<Connection> pool, ExecutorService executor)
+      throws Exception
    {
       SortedSet<String> keys = new TreeSet<>();
       for (String key : configuration.stringPropertyNames())
@@ -2087,11 +2156,17 @@ public class QueryAnalyzer
       
       initPartitions(c);
 
+      Map<String, QueryTask> tasks = new TreeMap<>();
+      BlockingQueue<Connection> connections = null;
+      boolean serialize = Boolean.TRUE.equals(Boolean.valueOf(configuration.getProperty("serialize_tables", "false")));
+
+      if (executor != null)
+         connections = new LinkedBlockingQueue<>(pool);
+
       for (String key : keys)
       {
          String origQuery = configuration.getProperty(key);
          String query = origQuery;
-         String plan = "";
          List<Integer> types = new ArrayList<>();
          List<String> values = new ArrayList<>();
 
@@ -2109,45 +2184,57 @@ public class QueryAnalyzer
                rewriteQuery(c, key, query, types, values);
             }
 
-            if (query != null)
+            boolean eavb = true;
+            if (!(statement instanceof Select))
             {
-               boolean eavb = true;
-               if (!(statement instanceof Select))
+               for (String table : usedTables)
                {
-                  for (String table : usedTables)
-                  {
-                     if (exports.containsKey(table.toLowerCase()))
-                        eavb = false;
+                  if (exports.containsKey(table.toLowerCase()))
+                     eavb = false;
 
-                     if (imports.containsKey(table.toLowerCase()))
-                        eavb = false;
+                  if (imports.containsKey(table.toLowerCase()))
+                     eavb = false;
 
-                     if (statement instanceof Insert && primaryKeys.containsKey(table.toLowerCase()))
-                        eavb = false;
-                  }
+                  if (statement instanceof Insert && primaryKeys.containsKey(table.toLowerCase()))
+                     eavb = false;
                }
+            }
 
-               for (int i = 0; i < planCount; i++)
-               {
-                  if (eavb)
-                  {
-                     executeStatement(c, EXPLAIN_ANALYZE_VERBOSE_BUFFERS + " " + query, false);
-                  }
-                  else
-                  {
-                     executeStatement(c, EXPLAIN_VERBOSE + " " + query, false);
-                  }
-               }
-                  
-               List<String> l = null;
-               if (eavb)
-               {
-                  l = executeStatement(c, EXPLAIN_ANALYZE_VERBOSE_BUFFERS + " " + query);
-               }
-               else
-               {
-                  l = executeStatement(c, EXPLAIN_VERBOSE + " " + query);
-               }
+            // Executed DML on the same tables may deadlock, so it is always serialized
+            QueryTask task = new QueryTask(origQuery, query, statement, usedTables, types, values, eavb,
+                                           connections, serialize || (eavb && !(statement instanceof Select)));
+            if (executor != null && query != null)
+               task.setFuture(executor.submit(task));
+
+            tasks.put(key, task);
+         }
+         catch (Exception e)
+         {
+            System.out.println("Original query: " + origQuery);
+            System.out.println("Key           : " + key);
+            System.out.println("Data          :");
+            System.out.println(data);
+            throw e;
+         }
+      }
+
+      for (String key : keys)
+      {
+         QueryTask task = tasks.get(key);
+         String query = task.getQuery();
+         String plan = "";
+         Set<String> usedTables = task.getUsedTables();
+         net.sf.jsqlparser.statement.Statement statement = task.getStatement();
+
+         try
+         {
+            if (query != null)
+            {
+               List<String> l = task.getPlan(c);
+
+               if (Boolean.TRUE.equals(Boolean.valueOf(configuration.getProperty("partition_pruning", "false"))) &&
+                   !(statement instanceof Insert))
+                  checkPartitionPruning(key, usedTables, l);
 
                if (statement instanceof Select)
                {
@@ -2465,25 +2552,20 @@ public class QueryAnalyzer
                {
                   plan += s;
                   plan += "\n";
-
-                  if (s.startsWith("Planning"))
-                  {
-                     int index = s.indexOf(" ", 15);
-                     plannerTimes.put(key, Double.valueOf(s.substring(15, index)));
-                  }
-                  else if (s.startsWith("Execution"))
-                  {
-                     int index = s.indexOf(" ", 16);
-                     executorTimes.put(key, Double.valueOf(s.substring(16, index)));
-                  }
                }
+
+               if (task.getPlannerSamples().size() > 0)
+                  plannerTimes.put(key, new TimeStat(task.getPlannerSamples()));
+
+               if (task.getExecutorSamples().size() > 0)
+                  executorTimes.put(key, new TimeStat(task.getExecutorSamples()));
             }
 
-            writeReport(key, origQuery, query, usedTables, plan, types, values, c);
+            writeReport(key, task.getOrigQuery(), query, usedTables, plan, task.getTypes(), task.getValues(), c);
          }
          catch (Exception e)
          {
-            System.out.println("Original query: " + origQuery);
+            System.out.println("Original query: " + task.getOrigQuery());
             System.out.println("Key           : " + key);
             System.out.println("Data          :");
             System.out.println(data);
@@ -2494,6 +2576,76 @@ public class QueryAnalyzer
       return keys;
    }
 
+   /**
+    * Check the partition pruning of a query by counting the partitions
+    * that are scanned by the plan
+    * @param queryId The query identifier
+    * @param usedTables The used tables
+    * @param plan The plan
+    */
+   private static void checkPartitionPruning(String queryId, Set<String> usedTables, List<String> plan)
+   {
+      Map<String, Set<String>> scanned = new TreeMap<>();
+
+      for (String line : plan)
+      {
+         int index = line.indexOf(" on ");
+         if (index == -1 || line.indexOf("(never executed)") != -1)
+            continue;
+
+         String table = line.substring(index + 4).trim();
+         if (table.indexOf(" ") != -1)
+         {
+            table = table.substring(0, table.indexOf(" "));
+         }
+         if (table.indexOf(".") != -1)
+         {
+            table = table.substring(table.indexOf(".") + 1);
+         }
+
+         String parent = partitionMap.get(table);
+         if (parent != null)
+         {
+            Set<String> children = scanned.get(parent);
+            if (children == null)
+               children = new TreeSet<>();
+            children.add(table);
+            scanned.put(parent, children);
+         }
+      }
+
+      Map<String, String> result = new TreeMap<>();
+      for (String table : usedTables)
+      {
+         String tableName = table.toLowerCase();
+         List<String> children = partitions.get(tableName);
+
+         if (children == null || children.size() == 0)
+            continue;
+
+         int count = scanned.containsKey(tableName) ? scanned.get(tableName).size() : 0;
+         String description = tableName + ": " + count + " of " + children.size() + " partitions";
+         result.put(tableName, description);
+
+         if (children.size() > 1 && count == children.size())
+         {
+            List<Issue> ls = issues.get(queryId);
+            if (ls == null)
+               ls = new ArrayList<>();
+
+            Issue is = new Issue(ISSUE_TYPE_NORMAL_PRIORITY, ISSUE_CODE_NO_PARTITION_PRUNING, description);
+            if (!ls.contains(is))
+            {
+               ls.add(is);
+               issues.put(queryId, ls);
+            }
+         }
+      }
+
+      if (result.size() > 0)
+         pruning.put(queryId, result);
+   }
+
    /**
     * Process the statistics
     * @param fn The file name
@@ -3945,40 +4097,11 @@ public class QueryAnalyzer
     */
    private static String getTypeName(Connection c, String table, String column)
    {
-      String result = "UNKNOWN";
-      ResultSet rs = null;
-      try
-      {
-         DatabaseMetaData dmd = c.getMetaData();
+      String result = catalog.getTypeName(table, column);
 
-         rs = dmd.getColumns(null, null, table, "");
-         while (rs.next())
-         {
-            String columnName = rs.getString("COLUMN_NAME");
-            columnName = columnName.toLowerCase();
+      if (result == null)
+         result = "UNKNOWN";
 
-            if (columnName.equals(column))
-               result = rs.getString("TYPE_NAME");
-         }
-      }
-      catch (Exception e)
-      {
-         // Nothing we can do
-      }
-      finally
-      {
-         if (rs != null)
-         {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
-            {
-               // Ignore
-            }
-         }
-      }
       return result.toUpperCase();
    }
 
@@ -4093,6 +4216,16 @@ public class QueryAnalyzer
       }
    }
 
+   /**
+    * Get the time of a "Planning Time: X ms" or "Execution Time: X ms" line
+    * @param s The line
+    * @return The time in ms
+    */
+   private static Double getTime(String s)
+   {
+      return Double.valueOf(s.substring(s.indexOf(":") + 1, s.lastIndexOf("ms")).trim());
+   }
+
    /**
     * Get the used tables for a query
     * @param c The connection
@@ -4129,191 +4262,60 @@ public class QueryAnalyzer
    {
       Map<String, Integer> tableData = new TreeMap<>();
       Map<String, Integer> columnSize = new TreeMap<>();
-      ResultSet rs = null;
 
       if (tableName.contains("."))
          tableName = tableName.substring(tableName.lastIndexOf(".") + 1);
 
-      try
-      {
-         DatabaseMetaData dmd = c.getMetaData();
-
-         rs = dmd.getColumns(null, null, tableName, "");
-         while (rs.next())
-         {
-            String columnName = rs.getString("COLUMN_NAME");
-            columnName = columnName.toLowerCase();
-
-            int dataType = rs.getInt("DATA_TYPE");
-            tableData.put(columnName, dataType);
-
-            int size = rs.getInt("COLUMN_SIZE");
-            columnSize.put(columnName, size);
-         }
-            
-         tables.put(tableName, tableData);
-         columnSizes.put(tableName, columnSize);
-      }
-      finally
+      for (Map.Entry<String, String[]> e : catalog.getColumns(tableName).entrySet())
       {
-         if (rs != null)
-         {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
-            {
-               // Ignore
-            }
-         }
+         tableData.put(e.getKey(), Integer.valueOf(e.getValue()[0]));
+         columnSize.put(e.getKey(), Integer.valueOf(e.getValue()[1]));
       }
 
-      rs = null;
-      try
-      {
-         DatabaseMetaData dmd = c.getMetaData();
-         Map<String, List<String>> indexInfo = new TreeMap<>();
-
-         rs = dmd.getIndexInfo(null, null, tableName, false, false);
-         while (rs.next())
-         {
-            String indexName = rs.getString("INDEX_NAME");
-            String columnName = rs.getString("COLUMN_NAME");
-
-            indexName = indexName.toLowerCase();
-            columnName = columnName.toLowerCase();
+      tables.put(tableName, tableData);
+      columnSizes.put(tableName, columnSize);
 
-            List<String> existing = indexInfo.get(indexName);
-            if (existing == null)
-               existing = new ArrayList<>();
+      indexes.put(tableName, catalog.getIndexes(tableName));
+      primaryKeys.put(tableName, catalog.getPrimaryKey(tableName));
 
-            if (!existing.contains(columnName))
-               existing.add(columnName);
-            indexInfo.put(indexName, existing);
-         }
-
-         indexes.put(tableName, indexInfo);
-      }
-      finally
-      {
-         if (rs != null)
-         {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
-            {
-               // Ignore
-            }
-         }
-      }
+      List<String[]> fks = catalog.getForeignKeys();
 
-      rs = null;
-      try
+      // Exports are ordered by the foreign key table, and imports by the primary key table
+      for (int i = 0; i < 2; i++)
       {
-         DatabaseMetaData dmd = c.getMetaData();
-         List<String> pkInfo = new ArrayList<>();
-
-         rs = dmd.getPrimaryKeys(null, null, tableName);
-         while (rs.next())
-         {
-            String columnName = rs.getString("COLUMN_NAME");
-            columnName = columnName.toLowerCase();
+         final int position = i == 0 ? 1 : 3;
+         Map<String, Map<String, Map<String, String>>> target = i == 0 ? exports : imports;
+         List<String[]> keys = new ArrayList<>();
 
-            if (!pkInfo.contains(columnName))
-               pkInfo.add(columnName);
-         }
-
-         primaryKeys.put(tableName, pkInfo);
-      }
-      finally
-      {
-         if (rs != null)
+         for (String[] fk : fks)
          {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
-            {
-               // Ignore
-            }
+            if (tableName.equals(fk[i == 0 ? 3 : 1]))
+               keys.add(fk);
          }
-      }
-
-      rs = null;
-      try
-      {
-         DatabaseMetaData dmd = c.getMetaData();
-
-         rs = dmd.getExportedKeys(null, null, tableName);
-         while (rs.next())
-         {
-            Map<String, Map<String, String>> m = exports.get(tableName);
-            if (m == null)
-               m = new TreeMap<>();
-
-            TreeMap<String, String> v = new TreeMap<>();
-            v.put("FKTABLE_NAME", rs.getString("FKTABLE_NAME").toLowerCase());
-            v.put("FKCOLUMN_NAME", rs.getString("FKCOLUMN_NAME").toLowerCase());
-            v.put("PKTABLE_NAME", rs.getString("PKTABLE_NAME").toLowerCase());
-            v.put("PKCOLUMN_NAME", rs.getString("PKCOLUMN_NAME").toLowerCase());
 
-            m.put(rs.getString("FK_NAME").toLowerCase(), v);
-            exports.put(tableName, m);
-         }
-      }
-      finally
-      {
-         if (rs != null)
+         Collections.sort(keys, new Comparator<String[]>()
          {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
+            @Override
+            public int compare(String[] o1, String[] o2)
             {
-               // Ignore
+               return o1[position].compareTo(o2[position]);
             }
-         }
-      }
-
-      rs = null;
-      try
-      {
-         DatabaseMetaData dmd = c.getMetaData();
+         });
 
-         rs = dmd.getImportedKeys(null, null, tableName);
-         while (rs.next())
+         for (String[] fk : keys)
          {
-            Map<String, Map<String, String>> m = imports.get(tableName);
+            Map<String, Map<String, String>> m = target.get(tableName);
             if (m == null)
                m = new TreeMap<>();
 
             TreeMap<String, String> v = new TreeMap<>();
-            v.put("FKTABLE_NAME", rs.getString("FKTABLE_NAME").toLowerCase());
-            v.put("FKCOLUMN_NAME", rs.getString("FKCOLUMN_NAME").toLowerCase());
-            v.put("PKTABLE_NAME", rs.getString("PKTABLE_NAME").toLowerCase());
-            v.put("PKCOLUMN_NAME", rs.getString("PKCOLUMN_NAME").toLowerCase());
+            v.put("FKTABLE_NAME", fk[1].toLowerCase());
+            v.put("FKCOLUMN_NAME", fk[2].toLowerCase());
+            v.put("PKTABLE_NAME", fk[3].toLowerCase());
+            v.put("PKCOLUMN_NAME", fk[4].toLowerCase());
 
-            m.put(rs.getString("FK_NAME").toLowerCase(), v);
-            imports.put(tableName, m);
-         }
-      }
-      finally
-      {
-         if (rs != null)
-         {
-            try
-            {
-               rs.close();
-            }
-            catch (Exception e)
-            {
-               // Ignore
-            }
+            m.put(fk[0].toLowerCase(), v);
+            target.put(tableName, m);
          }
       }
    }
@@ -4493,85 +4495,32 @@ public class QueryAnalyzer
     */
    private static void initPartitions(Connection c) throws Exception
    {
-      Statement stmt = c.createStatement();
-      stmt.execute("SELECT relname, oid FROM pg_class WHERE relnamespace = 2200::oid AND relkind = \'p\'");
-      ResultSet rs = stmt.getResultSet();
-      while (rs.next())
+      for (Map.Entry<String, String> e : catalog.getPartitionKeys().entrySet())
       {
-         String parentName = rs.getString(1);
-         String parentOid = rs.getString(2);
-         List<String> children = new ArrayList<>();
+         String parentName = e.getKey();
+         List<String> children = catalog.getPartitions(parentName);
 
-         Statement type = c.createStatement();
-         type.execute("SELECT pg_get_partkeydef(\'" + parentOid+ "\'::oid)");
-         ResultSet typeRs = type.getResultSet();
-         typeRs.next();
-         partitionType.put(parentName, typeRs.getString(1));
-         typeRs.close();
-         type.close();
+         partitionType.put(parentName, e.getValue());
 
-         Statement inh = c.createStatement();
-         inh.execute("SELECT inhrelid FROM pg_inherits WHERE inhparent = " + parentOid + "::oid");
-         ResultSet inhRs = inh.getResultSet();
-         while (inhRs.next())
+         for (String child : children)
          {
-            String childOid = inhRs.getString(1);
-
-            Statement name = c.createStatement();
-            name.execute("SELECT relname FROM pg_class WHERE oid = " + childOid + "::oid");
-            ResultSet nameRs = name.getResultSet();
-            nameRs.next();
-            String child = nameRs.getString(1);
-
-            children.add(child);
             partitionMap.put(child, parentName);
-
-            nameRs.close();
-            name.close();
          }
-         inhRs.close();
-         inh.close();
 
          partitions.put(parentName, children);
       }
-      rs.close();
-      stmt.close();
 
-      stmt = c.createStatement();
-      stmt.execute("SELECT relname,oid FROM pg_class WHERE relnamespace = 2200::oid AND relkind = \'I\'");
-      rs = stmt.getResultSet();
-      while (rs.next())
+      for (String parentIndexName : catalog.getPartitionedIndexes())
       {
-         String parentIndexName = rs.getString(1);
-         String parentIndexOid = rs.getString(2);
-         List<String> children = new ArrayList<>();
+         List<String> children = catalog.getPartitions(parentIndexName);
 
-         Statement inh = c.createStatement();
-         inh.execute("SELECT inhrelid FROM pg_inherits WHERE inhparent = " + parentIndexOid + "::oid");
-         ResultSet inhRs = inh.getResultSet();
-         while (inhRs.next())
+         for (String child : children)
          {
-            String childOid = inhRs.getString(1);
-
-            Statement name = c.createStatement();
-            name.execute("SELECT relname FROM pg_class WHERE oid = " + childOid + "::oid");
-            ResultSet nameRs = name.getResultSet();
-            nameRs.next();
-            String child = nameRs.getString(1);
-
-            children.add(child);
             partitionIndexChildren.put(child, parentIndexName);
-
-            nameRs.close();
-            name.close();
          }
-         inhRs.close();
-         inh.close();
 
          partitionIndexes.put(parentIndexName, children);
       }
-      rs.close();
-      stmt.close();
    }
 
    /**
@@ -4689,6 +4638,8 @@ public class QueryAnalyzer
    public static void main(String[] args)
    {
       Connection c = null;
+      List<Connection> pool = new ArrayList<>();
+      ExecutorService executor = null;
       try
       {
          if (args.length != 0 && args.length != 2)
@@ -4749,14 +4700,27 @@ public class QueryAnalyzer
          }
 
          planCount = Integer.valueOf(configuration.getProperty("plan_count", "5"));
+         sampleCount = Math.max(1, Integer.valueOf(configuration.getProperty("sample_count", "5")));
          debug = Boolean.valueOf(configuration.getProperty("debug", "false"));
+         int workers = Integer.valueOf(configuration.getProperty("workers", "1"));
          
          c = DriverManager.getConnection(url, user, password);
 
+         if (workers > 1)
+         {
+            for (int i = 0; i < workers; i++)
+            {
+               pool.add(DriverManager.getConnection(url, user, password));
+            }
+
+            executor = Executors.newFixedThreadPool(workers);
+         }
+
          startup(c);
+         catalog = Catalog.load(c, configuration.getProperty("catalog_cache"));
          processStatistics(config);
 
-         SortedSet<String> queries = processQueries(c);
+         SortedSet<String> queries = processQueries(c, pool, executor);
          writeIndex(queries);
          writeTables(c);
          writeCSV();
@@ -4772,6 +4736,21 @@ public class QueryAnalyzer
       }
       finally
       {
+         if (executor != null)
+            executor.shutdownNow();
+
+         for (Connection pc : pool)
+         {
+            try
+            {
+               pc.close();
+            }
+            catch (Exception e)
+            {
+               // Nothing to do
+            }
+         }
+
          if (c != null)
          {
             try
@@ -4811,6 +4790,797 @@ public class QueryAnalyzer
       }
    }
 
+   /**
+    * Catalog snapshot, which is loaded in bulk from the system catalogs, or from a cache file
+    */
+   static class Catalog
+   {
+      /** Columns:            Table   Column  Type, Size, Type name */
+      private Map<String, Map<String, String[]>> columns = new TreeMap<>();
+
+      /** Indexes:            Table   Index   Columns */
+      private Map<String, Map<String, List<String>>> indexes = new TreeMap<>();
+
+      /** Primary keys:       Table   Columns */
+      private Map<String, List<String>> primaryKeys = new TreeMap<>();
+
+      /** Foreign keys:       Name, FK table, FK column, PK table, PK column */
+      private List<String[]> foreignKeys = new ArrayList<>();
+
+      /** Partition keys:     Table   Definition */
+      private Map<String, String> partitionKeys = new TreeMap<>();
+
+      /** Partitioned indexes */
+      private Set<String> partitionedIndexes = new TreeSet<>();
+
+      /** Partitions:         Parent  Children */
+      private Map<String, List<String>> partitions = new TreeMap<>();
+
+      /** The format of the cache file */
+      private static final String CACHE_FORMAT = "1";
+
+      /**
+       * Load the catalog. The catalog is read from the cache file if it exists, and its header
+       * matches the database; otherwise the catalog is queried, and written to the cache file
+       * @param c The connection
+       * @param cache The cache file, or null
+       * @return The catalog
+       */
+      static Catalog load(Connection c, String cache) throws Exception
+      {
+         Catalog catalog = new Catalog();
+
+         if (cache == null)
+         {
+            catalog.query(c);
+            return catalog;
+         }
+
+         String header = getHeader(c);
+
+         if (Files.exists(Paths.get(cache)))
+         {
+            try
+            {
+               if (catalog.read(Paths.get(cache), header))
+                  return catalog;
+            }
+            catch (Exception e)
+            {
+               // A damaged file, or one of another format
+            }
+
+            System.out.println("catalog_cache " + cache + " doesn't match the database - refreshing");
+            catalog = new Catalog();
+         }
+
+         catalog.query(c);
+         catalog.write(Paths.get(cache), header);
+
+         return catalog;
+      }
+
+      /**
+       * Get the header of the cache file, which identifies the database, the server version and
+       * the state of the catalog, so a cache of another database or an older schema isn't used.
+       * The state is a hash of the relations, columns and constraints of the user schemas, so
+       * temporary and TOAST relations don't change it
+       * @param c The connection
+       * @return The header
+       */
+      private static String getHeader(Connection c) throws Exception
+      {
+         String header = null;
+         Statement stmt = c.createStatement();
+         ResultSet rs = stmt.executeQuery("SELECT current_database(), current_setting('server_version_num'), " +
+                                          "(SELECT md5(coalesce(string_agg(n.nspname || '.' || c.relname || ':' || c.relkind || ':' || " +
+                                          "a.attnum || ':' || a.attname || ':' || a.atttypid || ':' || a.atttypmod, " +
+                                          "',' ORDER BY n.nspname, c.relname, a.attnum), '')) " +
+                                          "FROM pg_attribute a " +
+                                          "JOIN pg_class c ON c.oid = a.attrelid " +
+                                          "JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                                          "WHERE a.attrelid >= 16384 AND a.attnum > 0 AND NOT a.attisdropped " +
+                                          "AND n.nspname NOT IN ('pg_catalog', 'information_schema') " +
+                                          "AND n.nspname NOT LIKE 'pg\\_toast%' AND n.nspname NOT LIKE 'pg\\_temp\\_%'), " +
+                                          "(SELECT md5(coalesce(string_agg(n.nspname || '.' || k.conname || ':' || k.contype, " +
+                                          "',' ORDER BY n.nspname, k.conname), '')) " +
+                                          "FROM pg_constraint k " +
+                                          "JOIN pg_namespace n ON n.oid = k.connamespace " +
+                                          "WHERE n.nspname NOT IN ('pg_catalog', 'information_schema') " +
+                                          "AND n.nspname NOT LIKE 'pg\\_temp\\_%')");
+         if (rs.next())
+         {
+            header = "V\t" + CACHE_FORMAT + "\t" + rs.getString(1) + "\t" + rs.getString(2) + "\t" +
+               rs.getString(3) + "\t" + rs.getString(4);
+         }
+         rs.close();
+         stmt.close();
+
+         return header;
+      }
+
+      Map<String, String[]> getColumns(String table)
+      {
+         Map<String, String[]> m = columns.get(table);
+
+         if (m == null)
+            return new TreeMap<>();
+
+         return m;
+      }
+
+      String getTypeName(String table, String column)
+      {
+         String[] v = getColumns(table).get(column);
+
+         if (v == null)
+            return null;
+
+         return v[2];
+      }
+
+      Map<String, List<String>> getIndexes(String table)
+      {
+         Map<String, List<String>> result = new TreeMap<>();
+
+         if (indexes.containsKey(table))
+         {
+            for (Map.Entry<String, List<String>> e : indexes.get(table).entrySet())
+               result.put(e.getKey(), new ArrayList<>(e.getValue()));
+         }
+
+         return result;
+      }
+
+      List<String> getPrimaryKey(String table)
+      {
+         if (primaryKeys.containsKey(table))
+            return new ArrayList<>(primaryKeys.get(table));
+
+         return new ArrayList<>();
+      }
+
+      List<String[]> getForeignKeys()
+      {
+         return foreignKeys;
+      }
+
+      Map<String, String> getPartitionKeys()
+      {
+         return partitionKeys;
+      }
+
+      Set<String> getPartitionedIndexes()
+      {
+         return partitionedIndexes;
+      }
+
+      List<String> getPartitions(String parent)
+      {
+         if (partitions.containsKey(parent))
+            return new ArrayList<>(partitions.get(parent));
+
+         return new ArrayList<>();
+      }
+
+      /**
+       * Query the catalog
+       * @param c The connection
+       */
+      private void query(Connection c) throws Exception
+      {
+         // The JDBC types and sizes of all columns in a single call
+         ResultSet rs = c.getMetaData().getColumns(null, null, "%", "");
+         while (rs.next())
+         {
+            addColumn(rs.getString("TABLE_NAME"), rs.getString("COLUMN_NAME").toLowerCase(),
+                      Integer.toString(rs.getInt("DATA_TYPE")), Integer.toString(rs.getInt("COLUMN_SIZE")),
+                      rs.getString("TYPE_NAME"));
+         }
+         rs.close();
+
+         Statement stmt = c.createStatement();
+
+         rs = stmt.executeQuery("SELECT t.relname, i.relname, pg_get_indexdef(x.indexrelid, k + 1, false) " +
+                                "FROM pg_index x " +
+                                "JOIN pg_class t ON t.oid = x.indrelid " +
+                                "JOIN pg_class i ON i.oid = x.indexrelid " +
+                                "CROSS JOIN LATERAL generate_series(0, x.indnatts - 1) AS k " +
+                                "ORDER BY t.relname, i.relname, k");
+         while (rs.next())
+         {
+            addIndex(rs.getString(1), rs.getString(2).toLowerCase(), rs.getString(3).toLowerCase());
+         }
+         rs.close();
+
+         rs = stmt.executeQuery("SELECT t.relname, a.attname " +
+                                "FROM pg_constraint k " +
+                                "JOIN pg_class t ON t.oid = k.conrelid " +
+                                "CROSS JOIN LATERAL generate_subscripts(k.conkey, 1) AS s(n) " +
+                                "JOIN pg_attribute a ON a.attrelid = k.conrelid AND a.attnum = k.conkey[s.n] " +
+                                "WHERE k.contype = 'p' " +
+                                "ORDER BY t.relname, s.n");
+         while (rs.next())
+         {
+            addPrimaryKey(rs.getString(1), rs.getString(2).toLowerCase());
+         }
+         rs.close();
+
+         rs = stmt.executeQuery("SELECT k.conname, f.relname, fa.attname, p.relname, pa.attname " +
+                                "FROM pg_constraint k " +
+                                "JOIN pg_class f ON f.oid = k.conrelid " +
+                                "JOIN pg_class p ON p.oid = k.confrelid " +
+                                "CROSS JOIN LATERAL generate_subscripts(k.conkey, 1) AS s(n) " +
+                                "JOIN pg_attribute fa ON fa.attrelid = k.conrelid AND fa.attnum = k.conkey[s.n] " +
+                                "JOIN pg_attribute pa ON pa.attrelid = k.confrelid AND pa.attnum = k.confkey[s.n] " +
+                                "WHERE k.contype = 'f' " +
+                                "ORDER BY s.n");
+         while (rs.next())
+         {
+            foreignKeys.add(new String[] {rs.getString(1), rs.getString(2), rs.getString(3),
+                                          rs.getString(4), rs.getString(5)});
+         }
+         rs.close();
+
+         if (version >= 10)
+         {
+            rs = stmt.executeQuery("SELECT relname, relkind, pg_get_partkeydef(oid) FROM pg_class " +
+                                   "WHERE relnamespace = 2200::oid AND relkind IN ('p', 'I')");
+            while (rs.next())
+            {
+               if ("p".equals(rs.getString(2)))
+               {
+                  partitionKeys.put(rs.getString(1), rs.getString(3));
+               }
+               else
+               {
+                  partitionedIndexes.add(rs.getString(1));
+               }
+               partitions.put(rs.getString(1), new ArrayList<>());
+            }
+            rs.close();
+
+            rs = stmt.executeQuery("SELECT p.relname, c.relname FROM pg_inherits i " +
+                                   "JOIN pg_class p ON p.oid = i.inhparent " +
+                                   "JOIN pg_class c ON c.oid = i.inhrelid " +
+                                   "WHERE p.relnamespace = 2200::oid AND p.relkind IN ('p', 'I') " +
+                                   "ORDER BY i.inhparent, i.inhrelid");
+            while (rs.next())
+            {
+               partitions.get(rs.getString(1)).add(rs.getString(2));
+            }
+            rs.close();
+         }
+
+         stmt.close();
+      }
+
+      /**
+       * Read the catalog from a cache file
+       * @param p The path
+       * @param header The expected header
+       * @return True if the file matches the header, and is complete; otherwise false
+       */
+      private boolean read(Path p, String header) throws Exception
+      {
+         List<String> lines = Files.readAllLines(p);
+
+         if (lines.size() < 2 || !lines.get(0).equals(header) ||
+             !lines.get(lines.size() - 1).equals("E\t" + lines.size()))
+            return false;
+
+         for (String line : lines.subList(1, lines.size() - 1))
+         {
+            String[] v = line.split("\t", -1);
+
+            switch (v[0])
+            {
+               case "C":
+                  addColumn(v[1], v[2], v[3], v[4], v[5]);
+                  break;
+               case "I":
+                  addIndex(v[1], v[2], v[3]);
+                  break;
+               case "K":
+                  addPrimaryKey(v[1], v[2]);
+                  break;
+               case "F":
+                  foreignKeys.add(Arrays.copyOfRange(v, 1, 6));
+                  break;
+               case "P":
+                  partitionKeys.put(v[1], v[2]);
+                  partitions.put(v[1], new ArrayList<>());
+                  break;
+               case "X":
+                  partitionedIndexes.add(v[1]);
+                  partitions.put(v[1], new ArrayList<>());
+                  break;
+               case "H":
+                  partitions.get(v[1]).add(v[2]);
+                  break;
+               default:
+                  return false;
+            }
+         }
+
+         return true;
+      }
+
+      /**
+       * Write the catalog to a cache file. The file starts with the header, and ends with
+       * the number of lines, so a truncated file is detected
+       * @param p The path
+       * @param header The header
+       */
+      private void write(Path p, String header) throws Exception
+      {
+         List<String> l = new ArrayList<>();
+         l.add(header);
+
+         for (Map.Entry<String, Map<String, String[]>> t : columns.entrySet())
+         {
+            for (Map.Entry<String, String[]> e : t.getValue().entrySet())
+               l.add("C\t" + t.getKey() + "\t" + e.getKey() + "\t" + String.join("\t", e.getValue()));
+         }
+
+         for (Map.Entry<String, Map<String, List<String>>> t : indexes.entrySet())
+         {
+            for (Map.Entry<String, List<String>> e : t.getValue().entrySet())
+            {
+               for (String column : e.getValue())
+                  l.add("I\t" + t.getKey() + "\t" + e.getKey() + "\t" + column);
+            }
+         }
+
+         for (Map.Entry<String, List<String>> t : primaryKeys.entrySet())
+         {
+            for (String column : t.getValue())
+               l.add("K\t" + t.getKey() + "\t" + column);
+         }
+
+         for (String[] fk : foreignKeys)
+            l.add("F\t" + String.join("\t", fk));
+
+         for (Map.Entry<String, String> e : partitionKeys.entrySet())
+            l.add("P\t" + e.getKey() + "\t" + e.getValue());
+
+         for (String idx : partitionedIndexes)
+            l.add("X\t" + idx);
+
+         for (Map.Entry<String, List<String>> e : partitions.entrySet())
+         {
+            for (String child : e.getValue())
+               l.add("H\t" + e.getKey() + "\t" + child);
+         }
+
+         l.add("E\t" + (l.size() + 1));
+
+         writeFile(p, l);
+      }
+
+      private void addColumn(String table, String column, String type, String size, String typeName)
+      {
+         Map<String, String[]> m = columns.get(table);
+         if (m == null)
+         {
+            m = new TreeMap<>();
+            columns.put(table, m);
+         }
+
+         m.put(column, new String[] {type, size, typeName});
+      }
+
+      private void addIndex(String table, String index, String column)
+      {
+         Map<String, List<String>> m = indexes.get(table);
+         if (m == null)
+         {
+            m = new TreeMap<>();
+            indexes.put(table, m);
+         }
+
+         List<String> l = m.get(index);
+         if (l == null)
+         {
+            l = new ArrayList<>();
+            m.put(index, l);
+         }
+
+         if (!l.contains(column))
+            l.add(column);
+      }
+
+      private void addPrimaryKey(String table, String column)
+      {
+         List<String> l = primaryKeys.get(table);
+         if (l == null)
+         {
+            l = new ArrayList<>();
+            primaryKeys.put(table, l);
+         }
+
+         if (!l.contains(column))
+            l.add(column);
+      }
+   }
+
+   /**
+    * Query task, which executes the plan of a query
+    */
+   static class QueryTask implements Callable<List<String>>
+   {
+      private String origQuery;
+      private String query;
+      private net.sf.jsqlparser.statement.Statement statement;
+      private Set<String> usedTables;
+      private List<Integer> types;
+      private List<String> values;
+      private boolean eavb;
+      private BlockingQueue<Connection> connections;
+      private boolean serialize;
+      private Future<List<String>> future;
+      private List<Double> plannerSamples;
+      private List<Double> executorSamples;
+
+      QueryTask(String origQuery, String query, net.sf.jsqlparser.statement.Statement statement,
+                Set<String> usedTables, List<Integer> types, List<String> values, boolean eavb,
+                BlockingQueue<Connection> connections, boolean serialize)
+      {
+         this.origQuery = origQuery;
+         this.query = query;
+         this.statement = statement;
+         this.usedTables = usedTables;
+         this.types = types;
+         this.values = values;
+         this.eavb = eavb;
+         this.connections = connections;
+         this.serialize = serialize;
+         this.future = null;
+         this.plannerSamples = new ArrayList<>();
+         this.executorSamples = new ArrayList<>();
+      }
+
+      String getOrigQuery()
+      {
+         return origQuery;
+      }
+
+      String getQuery()
+      {
+         return query;
+      }
+
+      net.sf.jsqlparser.statement.Statement getStatement()
+      {
+         return statement;
+      }
+
+      Set<String> getUsedTables()
+      {
+         return usedTables;
+      }
+
+      List<Integer> getTypes()
+      {
+         return types;
+      }
+
+      List<String> getValues()
+      {
+         return values;
+      }
+
+      void setFuture(Future<List<String>> future)
+      {
+         this.future = future;
+      }
+
+      List<Double> getPlannerSamples()
+      {
+         return plannerSamples;
+      }
+
+      List<Double> getExecutorSamples()
+      {
+         return executorSamples;
+      }
+
+      /**
+       * Get the plan of the query. The plan is executed on the connection
+       * if the task wasn't submitted to a worker
+       * @param c The connection
+       * @return The plan
+       */
+      List<String> getPlan(Connection c) throws Exception
+      {
+         if (future == null)
+            return execute(c);
+
+         try
+         {
+            return future.get();
+         }
+         catch (ExecutionException ee)
+         {
+            if (ee.getCause() instanceof Exception)
+               throw (Exception)ee.getCause();
+
+            throw ee;
+         }
+      }
+
+      /**
+       * Execute the plan on a connection of the pool. The queries using the same
+       * tables are serialized, if enabled. The table locks are taken in name order
+       * @return The plan
+       */
+      @Override
+      public List<String> call() throws Exception
+      {
+         List<ReentrantLock> locks = new ArrayList<>();
+
+         if (serialize)
+         {
+            for (String table : new TreeSet<>(usedTables))
+            {
+               locks.add(tableLocks.computeIfAbsent(table, t -> new ReentrantLock()));
+            }
+         }
+
+         for (ReentrantLock lock : locks)
+         {
+            lock.lock();
+         }
+
+         try
+         {
+            Connection c = connections.take();
+            try
+            {
+               return execute(c);
+            }
+            finally
+            {
+               connections.put(c);
+            }
+         }
+         finally
+         {
+            for (int i = locks.size() - 1; i >= 0; i--)
+            {
+               locks.get(i).unlock();
+            }
+         }
+      }
+
+      /**
+       * Execute the plan
+       * @param c The connection
+       * @return The plan
+       */
+      private List<String> execute(Connection c) throws Exception
+      {
+         String explain = eavb ? EXPLAIN_ANALYZE_VERBOSE_BUFFERS : EXPLAIN_VERBOSE;
+         List<String> result = null;
+
+         for (int i = 0; i < planCount; i++)
+         {
+            executeStatement(c, explain + " " + query, false);
+         }
+
+         for (int i = 0; i < sampleCount; i++)
+         {
+            result = executeStatement(c, explain + " " + query);
+
+            for (String s : result)
+            {
+               if (s.startsWith("Planning Time:") || s.startsWith("Planning time:"))
+               {
+                  plannerSamples.add(getTime(s));
+               }
+               else if (s.startsWith("Execution Time:") || s.startsWith("Execution time:"))
+               {
+                  executorSamples.add(getTime(s));
+               }
+            }
+         }
+
+         return result;
+      }
+   }
+
+   /**
+    * Time statistics of the samples of a query. Outliers are detected with
+    * Tukey's fences, and the confidence interval of the mean uses Student's t
+    */
+   static class TimeStat
+   {
+      /** Two-sided 95% critical values of Student's t for 1 - 30 degrees of freedom */
+      private static final double[] T95 =
+      {
+         12.706, 4.303, 3.182, 2.776, 2.571, 2.447, 2.365, 2.306, 2.262, 2.228,
+         2.201, 2.179, 2.160, 2.145, 2.131, 2.120, 2.110, 2.101, 2.093, 2.086,
+         2.080, 2.074, 2.069, 2.064, 2.060, 2.056, 2.052, 2.048, 2.045, 2.042
+      };
+
+      private double[] samples;
+      private double mean;
+      private double stddev;
+      private int outliers;
+
+      TimeStat(List<Double> values)
+      {
+         samples = new double[values.size()];
+         for (int i = 0; i < samples.length; i++)
+            samples[i] = values.get(i).doubleValue();
+         Arrays.sort(samples);
+
+         double sum = 0.0;
+         for (double d : samples)
+            sum += d;
+         mean = sum / samples.length;
+
+         double squares = 0.0;
+         for (double d : samples)
+            squares += (d - mean) * (d - mean);
+         stddev = samples.length > 1 ? Math.sqrt(squares / (samples.length - 1)) : 0.0;
+
+         outliers = 0;
+         if (samples.length >= 4)
+         {
+            double q1 = getPercentile(25);
+            double q3 = getPercentile(75);
+            double iqr = q3 - q1;
+
+            for (double d : samples)
+            {
+               if (d < q1 - 1.5 * iqr || d > q3 + 1.5 * iqr)
+                  outliers++;
+            }
+         }
+      }
+
+      int getCount()
+      {
+         return samples.length;
+      }
+
+      double getMin()
+      {
+         return samples[0];
+      }
+
+      double getMedian()
+      {
+         return getPercentile(50);
+      }
+
+      double getMean()
+      {
+         return mean;
+      }
+
+      double getStdDev()
+      {
+         return stddev;
+      }
+
+      int getOutliers()
+      {
+         return outliers;
+      }
+
+      /**
+       * Get a percentile, interpolated between the closest ranks
+       * @param p The percentile
+       * @return The value
+       */
+      double getPercentile(double p)
+      {
+         double rank = (p / 100.0) * (samples.length - 1);
+         int lower = (int)Math.floor(rank);
+         int upper = (int)Math.ceil(rank);
+
+         return samples[lower] + (rank - lower) * (samples[upper] - samples[lower]);
+      }
+
+      /**
+       * Get the half width of the 95% confidence interval of the mean
+       * @return The value
+       */
+      double getConfidence()
+      {
+         int df = samples.length - 1;
+
+         if (df < 1)
+            return 0.0;
+
+         return getT95(df) * stddev / Math.sqrt(samples.length);
+      }
+
+      /**
+       * Get the two-sided 95% critical value of Student's t. From 31 degrees of freedom the
+       * Cornish-Fisher expansion around the normal quantile is used, which is exact to 3 decimals
+       * @param df The degrees of freedom
+       * @return The value
+       */
+      static double getT95(int df)
+      {
+         if (df <= T95.length)
+            return T95[df - 1];
+
+         double z = 1.959964;
+         double z3 = z * z * z;
+         double z5 = z3 * z * z;
+         double z7 = z5 * z * z;
+         double n = df;
+
+         return z + (z3 + z) / (4.0 * n) + (5.0 * z5 + 16.0 * z3 + 3.0 * z) / (96.0 * n * n) +
+            (3.0 * z7 + 19.0 * z5 + 17.0 * z3 - 15.0 * z) / (384.0 * n * n * n);
+      }
+
+      /**
+       * Get the median and the range of the samples
+       * @return The value
+       */
+      String getSpread()
+      {
+         StringBuilder sb = new StringBuilder();
+         sb.append(format(getMedian()));
+         sb.append("ms");
+
+         if (samples.length > 1)
+         {
+            sb.append(" (");
+            sb.append(format(getMin()));
+            sb.append(" - ");
+            sb.append(format(getPercentile(95)));
+
+            if (outliers > 0)
+            {
+               sb.append(", ");
+               sb.append(outliers);
+               sb.append(outliers == 1 ? " outlier" : " outliers");
+            }
+
+            sb.append(")");
+         }
+
+         return sb.toString();
+      }
+
+      String toCSV()
+      {
+         return samples.length + "," + format(getMin()) + "," + format(getMedian()) + "," +
+            format(getPercentile(95)) + "," + format(mean) + "," + format(stddev) + "," +
+            format(getConfidence()) + "," + outliers;
+      }
+
+      List<String> toHTML(String name)
+      {
+         List<String> l = new ArrayList<>();
+
+         l.add("<tr>");
+         l.add("<td>" + name + "</td>");
+         l.add("<td>" + samples.length + "</td>");
+         l.add("<td>" + format(getMin()) + "ms</td>");
+         l.add("<td>" + format(getMedian()) + "ms</td>");
+         l.add("<td>" + format(getPercentile(95)) + "ms</td>");
+         l.add("<td>" + format(mean) + "ms</td>");
+         l.add("<td>" + format(stddev) + "ms</td>");
+         l.add("<td>" + format(mean - getConfidence()) + "ms - " + format(mean + getConfidence()) + "ms</td>");
+         l.add("<td>" + outliers + "</td>");
+         l.add("</tr>");
+
+         return l;
+      }
+
+      private static String format(double d)
+      {
+         return String.format(Locale.ROOT, "%.3f", d);
+      }
+   }
+
    /**
     * Total stat
     */
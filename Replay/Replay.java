@@ -21,17 +21,30 @@
  * SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
  */
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.LineNumberReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
 import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.DriverManager;
@@ -40,19 +53,39 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Properties;
+import java.util.Set;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
 
 import javax.sql.XAConnection;
 import javax.sql.XADataSource;
@@ -60,7 +93,13 @@ import javax.transaction.xa.XAResource;
 import javax.transaction.xa.Xid;
 import javax.xml.bind.DatatypeConverter;
 
+import net.sf.jsqlparser.expression.Expression;
 import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
 import net.sf.jsqlparser.parser.CCJSqlParserUtil;
 import net.sf.jsqlparser.schema.Column;
 import net.sf.jsqlparser.schema.Table;
@@ -145,18 +184,45 @@ public class Replay
    /** The profile name */
    private static String profilename;
 
-   /** Column types   Table       Column  Type */
-   private static Map<String, Map<String, Integer>> columnTypes = new TreeMap<>();
-   
-   /** Aliases:       Alias   Name */
-   private static Map<String, String> aliases = new TreeMap<>();
+   /** Column types   Schema.Table Column  Type */
+   private static Map<String, Map<String, Integer>> columnTypes = new ConcurrentHashMap<>();
+
+   /** The schemas of the search path */
+   private static List<String> searchPath = new ArrayList<>();
+
+   /** Parameter types: Query  Types */
+   private static Map<String, List<Integer>> parameterTypes = new ConcurrentHashMap<>();
+
+   /** Engine: Async */
+   private static boolean asyncEngine = false;
+
+   /** Engine: Threads of the event loop */
+   private static int engineThreads = 1;
+
+   /** Engine: The event loop of the async engine */
+   private static AsyncEngine engine = null;
+
+   /** ResultSet mode: None */
+   private static final int RESULTSET_NONE = 0;
+
+   /** ResultSet mode: Iterate through the rows */
+   private static final int RESULTSET_ITERATE = 1;
 
-   /** Current table name */
-   private static String currentTableName = null;
+   /** ResultSet mode: Get all columns of the rows */
+   private static final int RESULTSET_MATERIALIZE = 2;
+
+   /** ResultSet mode: Get all columns of the rows using cursor-based fetch */
+   private static final int RESULTSET_CURSOR = 3;
 
    /** Iterate through ResultSet */
    private static boolean resultSet = false;
 
+   /** ResultSet mode */
+   private static int resultSetMode = RESULTSET_NONE;
+
+   /** Fetch size */
+   private static int fetchSize = 0;
+
    /** Parallel execution */
    private static boolean parallelExecution = true;
 
@@ -172,9 +238,51 @@ public class Replay
    /** XADataSource */
    private static XADataSource xaDataSource = null;
 
+   /** Ordered */
+   private static boolean ordered = false;
+
+   /** Dependencies */
+   private static Dependencies dependencies = null;
+
+   /** Primary keys: Table   Columns */
+   private static Map<String, List<String>> primaryKeys = new TreeMap<>();
+
+   /** XA: One-phase commit */
+   private static boolean onePhase = false;
+
+   /** XA: The run */
+   private static long xaRun = 0;
+
    /** NG driver */
    private static boolean ngDriver = false;
 
+   /** Batch */
+   private static boolean batch = false;
+
+   /** Batch size */
+   private static int batchSize = 100;
+
+   /** Read ahead */
+   private static int readAhead = 256;
+
+   /** Loop */
+   private static int loop = 1;
+
+   /** Duration */
+   private static long duration = 0;
+
+   /** Key offset */
+   private static long keyOffset = 0;
+
+   /** Key columns: column or table.column */
+   private static Set<String> keyColumns = new TreeSet<>();
+
+   /** Key parameters: Query  Parameter is a key column */
+   private static Map<String, boolean[]> keyParameters = new ConcurrentHashMap<>();
+
+   /** Metrics */
+   private static Metrics metrics = new Metrics();
+
    /**
     * Write data to a file
     * @param p The path of the file
@@ -371,78 +479,119 @@ public class Replay
     */
    private static void createInteraction(Connection c) throws Exception
    {
-      for (Integer proc : data.keySet())
+      int threads = Integer.valueOf(configuration.getProperty("threads",
+                                                              Integer.toString(Runtime.getRuntime().availableProcessors())));
+      ExecutorService es = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+
+      loadColumnTypes(c);
+
+      try
       {
-         List<LogEntry> lle = data.get(proc);
-         List<String> l = new ArrayList<>();
+         for (Integer proc : data.keySet())
+         {
+            futures.add(es.submit(new Callable<Void>()
+                                  {
+                                     public Void call() throws Exception
+                                     {
+                                        createInteraction(c, proc);
+                                        return null;
+                                     }
+                                  }));
+         }
 
-         for (int i = 0; i < lle.size(); i++)
+         for (Future<?> f : futures)
          {
-            LogEntry le = lle.get(i);
-            if (le.isExecute() || le.isStmt())
-            {
-               DataEntry de = new DataEntry();
-               de.setPrepared(le.isPrepared());
+            f.get();
+         }
+      }
+      finally
+      {
+         es.shutdown();
+      }
+   }
 
-               String stmt = le.getStatement();
-               if (stmt.startsWith("PREPARE TRANSACTION"))
-               {
-                  continue;
-               }
-               else if (stmt.startsWith("COMMIT PREPARED"))
-               {
-                  stmt = "COMMIT";
-               }
-               else if (stmt.startsWith("ROLLBACK PREPARED"))
-               {
-                  stmt = "ROLLBACK";
-               }
-               de.setStatement(stmt);
+   /**
+    * Create the interaction of a process
+    * @param c The connection
+    * @param proc The process
+    */
+   private static void createInteraction(Connection c, Integer proc) throws Exception
+   {
+      List<LogEntry> lle = data.get(proc);
+      List<String> l = new ArrayList<>();
+      List<String> ts = new ArrayList<>();
+
+      for (int i = 0; i < lle.size(); i++)
+      {
+         LogEntry le = lle.get(i);
+         if (le.isExecute() || le.isStmt())
+         {
+            DataEntry de = new DataEntry();
+            de.setPrepared(le.isPrepared());
+
+            String stmt = le.getStatement();
+            if (stmt.startsWith("PREPARE TRANSACTION"))
+            {
+               continue;
+            }
+            else if (stmt.startsWith("COMMIT PREPARED"))
+            {
+               stmt = "COMMIT";
+            }
+            else if (stmt.startsWith("ROLLBACK PREPARED"))
+            {
+               stmt = "ROLLBACK";
+            }
+            de.setStatement(stmt);
 
-               if (i < lle.size() - 1)
+            if (i < lle.size() - 1)
+            {
+               LogEntry next = lle.get(i + 1);
+               if (next.isParameters())
                {
-                  LogEntry next = lle.get(i + 1);
-                  if (next.isParameters())
-                  {
-                     de.setPrepared(true);
+                  de.setPrepared(true);
 
-                     List<String> parameters = new ArrayList<>();
-                     StringTokenizer st = new StringTokenizer(next.getStatement(), "?");
-                     List<Integer> types = getParameterTypes(c, le.getStatement(), st.countTokens());
+                  List<String> parameters = new ArrayList<>();
+                  StringTokenizer st = new StringTokenizer(next.getStatement(), "?");
+                  List<Integer> types = getParameterTypes(c, le.getStatement(), st.countTokens());
 
-                     while (st.hasMoreTokens())
+                  while (st.hasMoreTokens())
+                  {
+                     String token = st.nextToken();
+                     int start = token.indexOf("'");
+                     int end = token.lastIndexOf("'");
+                     String value = null;
+                     if (start != -1 && end != -1)
                      {
-                        String token = st.nextToken();
-                        int start = token.indexOf("'");
-                        int end = token.lastIndexOf("'");
-                        String value = null;
-                        if (start != -1 && end != -1)
+                        if (start + 1 == end)
+                        {
+                           value = "";
+                        }
+                        else
                         {
-                           if (start + 1 == end)
-                           {
-                              value = "";
-                           }
-                           else
-                           {
-                              value = token.substring(start + 1, end);
-                           }
+                           value = token.substring(start + 1, end);
                         }
-                        parameters.add(value);
                      }
-                     
-                     de.setTypes(types);
-                     de.setParameters(parameters);
-                     i++;
+                     parameters.add(value);
                   }
-               }
 
-               l.addAll(de.getData());
+                  de.setTypes(types);
+                  de.setParameters(parameters);
+                  i++;
+               }
             }
+
+            l.addAll(de.getData());
+            ts.add(le.getTimestamp() + "|" + le.getTransactionId());
          }
+      }
 
-         if (l.size() > 0)
-            writeFile(Paths.get(profilename, proc + ".cli"), l);
-      }      
+      if (l.size() > 0)
+      {
+         writeFile(Paths.get(profilename, proc + ".cli"), l);
+         writeFile(Paths.get(profilename, proc + ".ts"), ts);
+      }
    }
 
    /**
@@ -453,8 +602,30 @@ public class Replay
     * @return The types
     */
    private static List<Integer> getParameterTypes(Connection c, String query, int num) throws Exception
+   {
+      String key = query.trim().replaceAll("\\s+", " ");
+      List<Integer> result = parameterTypes.get(key);
+
+      if (result == null)
+      {
+         result = parseParameterTypes(c, query, num);
+         parameterTypes.put(key, result);
+      }
+
+      return result;
+   }
+
+   /**
+    * Parse a query and resolve its parameter types
+    * @param c The connection
+    * @param query The query
+    * @param num The number of required parameter types
+    * @return The types
+    */
+   private static List<Integer> parseParameterTypes(Connection c, String query, int num) throws Exception
    {
       List<Integer> result = new ArrayList<>();
+      QueryContext context = new QueryContext();
 
       try
       {
@@ -483,15 +654,15 @@ public class Replay
 
                   if (currentColumn.getTable() != null)
                   {
-                     table = currentColumn.getTable().getName();
+                     table = getTableName(currentColumn.getTable());
                   }
                   else
                   {
-                     table = currentTableName;
+                     table = context.currentTableName;
                   }
 
-                  if (aliases.containsKey(table))
-                     table = aliases.get(table);
+                  if (context.aliases.containsKey(table))
+                     table = context.aliases.get(table);
 
                   try
                   {
@@ -509,10 +680,10 @@ public class Replay
                @Override
                public void visit(Table table)
                {
-                  currentTableName = table.getName();
+                  context.currentTableName = getTableName(table);
 
                   if (table.getAlias() != null && !table.getAlias().getName().equals(""))
-                     aliases.put(table.getAlias().getName(), table.getName());
+                     context.aliases.put(table.getAlias().getName(), getTableName(table));
                }
             };
             expressionDeParser.setSelectVisitor(deparser);
@@ -535,7 +706,7 @@ public class Replay
 
             for (Table table : update.getTables())
             {
-               currentTableName = table.getName();
+               context.currentTableName = getTableName(table);
             }
 
             StringBuilder buffer = new StringBuilder();
@@ -557,15 +728,15 @@ public class Replay
 
                   if (currentColumn.getTable() != null)
                   {
-                     table = currentColumn.getTable().getName();
+                     table = getTableName(currentColumn.getTable());
                   }
                   else
                   {
-                     table = currentTableName;
+                     table = context.currentTableName;
                   }
                
-                  if (aliases.containsKey(table))
-                     table = aliases.get(table);
+                  if (context.aliases.containsKey(table))
+                     table = context.aliases.get(table);
                
                   try
                   {
@@ -583,10 +754,10 @@ public class Replay
                @Override
                public void visit(Table table)
                {
-                  currentTableName = table.getName();
+                  context.currentTableName = getTableName(table);
 
                   if (table.getAlias() != null && !table.getAlias().getName().equals(""))
-                     aliases.put(table.getAlias().getName(), table.getName());
+                     context.aliases.put(table.getAlias().getName(), getTableName(table));
                }
             };
             expressionDeParser.setSelectVisitor(selectDeParser);
@@ -610,7 +781,7 @@ public class Replay
          else if (s instanceof Delete)
          {
             Delete delete = (Delete)s;
-            currentTableName = delete.getTable().getName();
+            context.currentTableName = getTableName(delete.getTable());
 
             StringBuilder buffer = new StringBuilder();
             ExpressionDeParser expressionDeParser = new ExpressionDeParser()
@@ -631,15 +802,15 @@ public class Replay
 
                   if (currentColumn.getTable() != null)
                   {
-                     table = currentColumn.getTable().getName();
+                     table = getTableName(currentColumn.getTable());
                   }
                   else
                   {
-                     table = currentTableName;
+                     table = context.currentTableName;
                   }
                
-                  if (aliases.containsKey(table))
-                     table = aliases.get(table);
+                  if (context.aliases.containsKey(table))
+                     table = context.aliases.get(table);
 
                   try
                   {
@@ -671,7 +842,7 @@ public class Replay
          else if (s instanceof Insert)
          {
             Insert insert = (Insert)s;
-            currentTableName = insert.getTable().getName();
+            context.currentTableName = getTableName(insert.getTable());
 
             for (Column currentColumn : insert.getColumns())
             {
@@ -680,15 +851,15 @@ public class Replay
 
                if (currentColumn.getTable() != null)
                {
-                  table = currentColumn.getTable().getName();
+                  table = getTableName(currentColumn.getTable());
                }
                else
                {
-                  table = currentTableName;
+                  table = context.currentTableName;
                }
                
-               if (aliases.containsKey(table))
-                  table = aliases.get(table);
+               if (context.aliases.containsKey(table))
+                  table = context.aliases.get(table);
                
                try
                {
@@ -718,6 +889,118 @@ public class Replay
       }
    }
 
+   /**
+    * Load the column types of all user tables in one call, and the search path
+    * used to resolve table names without a schema
+    * @param c The connection
+    */
+   private static void loadColumnTypes(Connection c) throws Exception
+   {
+      Statement stmt = null;
+      ResultSet rs = null;
+      try
+      {
+         stmt = c.createStatement();
+         rs = stmt.executeQuery("SELECT unnest(current_schemas(false))");
+         while (rs.next())
+         {
+            searchPath.add(rs.getString(1).toLowerCase(Locale.US));
+         }
+         rs.close();
+
+         DatabaseMetaData dmd = c.getMetaData();
+         rs = dmd.getColumns(null, null, "%", "%");
+         while (rs.next())
+         {
+            String schema = rs.getString("TABLE_SCHEM");
+            if ("pg_catalog".equals(schema) || "information_schema".equals(schema))
+               continue;
+
+            String tableName = (schema + "." + rs.getString("TABLE_NAME")).toLowerCase(Locale.US);
+            String columnName = rs.getString("COLUMN_NAME");
+            int dataType = rs.getInt("DATA_TYPE");
+
+            Map<String, Integer> tableData = columnTypes.get(tableName);
+            if (tableData == null)
+            {
+               tableData = new TreeMap<>();
+               columnTypes.put(tableName, tableData);
+            }
+            tableData.put(columnName.toLowerCase(Locale.US), dataType);
+         }
+      }
+      finally
+      {
+         if (rs != null)
+         {
+            try
+            {
+               rs.close();
+            }
+            catch (Exception e)
+            {
+               // Ignore
+            }
+         }
+
+         if (stmt != null)
+         {
+            try
+            {
+               stmt.close();
+            }
+            catch (Exception e)
+            {
+               // Ignore
+            }
+         }
+      }
+   }
+
+   /**
+    * Get the name of a table, qualified with its schema if the query does so
+    * @param table The table
+    * @return The name
+    */
+   private static String getTableName(Table table)
+   {
+      if (table.getSchemaName() != null && !"".equals(table.getSchemaName()))
+         return table.getSchemaName() + "." + table.getName();
+
+      return table.getName();
+   }
+
+   /**
+    * Resolve a table name to its schema qualified name, using the search path
+    * for names without a schema. A table outside of the search path is used if
+    * the original run had another search path
+    * @param table The table in lower case
+    * @return The qualified name
+    */
+   private static String resolveTable(String table)
+   {
+      if (table.indexOf(".") != -1)
+         return table;
+
+      for (String schema : searchPath)
+      {
+         if (columnTypes.containsKey(schema + "." + table))
+            return schema + "." + table;
+      }
+
+      String result = null;
+      for (String name : columnTypes.keySet())
+      {
+         if (name.endsWith("." + table) && (result == null || name.compareTo(result) < 0))
+            result = name;
+      }
+
+      if (result != null)
+         return result;
+
+      return (searchPath.isEmpty() ? "public" : searchPath.get(0)) + "." + table;
+   }
+
    /**
     * Get the type of a column
     * @param c The connection
@@ -727,24 +1010,43 @@ public class Replay
     */
    private static int getType(Connection c, String table, String column) throws Exception
    {
-      Map<String, Integer> tableData = columnTypes.get(table.toLowerCase(Locale.US));
+      String name = table.toLowerCase(Locale.US);
+      Map<String, Integer> tableData = columnTypes.get(resolveTable(name));
 
       if (tableData == null)
       {
-         tableData = new TreeMap<>();
+         Map<String, Map<String, Integer>> found = new TreeMap<>();
+         int dot = name.lastIndexOf(".");
          ResultSet rs = null;
          try
          {
-            DatabaseMetaData dmd = c.getMetaData();
-            rs = dmd.getColumns(null, null, table.toLowerCase(Locale.US), "");
-            while (rs.next())
+            synchronized (c)
+            {
+               DatabaseMetaData dmd = c.getMetaData();
+               rs = dmd.getColumns(null, dot != -1 ? name.substring(0, dot) : null, name.substring(dot + 1), "");
+               while (rs.next())
+               {
+                  String tableName = (rs.getString("TABLE_SCHEM") + "." + rs.getString("TABLE_NAME")).toLowerCase(Locale.US);
+                  String columnName = rs.getString("COLUMN_NAME");
+                  int dataType = rs.getInt("DATA_TYPE");
+
+                  Map<String, Integer> columns = found.get(tableName);
+                  if (columns == null)
+                  {
+                     columns = new TreeMap<>();
+                     found.put(tableName, columns);
+                  }
+                  columns.put(columnName.toLowerCase(Locale.US), dataType);
+               }
+            }
+
+            for (Map.Entry<String, Map<String, Integer>> entry : found.entrySet())
             {
-               String columnName = rs.getString("COLUMN_NAME");
-               int dataType = rs.getInt("DATA_TYPE");
-               tableData.put(columnName.toLowerCase(Locale.US), dataType);
+               columnTypes.putIfAbsent(entry.getKey(), entry.getValue());
             }
-            
-            columnTypes.put(table.toLowerCase(Locale.US), tableData);
+
+            columnTypes.putIfAbsent(resolveTable(name), new TreeMap<>());
+            tableData = columnTypes.get(resolveTable(name));
          }
          finally
          {
@@ -766,14 +1068,13 @@ public class Replay
    }
 
    /**
-    * Execute clients
-    * @param url The database url
-    * @param user The database user
-    * @param password The password
+    * Get the client files of a profile
+    * @param profile The profile
+    * @return The files sorted by name
     */
-   private static void executeClients() throws Exception
+   private static File[] getClientFiles(String profile)
    {
-      File directory = new File(profilename);
+      File directory = new File(profile);
       File[] clientData = directory.listFiles(new FilenameFilter()
                                               { 
                                                  public boolean accept(File directory, String filename)
@@ -783,906 +1084,4846 @@ public class Replay
                                               });
       Arrays.sort(clientData);
 
-      List<Client> clients = new ArrayList<>(clientData.length);
-      CountDownLatch clientReady = new CountDownLatch(clientData.length);
-      CountDownLatch clientRun = new CountDownLatch(1);
-      CountDownLatch clientDone = new CountDownLatch(clientData.length);
-      int statements = 0;
-      ExecutorService es = null;
-      long start = 0;
-      long end = 0;
-      boolean quiet = Boolean.valueOf(configuration.getProperty("quiet", "true"));
-      
-      analyze();
-
-      if (!quiet)
-         System.out.print("Preparing... ");
+      return clientData;
+   }
 
-      for (File f : clientData)
+   /**
+    * Transform a profile into a new profile with a different number of clients, by
+    * distributing the transactions of the profile over the new clients
+    * @param clients The number of clients
+    * @param mode The distribution; round-robin, hash or time
+    */
+   private static void transform(int clients, String mode) throws Exception
+   {
+      File[] clientData = getClientFiles(profilename);
+      String target = profilename + "-" + clients;
+      BufferedWriter[] cliWriters = new BufferedWriter[clients];
+      BufferedWriter[] tsWriters = new BufferedWriter[clients];
+      List<UnitReader> readers = new ArrayList<>(clientData.length);
+      long units = 0;
+
+      File directory = new File(target);
+      if (directory.exists())
       {
-         List<String> l = Files.readAllLines(f.toPath());
-         List<DataEntry> interaction = new ArrayList<>();
+         Files.walk(Paths.get(target))
+            .sorted(Comparator.reverseOrder())
+            .map(Path::toFile)
+            .forEach(File::delete);
+      }
+      directory.mkdirs();
 
-         int i = 0;
-         while (l.get(i).startsWith("#"))
+      try
+      {
+         for (int i = 0; i < clients; i++)
          {
-            i++;
+            cliWriters[i] = Files.newBufferedWriter(Paths.get(target, (i + 1) + ".cli"));
+            tsWriters[i] = Files.newBufferedWriter(Paths.get(target, (i + 1) + ".ts"));
          }
 
-         while (i < l.size())
+         for (File f : clientData)
          {
-            String prepared = l.get(i++);
-            String statement = l.get(i++);
-            String types = l.get(i++);
-            String parameters = l.get(i++);
-            interaction.add(new DataEntry(prepared, statement, types, parameters));
-            statements++;
+            String name = f.getName().substring(0, f.getName().indexOf("."));
+            readers.add(new UnitReader(Integer.valueOf(name), f.toPath(), Paths.get(profilename, name + ".ts")));
          }
 
-         clients.add(new Client(Integer.valueOf(f.getName().substring(0, f.getName().indexOf("."))),
-                                interaction,
-                                clientReady, clientRun, clientDone));
-      }
-
-      if (parallelExecution)
-      {
-         String mc = configuration.getProperty("max_connections");
-         if (mc == null)
+         if ("time".equals(mode))
          {
-            es = Executors.newFixedThreadPool(clients.size());
+            PriorityQueue<Unit> queue = new PriorityQueue<>(Math.max(1, readers.size()));
 
-            for (Client cli : clients)
+            for (UnitReader r : readers)
             {
-               es.submit(cli);
+               Unit u = r.next();
+               if (u != null)
+                  queue.add(u);
             }
 
-            clientReady.await();
-
-            if (wait)
+            while (!queue.isEmpty())
             {
-               System.out.println("Press Enter to Start");
-               System.console().readLine();
-            }
+               Unit u = queue.poll();
+               u.write(cliWriters[(int)(units % clients)], tsWriters[(int)(units % clients)]);
+               units++;
 
-            start = System.currentTimeMillis();
-            clientRun.countDown();
-
-            if (!quiet)
-               System.out.println("Done");
-
-            clientDone.await();
-            end = System.currentTimeMillis();
+               Unit next = u.getReader().next();
+               if (next != null)
+                  queue.add(next);
+            }
          }
          else
          {
-            int maxConnections = Integer.valueOf(mc);
-            es = Executors.newFixedThreadPool(maxConnections);
-
-            for (Client cli : clients)
-            {
-               es.submit(cli);
-            }
-
-            if (clients.size() <= maxConnections)
-            {
-               clientReady.await();
-            }
-            else
-            {
-               Thread.sleep(2000L);
-            }
-
-            if (wait)
+            for (UnitReader r : readers)
             {
-               System.out.println("Press Enter to Start");
-               System.console().readLine();
-            }
+               Unit u = r.next();
+               while (u != null)
+               {
+                  int client = (int)(units % clients);
 
-            start = System.currentTimeMillis();
-            clientRun.countDown();
+                  if ("hash".equals(mode))
+                     client = Math.floorMod(u.getKey().hashCode(), clients);
 
-            if (!quiet)
-               System.out.println("Done");
+                  u.write(cliWriters[client], tsWriters[client]);
+                  units++;
 
-            clientDone.await();
-            end = System.currentTimeMillis();
+                  u = r.next();
+               }
+            }
          }
       }
-      else
+      finally
       {
-         clientRun.countDown();
-
-         if (!quiet)
-            System.out.println("Done");
+         for (UnitReader r : readers)
+         {
+            r.close();
+         }
 
-         start = System.currentTimeMillis();
-         for (Client cli : clients)
+         for (int i = 0; i < clients; i++)
          {
-            cli.run();
-            if (!cli.isSuccess() && !error)
-            {
-               break;
-            }
+            if (cliWriters[i] != null)
+               cliWriters[i].close();
+
+            if (tsWriters[i] != null)
+               tsWriters[i].close();
          }
-         end = System.currentTimeMillis();
       }
 
-      System.out.println("Clock: " + (end - start) + "ms");
-      System.out.println("  Number of clients: " + clients.size());
-      System.out.println("  Statements: " + statements);
-      for (Client cli : clients)
+      System.out.println("Transformed " + units + " transactions from " + clientData.length + " clients into " +
+                         clients + " clients (" + mode + ") in " + target);
+   }
+
+   /**
+    * Create the dependencies between the transactions of different clients that touch the
+    * same row, based on the order in which the transactions ended in the original run
+    * @param c The connection
+    */
+   private static void createDependencies(Connection c) throws Exception
+   {
+      File[] clientData = getClientFiles(profilename);
+      List<UnitReader> readers = new ArrayList<>(clientData.length);
+      Map<String, long[]> last = new HashMap<>();
+      List<String> l = new ArrayList<>();
+      long units = 0;
+
+      PriorityQueue<Unit> queue = new PriorityQueue<>(Math.max(1, clientData.length), new Comparator<Unit>()
       {
-         StringBuilder sb = new StringBuilder();
-         sb = sb.append("  ");
-         sb = sb.append(cli.getId());
-         sb = sb.append(": ");
-         sb = sb.append(cli.getRunTime());
-         sb = sb.append("/");
-         sb = sb.append(cli.getConnectionTime());
-         sb = sb.append("/");
-         sb = sb.append(cli.getStatements());
-         if (error)
+         public int compare(Unit u1, Unit u2)
          {
-            sb = sb.append("/");
-            sb = sb.append(cli.getErrors());
+            int result = u1.getEnd().compareTo(u2.getEnd());
+
+            if (result == 0)
+               result = u1.compareTo(u2);
+
+            return result;
          }
+      });
 
-         System.out.println(sb.toString());
+      try
+      {
+         for (File f : clientData)
+         {
+            String name = f.getName().substring(0, f.getName().indexOf("."));
+            Path ts = Paths.get(profilename, name + ".ts");
+
+            if (!Files.exists(ts))
+            {
+               System.out.println("Missing " + ts + " - dependencies require a profile generated with -i");
+               return;
+            }
+
+            UnitReader r = new UnitReader(Integer.valueOf(name), f.toPath(), ts);
+            readers.add(r);
+
+            Unit u = r.next();
+            if (u != null)
+               queue.add(u);
+         }
+
+         while (!queue.isEmpty())
+         {
+            Unit u = queue.poll();
+            int client = u.getReader().getId();
+            Set<String> predecessors = new TreeSet<>();
+
+            for (DataEntry de : u.getEntries())
+            {
+               for (String key : getKeys(c, de))
+               {
+                  long[] previous = last.get(key);
+
+                  if (previous != null && previous[0] != client)
+                     predecessors.add(previous[0] + "," + previous[1]);
+
+                  last.put(key, new long[] {client, u.getSequence()});
+               }
+            }
+
+            for (String previous : predecessors)
+            {
+               l.add(client + "," + u.getSequence() + "," + previous);
+            }
+
+            units++;
+
+            Unit next = u.getReader().next();
+            if (next != null)
+               queue.add(next);
+         }
+      }
+      finally
+      {
+         for (UnitReader r : readers)
+         {
+            r.close();
+         }
       }
-      
-      if (es != null)
-         es.shutdown();
 
-      writeCSV(end - start, clients);
+      writeFile(Paths.get(profilename, "dependencies.csv"), l);
+
+      System.out.println("Dependencies: " + l.size() + " between " + units + " transactions over " +
+                         last.size() + " keys");
    }
 
    /**
-    * Write CSV file
-    * @param clock The clock time
-    * @param clients The clients
+    * Get the keys of the rows touched by a statement, as table:value|value for the primary key
+    * @param c The connection
+    * @param de The data entry
+    * @return The keys
     */
-   private static void writeCSV(long clock, List<Client> clients) throws Exception
+   private static List<String> getKeys(Connection c, DataEntry de) throws Exception
    {
-      List<String> l = new ArrayList<>();
+      List<String> result = new ArrayList<>();
 
-      l.add("Clock," + clock + "," + clock);
+      if (!de.isDML())
+         return result;
 
-      for (Client cli : clients)
+      String table = null;
+      Map<String, String> values = new TreeMap<>();
+
+      try
       {
-         StringBuilder sb = new StringBuilder();
-         sb = sb.append(cli.getId());
-         sb = sb.append(",");
-         sb = sb.append(cli.getRunTime());
-         sb = sb.append(",");
-         sb = sb.append(cli.getConnectionTime());
-         sb = sb.append(",");
-         sb = sb.append(cli.getStatements());
-         if (error)
+         net.sf.jsqlparser.statement.Statement s = CCJSqlParserUtil.parse(de.getStatement());
+
+         if (s instanceof Insert)
          {
-            sb = sb.append(",");
-            sb = sb.append(cli.getErrors());
+            Insert insert = (Insert)s;
+            table = insert.getTable().getName();
+
+            if (insert.getColumns() != null && insert.getItemsList() instanceof ExpressionList)
+            {
+               List<Expression> expressions = ((ExpressionList)insert.getItemsList()).getExpressions();
+
+               for (int i = 0; i < insert.getColumns().size() && i < expressions.size(); i++)
+               {
+                  values.put(insert.getColumns().get(i).getColumnName().toLowerCase(Locale.US),
+                             getValue(expressions.get(i), de));
+               }
+            }
          }
-         l.add(sb.toString());
+         else if (s instanceof Update)
+         {
+            Update update = (Update)s;
+            table = update.getTables().get(0).getName();
+            getEqualities(update.getWhere(), de, values);
+         }
+         else if (s instanceof Delete)
+         {
+            Delete delete = (Delete)s;
+            table = delete.getTable().getName();
+            getEqualities(delete.getWhere(), de, values);
+         }
+      }
+      catch (Exception e)
+      {
+         return result;
       }
 
-      writeFile(Paths.get(profilename, "result.csv"), l);
+      if (table == null)
+         return result;
+
+      table = table.toLowerCase(Locale.US);
+
+      List<String> pk = getPrimaryKey(c, table);
+      if (pk.isEmpty())
+         return result;
+
+      StringBuilder sb = new StringBuilder();
+      sb = sb.append(table);
+      sb = sb.append(":");
+
+      for (int i = 0; i < pk.size(); i++)
+      {
+         String value = values.get(pk.get(i));
+
+         if (value == null)
+            return result;
+
+         if (i > 0)
+            sb = sb.append("|");
+         sb = sb.append(value);
+      }
+
+      result.add(sb.toString());
+
+      return result;
    }
-   
+
    /**
-    * Read the configuration (replay.properties)
-    * @param config The configuration
+    * Get the column = value conditions of a WHERE clause joined by AND
+    * @param expression The expression
+    * @param de The data entry
+    * @param values The values
     */
-   private static void readConfiguration(String config) throws Exception
+   private static void getEqualities(Expression expression, DataEntry de, Map<String, String> values)
    {
-      File f = new File(config);
-      configuration = new Properties();
+      if (expression instanceof AndExpression)
+      {
+         getEqualities(((AndExpression)expression).getLeftExpression(), de, values);
+         getEqualities(((AndExpression)expression).getRightExpression(), de, values);
+      }
+      else if (expression instanceof Parenthesis)
+      {
+         getEqualities(((Parenthesis)expression).getExpression(), de, values);
+      }
+      else if (expression instanceof EqualsTo)
+      {
+         EqualsTo equalsTo = (EqualsTo)expression;
 
-      if (f.exists())
+         if (equalsTo.getLeftExpression() instanceof Column)
+         {
+            values.put(((Column)equalsTo.getLeftExpression()).getColumnName().toLowerCase(Locale.US),
+                       getValue(equalsTo.getRightExpression(), de));
+         }
+         else if (equalsTo.getRightExpression() instanceof Column)
+         {
+            values.put(((Column)equalsTo.getRightExpression()).getColumnName().toLowerCase(Locale.US),
+                       getValue(equalsTo.getLeftExpression(), de));
+         }
+      }
+   }
+
+   /**
+    * Get the value of an expression
+    * @param expression The expression
+    * @param de The data entry
+    * @return The value
+    */
+   private static String getValue(Expression expression, DataEntry de)
+   {
+      if (expression instanceof JdbcParameter)
       {
-         FileInputStream fis = null;
+         int index = ((JdbcParameter)expression).getIndex().intValue() - 1;
+
+         if (de.getParameters() != null && index >= 0 && index < de.getParameters().size())
+            return de.getParameters().get(index);
+
+         return null;
+      }
+      else if (expression instanceof StringValue)
+      {
+         return ((StringValue)expression).getValue();
+      }
+
+      return expression.toString();
+   }
+
+   /**
+    * Get the primary key columns of a table
+    * @param c The connection
+    * @param table The table
+    * @return The columns
+    */
+   private static List<String> getPrimaryKey(Connection c, String table) throws Exception
+   {
+      List<String> result = primaryKeys.get(table);
+
+      if (result == null)
+      {
+         Map<Short, String> columns = new TreeMap<>();
+         ResultSet rs = null;
          try
          {
-            fis = new FileInputStream(f);
-            configuration.load(fis);
+            DatabaseMetaData dmd = c.getMetaData();
+            rs = dmd.getPrimaryKeys(null, null, table);
+            while (rs.next())
+            {
+               columns.put(rs.getShort("KEY_SEQ"), rs.getString("COLUMN_NAME").toLowerCase(Locale.US));
+            }
          }
          finally
          {
-            if (fis != null)
+            if (rs != null)
             {
                try
                {
-                  fis.close();
+                  rs.close();
                }
                catch (Exception e)
                {
-                  // Nothing todo
+                  // Ignore
                }
             }
          }
+
+         result = new ArrayList<>(columns.values());
+         primaryKeys.put(table, result);
+      }
+
+      return result;
+   }
+
+   /**
+    * Execute clients
+    * @param url The database url
+    * @param user The database user
+    * @param password The password
+    */
+   private static void executeClients() throws Exception
+   {
+      File[] clientData = getClientFiles(profilename);
+
+      List<Client> clients = new ArrayList<>(clientData.length);
+      CountDownLatch clientReady = new CountDownLatch(clientData.length);
+      CountDownLatch clientRun = new CountDownLatch(1);
+      CountDownLatch clientDone = new CountDownLatch(clientData.length);
+      ExecutorService es = null;
+      long start = 0;
+      long end = 0;
+      boolean quiet = Boolean.valueOf(configuration.getProperty("quiet", "true"));
+      ScheduledExecutorService ses = null;
+      HttpServer server = null;
+      long interval = configure();
+
+      String mc = configuration.getProperty("max_connections");
+      Window window = new Window(clientData.length,
+                                 Integer.valueOf(configuration.getProperty("warmup", "0")),
+                                 Long.valueOf(configuration.getProperty("warmup_time", "0")),
+                                 parallelExecution && (mc == null || clientData.length <= Integer.valueOf(mc)));
+
+      if (!window.isActive() && window.isWarmup())
+         System.out.println("Warm-up requires that all clients run concurrently - disabled");
+
+      if (!window.isActive() && asyncEngine)
+      {
+         System.out.println("The async engine requires that all clients run concurrently - disabled");
+         asyncEngine = false;
+      }
+
+      if (ordered)
+      {
+         if (!window.isActive() || configuration.getProperty("agents") != null)
+         {
+            System.out.println("Ordering requires that all clients run concurrently in one process - disabled");
+         }
+         else if (!Files.exists(Paths.get(profilename, "dependencies.csv")))
+         {
+            System.out.println("No dependencies.csv in " + profilename + " - run Replay -d " + profilename);
+            return;
+         }
+         else
+         {
+            dependencies = new Dependencies(Paths.get(profilename, "dependencies.csv"));
+
+            if (batch)
+            {
+               System.out.println("Batching isn't supported with ordering - disabled");
+               batch = false;
+            }
+         }
+      }
+      
+      analyze();
+
+      if (xa && Boolean.valueOf(configuration.getProperty("xa_recover", "false")))
+         recover();
+
+      if (configuration.getProperty("agents") != null)
+      {
+         executeCoordinator(configuration.getProperty("agents").split(","), clientData);
+         return;
+      }
+
+      if (!quiet)
+         System.out.print("Preparing... ");
+
+      for (File f : clientData)
+      {
+         clients.add(new Client(Integer.valueOf(f.getName().substring(0, f.getName().indexOf("."))),
+                                f.toPath(),
+                                clientReady, clientRun, clientDone, window));
+      }
+
+      server = startMetrics(clients);
+
+      if (parallelExecution)
+      {
+         if (mc == null)
+         {
+            es = startClients(clients, clients.size());
+
+            clientReady.await();
+
+            if (wait)
+            {
+               System.out.println("Press Enter to Start");
+               System.console().readLine();
+            }
+
+            start = System.currentTimeMillis();
+            clientRun.countDown();
+            wakeup(clientRun);
+            ses = startInterval(clients, interval);
+
+            if (!quiet)
+               System.out.println("Done");
+
+            window.await(start);
+            clientDone.await();
+            end = System.currentTimeMillis();
+            window.setEnd(end);
+         }
+         else
+         {
+            int maxConnections = Integer.valueOf(mc);
+            es = startClients(clients, maxConnections);
+
+            if (clients.size() <= maxConnections)
+            {
+               clientReady.await();
+            }
+            else
+            {
+               Thread.sleep(2000L);
+            }
+
+            if (wait)
+            {
+               System.out.println("Press Enter to Start");
+               System.console().readLine();
+            }
+
+            start = System.currentTimeMillis();
+            clientRun.countDown();
+            wakeup(clientRun);
+            ses = startInterval(clients, interval);
+
+            if (!quiet)
+               System.out.println("Done");
+
+            window.await(start);
+            clientDone.await();
+            end = System.currentTimeMillis();
+            window.setEnd(end);
+         }
+      }
+      else
+      {
+         clientRun.countDown();
+
+         if (!quiet)
+            System.out.println("Done");
+
+         start = System.currentTimeMillis();
+         ses = startInterval(clients, interval);
+         for (Client cli : clients)
+         {
+            cli.run();
+            if (!cli.isSuccess() && !error)
+            {
+               break;
+            }
+         }
+         end = System.currentTimeMillis();
+      }
+
+      if (ses != null)
+         ses.shutdownNow();
+
+      if (server != null)
+         server.stop(0);
+
+      if (es != null)
+         es.shutdown();
+
+      report(end - start, clients, window);
+   }
+
+   /**
+    * Execute the clients through agents. The client files are partitioned over the agents,
+    * and the run is started when all agents report that their clients are ready
+    * @param agents The agents as host:port
+    * @param clientData The client files
+    */
+   private static void executeCoordinator(String[] agents, File[] clientData) throws Exception
+   {
+      List<Socket> sockets = new ArrayList<>(agents.length);
+      List<BufferedReader> readers = new ArrayList<>(agents.length);
+      List<PrintWriter> writers = new ArrayList<>(agents.length);
+      List<Client> clients = new ArrayList<>(clientData.length);
+      long start = 0;
+      long end = 0;
+
+      try
+      {
+         for (int i = 0; i < agents.length; i++)
+         {
+            String agent = agents[i].trim();
+            Socket socket = new Socket(agent.substring(0, agent.lastIndexOf(":")),
+                                       Integer.valueOf(agent.substring(agent.lastIndexOf(":") + 1)));
+            sockets.add(socket);
+
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(),
+                                                                         StandardCharsets.UTF_8));
+            PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(),
+                                                                     StandardCharsets.UTF_8), true);
+            readers.add(in);
+            writers.add(out);
+
+            out.println("PROFILE " + profilename);
+
+            if (resultSet)
+               out.println("FLAG -r");
+            if (xa)
+               out.println("FLAG -x");
+            if (error)
+               out.println("FLAG -e");
+            if (batch)
+               out.println("FLAG -b");
+
+            for (String key : configuration.stringPropertyNames())
+            {
+               if (!isAgentLocal(key))
+                  out.println("SET " + key + "=" + configuration.getProperty(key));
+            }
+
+            for (int j = i; j < clientData.length; j += agents.length)
+            {
+               out.println("CLIENT " + clientData[j].getName());
+            }
+
+            out.println("PREPARE");
+         }
+
+         for (int i = 0; i < agents.length; i++)
+         {
+            String line = readers.get(i).readLine();
+            if (!"READY".equals(line))
+               throw new IOException("Agent " + agents[i] + " not ready: " + line);
+         }
+
+         if (wait)
+         {
+            System.out.println("Press Enter to Start");
+            System.console().readLine();
+         }
+
+         start = System.currentTimeMillis();
+         for (PrintWriter out : writers)
+         {
+            out.println("START");
+         }
+
+         for (int i = 0; i < agents.length; i++)
+         {
+            String line = readers.get(i).readLine();
+            while (line != null && line.startsWith("RESULT "))
+            {
+               clients.add(Client.fromResult(line.substring(7)));
+               line = readers.get(i).readLine();
+            }
+
+            if (!"DONE".equals(line))
+               throw new IOException("Agent " + agents[i] + " failed: " + line);
+         }
+         end = System.currentTimeMillis();
+      }
+      finally
+      {
+         for (Socket socket : sockets)
+         {
+            try
+            {
+               socket.close();
+            }
+            catch (Exception e)
+            {
+               // Nothing to do
+            }
+         }
+      }
+
+      clients.sort(new Comparator<Client>()
+                   {
+                      public int compare(Client c1, Client c2)
+                      {
+                         return Integer.compare(c1.getId(), c2.getId());
+                      }
+                   });
+
+      report(end - start, clients, new Window(clients.size(), 0, 0, false));
+   }
+
+   /**
+    * Is the option local to an agent, and not passed on by the coordinator
+    * @param key The option
+    * @return True if local, otherwise false
+    */
+   private static boolean isAgentLocal(String key)
+   {
+      return "host".equals(key) || "port".equals(key) || "database".equals(key) || "url".equals(key) ||
+         "user".equals(key) || "password".equals(key) || "agents".equals(key) ||
+         "metrics_port".equals(key) || "agent_address".equals(key);
+   }
+
+   /**
+    * Is the name a plain file name, without a directory
+    * @param name The name
+    * @return True if plain, otherwise false
+    */
+   private static boolean isPlainName(String name)
+   {
+      return !"".equals(name) && name.indexOf("/") == -1 && name.indexOf("\\") == -1 &&
+         name.indexOf(File.separatorChar) == -1 && name.indexOf("..") == -1;
+   }
+
+   /**
+    * Run as an agent for a coordinator. Each session of a coordinator runs with its own
+    * copy of the configuration of the agent
+    * @param port The port
+    */
+   private static void executeAgent(int port) throws Exception
+   {
+      Properties agentConfiguration = configuration;
+      String address = agentConfiguration.getProperty("agent_address", "localhost");
+      ServerSocket ss = new ServerSocket();
+      ss.bind(new InetSocketAddress(address, port));
+      System.out.println("Agent listening on " + address + ":" + port);
+
+      while (true)
+      {
+         Socket socket = ss.accept();
+         try
+         {
+            configuration = new Properties();
+            configuration.putAll(agentConfiguration);
+
+            executeAgent(socket);
+         }
+         catch (Exception e)
+         {
+            e.printStackTrace();
+         }
+         finally
+         {
+            configuration = agentConfiguration;
+            socket.close();
+         }
+      }
+   }
+
+   /**
+    * Execute the clients of a coordinator
+    * @param socket The socket of the coordinator
+    */
+   private static void executeAgent(Socket socket) throws Exception
+   {
+      BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+      PrintWriter out = new PrintWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8), true);
+      List<String> clientData = new ArrayList<>();
+      ExecutorService es = null;
+
+      resultSet = false;
+      xa = false;
+      error = false;
+      batch = false;
+      parallelExecution = true;
+      wait = false;
+      ordered = false;
+      dependencies = null;
+      profilename = null;
+      metrics = new Metrics();
+
+      String line = in.readLine();
+      while (line != null && !"PREPARE".equals(line))
+      {
+         if (line.startsWith("PROFILE "))
+         {
+            profilename = line.substring(8);
+
+            if (!isPlainName(profilename))
+            {
+               out.println("ERROR Invalid profile " + profilename);
+               return;
+            }
+         }
+         else if (line.startsWith("FLAG "))
+         {
+            setFlag(line.substring(5));
+         }
+         else if (line.startsWith("SET "))
+         {
+            int equals = line.indexOf("=");
+
+            if (equals != -1 && !isAgentLocal(line.substring(4, equals)))
+               configuration.setProperty(line.substring(4, equals), line.substring(equals + 1));
+         }
+         else if (line.startsWith("CLIENT "))
+         {
+            String client = line.substring(7);
+
+            if (!isPlainName(client) || !client.endsWith(".cli"))
+            {
+               out.println("ERROR Invalid client " + client);
+               return;
+            }
+
+            clientData.add(client);
+         }
+         line = in.readLine();
+      }
+
+      if (line == null)
+         return;
+
+      if (profilename == null)
+      {
+         out.println("ERROR No profile");
+         return;
+      }
+
+      System.out.println("Running " + clientData.size() + " clients of " + profilename);
+
+      long interval = configure();
+      List<Client> clients = new ArrayList<>(clientData.size());
+      CountDownLatch clientReady = new CountDownLatch(clientData.size());
+      CountDownLatch clientRun = new CountDownLatch(1);
+      CountDownLatch clientDone = new CountDownLatch(clientData.size());
+      Window window = new Window(clientData.size(), 0, 0, false);
+      ScheduledExecutorService ses = null;
+      HttpServer server = null;
+
+      for (String f : clientData)
+      {
+         clients.add(new Client(Integer.valueOf(f.substring(0, f.indexOf("."))),
+                                Paths.get(profilename, f),
+                                clientReady, clientRun, clientDone, window));
+      }
+
+      try
+      {
+         server = startMetrics(clients);
+         es = startClients(clients, clients.size());
+
+         clientReady.await();
+         out.println("READY");
+
+         line = in.readLine();
+         if (!"START".equals(line))
+         {
+            System.out.println("Run cancelled");
+            es.shutdownNow();
+            return;
+         }
+
+         clientRun.countDown();
+         wakeup(clientRun);
+         ses = startInterval(clients, interval);
+         clientDone.await();
+
+         for (Client cli : clients)
+         {
+            out.println("RESULT " + cli.getResult());
+         }
+         out.println("DONE");
+      }
+      finally
+      {
+         if (ses != null)
+            ses.shutdownNow();
+
+         if (server != null)
+            server.stop(0);
+
+         if (es != null)
+            es.shutdown();
+      }
+
+      System.out.println("Done");
+   }
+
+   /**
+    * Report the result of a run
+    * @param clock The clock time
+    * @param clients The clients
+    * @param window The measurement window
+    */
+   private static void report(long clock, List<Client> clients, Window window) throws Exception
+   {
+      int statements = 0;
+      Histogram histogram = new Histogram();
+      int iterations = 0;
+      for (Client cli : clients)
+      {
+         statements += cli.getStatements();
+         iterations += cli.getIterations();
+         histogram.add(cli.getHistogram());
+      }
+
+      System.out.println("Clock: " + clock + "ms");
+      System.out.println("  Number of clients: " + clients.size());
+      System.out.println("  Statements: " + statements);
+      if (loop > 1)
+         System.out.println("  Iterations: " + iterations);
+      System.out.println("  Latency: " + histogram.getMean() + "/" + histogram.getPercentile(50.0) + "/" +
+                         histogram.getPercentile(95.0) + "/" + histogram.getPercentile(99.0) + "/" +
+                         histogram.getMax() + "us");
+      if (batch)
+      {
+         int executions = 0;
+         for (Client cli : clients)
+         {
+            executions += cli.getExecutions();
+         }
+         System.out.println("  Executions: " + executions);
+      }
+      if (window.isActive())
+      {
+         if (window.isWarmup())
+            System.out.println("  Warm-up: " + window.getWarmupTime() + "ms/" + window.getWarmupStatements());
+
+         if (window.isComplete())
+         {
+            System.out.println("  Steady state: " + window.getMeasurementTime() + "ms/" +
+                               window.getMeasuredStatements() + " (" + window.getThroughput() + " statements/s)");
+         }
+         else
+         {
+            System.out.println("  Steady state: A client finished before all clients were active");
+         }
+
+         System.out.println("  Tail: " + window.getTailTime() + "ms/" + window.getTailStatements());
+      }
+      for (Client cli : clients)
+      {
+         StringBuilder sb = new StringBuilder();
+         sb = sb.append("  ");
+         sb = sb.append(cli.getId());
+         sb = sb.append(": ");
+         sb = sb.append(cli.getRunTime());
+         sb = sb.append("/");
+         sb = sb.append(cli.getConnectionTime());
+         sb = sb.append("/");
+         sb = sb.append(cli.getStatements());
+         if (batch)
+         {
+            sb = sb.append("/");
+            sb = sb.append(cli.getExecutions());
+         }
+         if (error)
+         {
+            sb = sb.append("/");
+            sb = sb.append(cli.getErrors());
+         }
+
+         System.out.println(sb.toString());
+      }
+
+      writeCSV(clock, clients, window);
+      writeLatency(histogram);
+   }
+
+   /**
+    * Configure the run from the configuration
+    * @return The interval in milliseconds between interval reports
+    */
+   private static long configure()
+   {
+      batchSize = Integer.valueOf(configuration.getProperty("batch_size", "100"));
+      readAhead = Integer.valueOf(configuration.getProperty("read_ahead", "256"));
+      if (readAhead <= 0)
+         throw new IllegalArgumentException("read_ahead must be positive: " + readAhead);
+
+      loop = Integer.valueOf(configuration.getProperty("loop", "1"));
+      duration = Long.valueOf(configuration.getProperty("duration", "0")) * 1000L;
+      keyOffset = Long.valueOf(configuration.getProperty("key_offset", "0"));
+      keyColumns = new TreeSet<>();
+      for (String column : configuration.getProperty("key_columns", "").split(","))
+      {
+         if (!"".equals(column.trim()))
+            keyColumns.add(column.trim().toLowerCase(Locale.US));
+      }
+      keyParameters.clear();
+
+      if (keyOffset != 0 && keyColumns.isEmpty())
+         System.out.println("key_offset requires key_columns - disabled");
+      onePhase = "1pc".equalsIgnoreCase(configuration.getProperty("xa_mode", "2pc"));
+      asyncEngine = "async".equalsIgnoreCase(configuration.getProperty("engine", "thread"));
+      engineThreads = Integer.valueOf(configuration.getProperty("engine_threads",
+                                                                Integer.toString(Runtime.getRuntime().availableProcessors())));
+
+      String mode = configuration.getProperty("resultset", resultSet ? "iterate" : "none");
+      if ("iterate".equalsIgnoreCase(mode))
+      {
+         resultSetMode = RESULTSET_ITERATE;
+      }
+      else if ("materialize".equalsIgnoreCase(mode))
+      {
+         resultSetMode = RESULTSET_MATERIALIZE;
+      }
+      else if ("cursor".equalsIgnoreCase(mode))
+      {
+         resultSetMode = RESULTSET_CURSOR;
+      }
+      else
+      {
+         resultSetMode = RESULTSET_NONE;
+      }
+
+      fetchSize = Integer.valueOf(configuration.getProperty("fetch_size",
+                                                            resultSetMode == RESULTSET_CURSOR ? "1000" : "0"));
+      xaRun = System.currentTimeMillis();
+
+      if (duration > 0)
+         loop = Integer.MAX_VALUE;
+
+      return Long.valueOf(configuration.getProperty("interval", loop > 1 ? "10" : "0")) * 1000L;
+   }
+
+   /**
+    * Start the clients
+    * @param clients The clients
+    * @param threads The number of threads for the thread-per-client engine
+    * @return The executor
+    */
+   private static ExecutorService startClients(List<Client> clients, int threads)
+   {
+      if (asyncEngine)
+      {
+         engine = new AsyncEngine(Math.max(1, engineThreads));
+
+         for (Client cli : clients)
+         {
+            engine.submit(new AsyncClient(cli, engine));
+         }
+
+         return engine.getLoop();
+      }
+
+      engine = null;
+
+      ExecutorService es = Executors.newFixedThreadPool(Math.max(1, threads));
+
+      for (Client cli : clients)
+      {
+         es.submit(cli);
+      }
+
+      return es;
+   }
+
+   /**
+    * Wake up the clients of the async engine that wait for the run, the measurement or a dependency
+    * @param latch The latch that was counted down
+    */
+   private static void wakeup(CountDownLatch latch)
+   {
+      AsyncEngine e = engine;
+
+      if (e != null)
+         e.wakeup(latch);
+   }
+
+   /**
+    * Start the interval reporting
+    * @param clients The clients
+    * @param interval The interval in milliseconds
+    * @return The executor, or <code>null</code> if there is no interval reporting
+    */
+   private static ScheduledExecutorService startInterval(List<Client> clients, long interval)
+   {
+      if (interval <= 0)
+         return null;
+
+      ScheduledExecutorService ses = Executors.newSingleThreadScheduledExecutor();
+      ses.scheduleAtFixedRate(new IntervalReporter(clients), interval, interval, TimeUnit.MILLISECONDS);
+
+      return ses;
+   }
+
+   /**
+    * Start the metrics endpoint
+    * @param clients The clients
+    * @return The server, or <code>null</code> if there is no metrics endpoint
+    */
+   private static HttpServer startMetrics(List<Client> clients) throws Exception
+   {
+      String port = configuration.getProperty("metrics_port");
+
+      if (port == null)
+         return null;
+
+      HttpServer server = HttpServer.create(new InetSocketAddress(Integer.valueOf(port)), 0);
+      server.createContext("/metrics", new MetricsHandler(clients));
+      server.start();
+
+      return server;
+   }
+
+   /**
+    * Write CSV file
+    * @param clock The clock time
+    * @param clients The clients
+    * @param window The measurement window
+    */
+   private static void writeCSV(long clock, List<Client> clients, Window window) throws Exception
+   {
+      List<String> l = new ArrayList<>();
+
+      l.add("Clock," + clock + "," + clock);
+
+      if (window.isActive())
+      {
+         if (window.isWarmup())
+            l.add("Warmup," + window.getWarmupTime() + "," + window.getWarmupStatements());
+
+         if (window.isComplete())
+            l.add("Measurement," + window.getMeasurementTime() + "," + window.getMeasuredStatements());
+
+         l.add("Tail," + window.getTailTime() + "," + window.getTailStatements());
+      }
+
+      for (Client cli : clients)
+      {
+         StringBuilder sb = new StringBuilder();
+         sb = sb.append(cli.getId());
+         sb = sb.append(",");
+         sb = sb.append(cli.getRunTime());
+         sb = sb.append(",");
+         sb = sb.append(cli.getConnectionTime());
+         sb = sb.append(",");
+         sb = sb.append(cli.getStatements());
+         if (batch)
+         {
+            sb = sb.append(",");
+            sb = sb.append(cli.getExecutions());
+         }
+         if (error)
+         {
+            sb = sb.append(",");
+            sb = sb.append(cli.getErrors());
+         }
+         l.add(sb.toString());
+      }
+
+      writeFile(Paths.get(profilename, "result.csv"), l);
+   }
+   
+   /**
+    * Write the latency histogram
+    * @param histogram The histogram
+    */
+   private static void writeLatency(Histogram histogram) throws Exception
+   {
+      List<String> l = new ArrayList<>();
+
+      for (int i = 0; i < Histogram.BUCKETS; i++)
+      {
+         long count = histogram.getCount(i);
+         if (count > 0)
+            l.add(Histogram.highest(i) + "," + count);
+      }
+
+      writeFile(Paths.get(profilename, "latency.csv"), l);
+   }
+
+   /**
+    * Compare runs against a baseline run, and write compare.html
+    * @param runs The runs; the first is the baseline
+    * @return True if a regression was found
+    */
+   private static boolean compare(String[] runs) throws Exception
+   {
+      double threshold = Double.valueOf(configuration.getProperty("compare_threshold", "5"));
+      double alpha = Double.valueOf(configuration.getProperty("compare_alpha", "0.05"));
+      double[] percentiles = new double[] {50.0, 95.0, 99.0};
+      boolean regression = false;
+
+      List<Comparison> l = new ArrayList<>(runs.length);
+      for (String run : runs)
+      {
+         l.add(new Comparison(run));
+      }
+
+      Comparison baseline = l.get(0);
+      List<String> html = new ArrayList<>();
+
+      html.add("<!DOCTYPE html PUBLIC \"-//W3C//DTD XHTML 1.0 Transitional//EN\"");
+      html.add("                      \"http://www.w3.org/TR/xhtml1/DTD/xhtml1-transitional.dtd\">");
+      html.add("");
+      html.add("<html xmlns=\"http://www.w3.org/1999/xhtml\" xml:lang=\"en\">");
+      html.add("<head>");
+      html.add("  <title>Replay comparison</title>");
+      html.add("  <meta http-equiv=\"Content-Type\" content=\"text/html; charset=UTF-8\"/>");
+      html.add("</head>");
+      html.add("<body>");
+      html.add("<h1>Replay comparison</h1>");
+      html.add("");
+      html.add("Baseline \'" + baseline.getName() + "\' on " + new java.util.Date());
+      html.add("<p>");
+      html.add("Regression: more than " + threshold + "% worse, with p &lt; " + alpha);
+      html.add("<p>");
+
+      html.add("<table border=\"1\">");
+      html.add("<tr>");
+      html.add("<th>Run</th>");
+      html.add("<th>Metric</th>");
+      html.add("<th>Baseline</th>");
+      html.add("<th>Run</th>");
+      html.add("<th>Change</th>");
+      html.add("<th>p</th>");
+      html.add("<th>Result</th>");
+      html.add("</tr>");
+
+      for (int i = 1; i < l.size(); i++)
+      {
+         Comparison run = l.get(i);
+         List<String[]> rows = new ArrayList<>();
+
+         double p = Statistics.welch(baseline.getClientThroughput(), run.getClientThroughput());
+         double change = getChange(baseline.getThroughput(), run.getThroughput());
+         rows.add(new String[] {"Throughput (statements/s)", String.format("%.1f", baseline.getThroughput()),
+                                String.format("%.1f", run.getThroughput()), String.format("%+.2f%%", change),
+                                Double.isNaN(p) ? "-" : String.format("%.4f", p),
+                                isRegression(-change, p, threshold, alpha) ? "Regression" : ""});
+
+         if (baseline.getHistogram() != null && run.getHistogram() != null)
+         {
+            p = Statistics.mannWhitney(baseline.getHistogram(), run.getHistogram());
+
+            for (double percentile : percentiles)
+            {
+               long b = baseline.getHistogram().getPercentile(percentile);
+               long r = run.getHistogram().getPercentile(percentile);
+               change = getChange(b, r);
+               rows.add(new String[] {"Latency p" + (int)percentile + " (us)", Long.toString(b), Long.toString(r),
+                                      String.format("%+.2f%%", change),
+                                      Double.isNaN(p) ? "-" : String.format("%.4f", p),
+                                      isRegression(change, p, threshold, alpha) ? "Regression" : ""});
+            }
+         }
+
+         System.out.println(run.getName() + " vs " + baseline.getName() + ":");
+
+         for (String[] row : rows)
+         {
+            boolean r = "Regression".equals(row[5]);
+            regression |= r;
+
+            System.out.println("  " + row[0] + ": " + row[1] + " -> " + row[2] + " (" + row[3] + ", p=" + row[4] + ")" +
+                               (r ? " REGRESSION" : ""));
+
+            html.add("<tr>");
+            html.add("<td>" + run.getName() + "</td>");
+            html.add("<td>" + row[0] + "</td>");
+            html.add("<td>" + row[1] + "</td>");
+            html.add("<td>" + row[2] + "</td>");
+            html.add("<td>" + row[3] + "</td>");
+            html.add("<td>" + row[4] + "</td>");
+            if (r)
+            {
+               html.add("<td style=\"color:red\">" + row[5] + "</td>");
+            }
+            else
+            {
+               html.add("<td>" + row[5] + "</td>");
+            }
+            html.add("</tr>");
+         }
+      }
+
+      html.add("</table>");
+      html.add("<p>");
+      html.add("</body>");
+      html.add("</html>");
+
+      writeFile(Paths.get("compare.html"), html);
+
+      return regression;
+   }
+
+   /**
+    * Get the change in percent
+    * @param baseline The baseline value
+    * @param value The value
+    * @return The change
+    */
+   private static double getChange(double baseline, double value)
+   {
+      if (baseline == 0.0)
+         return 0.0;
+
+      return ((value - baseline) / baseline) * 100.0;
+   }
+
+   /**
+    * Is a change a regression
+    * @param worse How much worse in percent
+    * @param p The p-value, or NaN if there are too few samples for the test
+    * @param threshold The threshold in percent
+    * @param alpha The significance level
+    * @return The value
+    */
+   private static boolean isRegression(double worse, double p, double threshold, double alpha)
+   {
+      return worse > threshold && (Double.isNaN(p) || p < alpha);
+   }
+
+   /**
+    * Read the configuration (replay.properties)
+    * @param config The configuration
+    */
+   private static void readConfiguration(String config) throws Exception
+   {
+      File f = new File(config);
+      configuration = new Properties();
+
+      if (f.exists())
+      {
+         FileInputStream fis = null;
+         try
+         {
+            fis = new FileInputStream(f);
+            configuration.load(fis);
+         }
+         finally
+         {
+            if (fis != null)
+            {
+               try
+               {
+                  fis.close();
+               }
+               catch (Exception e)
+               {
+                  // Nothing todo
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Get a XAConnection
+    * @return The connection
+    */
+   private static synchronized XAConnection getXAConnection() throws Exception
+   {
+      if (xaDataSource == null)
+      {
+         String host = configuration.getProperty("host", "localhost");
+         int port = Integer.valueOf(configuration.getProperty("port", "5432"));
+         String database = configuration.getProperty("database");
+
+         if (!ngDriver)
+         {
+            Class<?> clz = Class.forName("org.postgresql.xa.PGXADataSource");
+            Object obj = clz.newInstance();
+
+            Method mHost = clz.getMethod("setServerName", String.class);
+            mHost.invoke(obj, host);
+
+            Method mPort = clz.getMethod("setPortNumber", int.class);
+            mPort.invoke(obj, port);
+
+            Method mDatabase = clz.getMethod("setDatabaseName", String.class);
+            mDatabase.invoke(obj, database);
+
+            xaDataSource = (XADataSource)obj;
+         }
+         else
+         {
+            Class<?> clz = Class.forName("com.impossibl.postgres.jdbc.xa.PGXADataSource");
+            Object obj = clz.newInstance();
+
+            Method mHost = clz.getMethod("setHost", String.class);
+            mHost.invoke(obj, host);
+
+            Method mPort = clz.getMethod("setPort", int.class);
+            mPort.invoke(obj, port);
+
+            Method mDatabase = clz.getMethod("setDatabase", String.class);
+            mDatabase.invoke(obj, database);
+
+            xaDataSource = (XADataSource)obj;
+         }
+      }
+
+      return xaDataSource.getXAConnection(configuration.getProperty("user"),
+                                          configuration.getProperty("password"));
+   }
+
+   /**
+    * Consume a ResultSet according to the ResultSet mode
+    * @param rs The result set
+    */
+   private static void consume(ResultSet rs) throws Exception
+   {
+      try
+      {
+         if (resultSetMode == RESULTSET_ITERATE)
+         {
+            while (rs.next())
+            {
+               // Just advance
+            }
+         }
+         else
+         {
+            int columns = rs.getMetaData().getColumnCount();
+
+            while (rs.next())
+            {
+               for (int i = 1; i <= columns; i++)
+               {
+                  rs.getObject(i);
+               }
+            }
+         }
+      }
+      finally
+      {
+         rs.close();
+      }
+   }
+
+   /**
+    * Get the parameters of a statement that are compared to, or assigned to, a key column
+    * @param query The query
+    * @param num The number of parameters
+    * @return The key parameters
+    */
+   private static boolean[] getKeyParameters(String query, int num)
+   {
+      boolean[] result = keyParameters.get(query);
+
+      if (result == null)
+      {
+         result = new boolean[num];
+         Table table = null;
+         Map<Integer, String> columns = new TreeMap<>();
+
+         try
+         {
+            net.sf.jsqlparser.statement.Statement s = CCJSqlParserUtil.parse(query);
+
+            if (s instanceof Insert)
+            {
+               Insert insert = (Insert)s;
+               table = insert.getTable();
+
+               if (insert.getColumns() != null && insert.getItemsList() instanceof ExpressionList)
+               {
+                  List<Expression> expressions = ((ExpressionList)insert.getItemsList()).getExpressions();
+
+                  for (int i = 0; i < insert.getColumns().size() && i < expressions.size(); i++)
+                  {
+                     getParameterColumns(expressions.get(i), insert.getColumns().get(i), columns);
+                  }
+               }
+            }
+            else if (s instanceof Update)
+            {
+               Update update = (Update)s;
+               table = update.getTables().get(0);
+
+               for (int i = 0; i < update.getColumns().size() && i < update.getExpressions().size(); i++)
+               {
+                  getParameterColumns(update.getExpressions().get(i), update.getColumns().get(i), columns);
+               }
+
+               getParameterColumns(update.getWhere(), null, columns);
+            }
+            else if (s instanceof Delete)
+            {
+               Delete delete = (Delete)s;
+               table = delete.getTable();
+               getParameterColumns(delete.getWhere(), null, columns);
+            }
+         }
+         catch (Exception e)
+         {
+            // Not a statement with key columns
+         }
+
+         for (Map.Entry<Integer, String> entry : columns.entrySet())
+         {
+            int index = entry.getKey().intValue() - 1;
+            String column = entry.getValue().toLowerCase(Locale.US);
+
+            if (index >= 0 && index < num &&
+                (keyColumns.contains(column) ||
+                 keyColumns.contains(table.getName().toLowerCase(Locale.US) + "." + column) ||
+                 keyColumns.contains(getTableName(table).toLowerCase(Locale.US) + "." + column)))
+               result[index] = true;
+         }
+
+         keyParameters.put(query, result);
+      }
+
+      return result;
+   }
+
+   /**
+    * Get the columns of the parameters of an expression; either a value assigned to
+    * a column, or the column = value conditions joined by AND
+    * @param expression The expression
+    * @param column The column assigned to, or <code>null</code>
+    * @param columns The columns of the parameters
+    */
+   private static void getParameterColumns(Expression expression, Column column, Map<Integer, String> columns)
+   {
+      if (expression instanceof JdbcParameter)
+      {
+         if (column != null && ((JdbcParameter)expression).getIndex() != null)
+            columns.put(((JdbcParameter)expression).getIndex(), column.getColumnName());
+      }
+      else if (expression instanceof AndExpression)
+      {
+         getParameterColumns(((AndExpression)expression).getLeftExpression(), null, columns);
+         getParameterColumns(((AndExpression)expression).getRightExpression(), null, columns);
+      }
+      else if (expression instanceof Parenthesis)
+      {
+         getParameterColumns(((Parenthesis)expression).getExpression(), column, columns);
+      }
+      else if (expression instanceof EqualsTo)
+      {
+         EqualsTo equalsTo = (EqualsTo)expression;
+
+         if (equalsTo.getLeftExpression() instanceof Column)
+         {
+            getParameterColumns(equalsTo.getRightExpression(), (Column)equalsTo.getLeftExpression(), columns);
+         }
+         else if (equalsTo.getRightExpression() instanceof Column)
+         {
+            getParameterColumns(equalsTo.getLeftExpression(), (Column)equalsTo.getRightExpression(), columns);
+         }
+      }
+   }
+
+   /**
+    * Set the parameters of a prepared statement
+    * @param ps The prepared statement
+    * @param de The data entry
+    * @param offset The offset added to the parameters of the key columns
+    */
+   private static void setParameters(PreparedStatement ps, DataEntry de, long offset) throws Exception
+   {
+      List<Integer> types = de.getTypes();
+      List<String> parameters = de.getParameters();
+
+      if (types != null)
+      {
+         boolean[] keys = null;
+
+         if (offset != 0 && !keyColumns.isEmpty())
+            keys = getKeyParameters(de.getStatement(), types.size());
+
+         for (int i = 0; i < types.size(); i++)
+         {
+            int type = types.get(i);
+            String value = parameters.get(i);
+
+            if ("null".equals(value))
+            {
+               ps.setObject(i + 1, null);
+            }
+            else
+            {
+               switch (type)
+               {
+                  case Types.BINARY:
+                     ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
+                     break;
+                  case Types.BIT:
+                     ps.setBoolean(i + 1, Boolean.valueOf(value));
+                     break;
+                  case Types.BIGINT:
+                     if (keys != null && keys[i])
+                     {
+                        ps.setLong(i + 1, Math.addExact(Long.valueOf(value), offset));
+                     }
+                     else
+                     {
+                        ps.setLong(i + 1, Long.valueOf(value));
+                     }
+                     break;
+                  case Types.BOOLEAN:
+                     ps.setBoolean(i + 1, Boolean.valueOf(value));
+                     break;
+                  case Types.CHAR:
+                     ps.setString(i + 1, value);
+                     break;
+                  case Types.DATE:
+                     ps.setDate(i + 1, java.sql.Date.valueOf(value));
+                     break;
+                  case Types.DECIMAL:
+                     ps.setDouble(i + 1, Double.valueOf(value));
+                     break;
+                  case Types.DOUBLE:
+                     ps.setDouble(i + 1, Double.valueOf(value));
+                     break;
+                  case Types.FLOAT:
+                     ps.setFloat(i + 1, Float.valueOf(value));
+                     break;
+                  case Types.INTEGER:
+                     if (keys != null && keys[i])
+                     {
+                        ps.setLong(i + 1, Math.addExact(Long.valueOf(value), offset));
+                     }
+                     else
+                     {
+                        ps.setInt(i + 1, Integer.valueOf(value));
+                     }
+                     break;
+                  case Types.LONGVARBINARY:
+                     ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
+                     break;
+                  case Types.LONGVARCHAR:
+                     ps.setString(i + 1, value);
+                     break;
+                  case Types.NUMERIC:
+                     ps.setDouble(i + 1, Double.valueOf(value));
+                     break;
+                  case Types.REAL:
+                     ps.setFloat(i + 1, Float.valueOf(value));
+                     break;
+                  case Types.SMALLINT:
+                     ps.setShort(i + 1, Short.valueOf(value));
+                     break;
+                  case Types.TIME:
+                  case Types.TIME_WITH_TIMEZONE:
+                     ps.setTime(i + 1, java.sql.Time.valueOf(value));
+                     break;
+                  case Types.TIMESTAMP:
+                  case Types.TIMESTAMP_WITH_TIMEZONE:
+                     ps.setTimestamp(i + 1, java.sql.Timestamp.valueOf(value));
+                     break;
+                  case Types.TINYINT:
+                     ps.setShort(i + 1, Short.valueOf(value));
+                     break;
+                  case Types.VARBINARY:
+                     ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
+                     break;
+                  case Types.VARCHAR:
+                     ps.setString(i + 1, value);
+                     break;
+                  case Types.OTHER:
+                     boolean isNumber = true;
+
+                     for (int ch = 0; isNumber && ch < value.length(); ch++)
+                     {
+                        if (!Character.isDigit(value.charAt(ch)))
+                           isNumber = false;
+                     }
+
+                     if (isNumber)
+                     {
+                        Long number = Long.parseLong(value);
+                        if (number.longValue() < Short.MAX_VALUE)
+                        {
+                           ps.setShort(i + 1, number.shortValue());
+                        }
+                        else if (number.longValue() < Integer.MAX_VALUE)
+                        {
+                           ps.setInt(i + 1, number.intValue());
+                        }
+                        else
+                        {
+                           ps.setLong(i + 1, number.longValue());
+                        }
+                     }
+                     else
+                     {
+                        try
+                        {
+                           UUID uuid = UUID.fromString(value);
+                           ps.setObject(i + 1, uuid);
+                        }
+                        catch (Exception e)
+                        {
+                           ps.setObject(i + 1, value);
+                        }
+                     }
+
+                     break;
+                  default:
+                     System.out.println("Unsupported value: " + type);
+                     break;
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Roll back the prepared transactions left behind by an earlier run
+    */
+   private static void recover() throws Exception
+   {
+      XAConnection xc = null;
+      int count = 0;
+      try
+      {
+         xc = getXAConnection();
+         XAResource xr = xc.getXAResource();
+
+         Xid[] xids = xr.recover(XAResource.TMSTARTRSCAN | XAResource.TMENDRSCAN);
+         if (xids != null)
+         {
+            for (Xid x : xids)
+            {
+               if (x.getFormatId() == XidImpl.FORMAT_ID)
+               {
+                  xr.rollback(x);
+                  count++;
+               }
+            }
+         }
+      }
+      finally
+      {
+         if (xc != null)
+         {
+            try
+            {
+               xc.close();
+            }
+            catch (SQLException se)
+            {
+               // Ignore
+            }
+         }
+      }
+
+      if (count > 0)
+         System.out.println("Rolled back " + count + " prepared transactions");
+   }
+
+   /**
+    * ANALYZE
+    */
+   private static void analyze() throws Exception
+   {
+      Connection c = null;
+      Statement stmt = null;
+      try
+      {
+         String url = null;
+         if (!ngDriver)
+         {
+            url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") + ":" +
+               configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+         }
+         else
+         {
+            url = "jdbc:pgsql://" + configuration.getProperty("host", "localhost") + ":" +
+               configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+         }
+
+         c = DriverManager.getConnection(url, configuration);
+
+         stmt = c.createStatement();
+         stmt.execute("ANALYZE");
+      }
+      finally
+      {
+         if (stmt != null)
+         {
+            try
+            {
+               stmt.close();
+            }
+            catch (SQLException se)
+            {
+               // Ignore
+            }
+         }
+         if (c != null)
+         {
+            try
+            {
+               c.close();
+            }
+            catch (SQLException se)
+            {
+               // Ignore
+            }
+         }
+      }
+   }
+
+   /**
+    * Usage
+    */
+   private static void usage()
+   {
+      System.out.println("Usage: Replay -i <log_file>                      (init)");
+      System.out.println("       Replay [-r] [-s] [-x] [-e] [-w] [-b] [-o] <profile> (run)");
+      System.out.println("       Replay -t <clients> [round-robin|hash|time] <profile> (transform)");
+      System.out.println("       Replay -d <profile>                       (dependencies)");
+      System.out.println("       Replay -c <baseline> <run> [<run>...]     (compare)");
+      System.out.println("       Replay -a <port>                          (agent)");
+   }
+
+   /**
+    * Set a flag of the run
+    * @param flag The flag
+    */
+   private static void setFlag(String flag)
+   {
+      if ("-r".equals(flag))
+      {
+         resultSet = true;
+      }
+      else if ("-s".equals(flag))
+      {
+         parallelExecution = false;
+      }
+      else if ("-x".equals(flag))
+      {
+         xa = true;
+      }
+      else if ("-e".equals(flag))
+      {
+         error = true;
+      }
+      else if ("-w".equals(flag))
+      {
+         wait = true;
+      }
+      else if ("-b".equals(flag))
+      {
+         batch = true;
+      }
+      else if ("-o".equals(flag))
+      {
+         ordered = true;
+      }
+   }
+
+   /**
+    * Main
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      Connection c = null;
+      try
+      {
+         if (args.length == 0)
+         {
+            usage();
+            return;
+         }
+
+         String config = DEFAULT_CONFIGURATION;
+         readConfiguration(config);
+
+         if ("-c".equals(args[0]))
+         {
+            if (args.length < 3)
+            {
+               usage();
+               return;
+            }
+
+            if (compare(Arrays.copyOfRange(args, 1, args.length)))
+               System.exit(1);
+
+            return;
+         }
+
+         String url = null;
+         
+         if (configuration.getProperty("url") == null)
+         {
+            String database = configuration.getProperty("database");
+            if (database == null)
+            {
+               System.out.println("database not defined.");
+               return;
+            }
+
+            url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") +
+               ":" + configuration.getProperty("port", "5432") + "/" + database;
+         }
+         else
+         {
+            url = configuration.getProperty("url");
+
+            int doubleSlash = url.indexOf("//");
+            int slash = url.indexOf("/", doubleSlash + 2);
+            int col = url.indexOf(":", doubleSlash);
+            String host = url.substring(doubleSlash + 2, col != -1 ? col : slash);
+            String port = "5432";
+            String database = url.substring(slash + 1);
+
+            if (col != -1)
+               port = url.substring(col + 1, slash);
+
+            if (url.indexOf(":pgsql:") != -1)
+               ngDriver = true;
+
+            configuration.setProperty("host", host);
+            configuration.setProperty("port", port);
+            configuration.setProperty("database", database);
+         }
+
+         String user = configuration.getProperty("user");
+         if (user == null)
+         {
+            System.out.println("user not defined.");
+            return;
+         }
+
+         String password = configuration.getProperty("password");
+         if (password == null)
+         {
+            System.out.println("password not defined.");
+            return;
+         }
+
+         if ("-a".equals(args[0]))
+         {
+            if (args.length == 1)
+            {
+               usage();
+               return;
+            }
+
+            executeAgent(Integer.valueOf(args[1]));
+         }
+         else if ("-d".equals(args[0]))
+         {
+            if (args.length == 1)
+            {
+               usage();
+               return;
+            }
+
+            profilename = args[1];
+
+            c = DriverManager.getConnection(url, configuration);
+
+            createDependencies(c);
+         }
+         else if ("-t".equals(args[0]))
+         {
+            if (args.length < 3)
+            {
+               usage();
+               return;
+            }
+
+            profilename = args[args.length - 1];
+
+            int clients = Integer.valueOf(args[1]);
+            String mode = args.length > 3 ? args[2] : "round-robin";
+
+            if (clients <= 0)
+            {
+               System.out.println("The number of clients must be positive: " + clients);
+               System.exit(1);
+            }
+
+            if (!"round-robin".equals(mode) && !"hash".equals(mode) && !"time".equals(mode))
+            {
+               System.out.println("Unknown mode: " + mode + " (round-robin, hash or time)");
+               System.exit(1);
+            }
+
+            transform(clients, mode);
+         }
+         else if ("-i".equals(args[0]))
+         {
+            if (args.length == 1)
+            {
+               usage();
+               return;
+            }
+
+            filename = args[1];
+
+            profilename = filename.substring(0, filename.lastIndexOf("."));
+            
+            c = DriverManager.getConnection(url, configuration);
+
+            File directory = new File(profilename);
+            if (directory.exists())
+            {
+               Files.walk(Paths.get(profilename))
+                  .sorted(Comparator.reverseOrder())
+                  .map(Path::toFile)
+                  .forEach(File::delete);
+            }
+            directory.mkdirs();
+
+            processLog();
+            createInteraction(c);
+         }
+         else
+         {
+            for (int parameter = 0; parameter < args.length - 1; parameter++)
+            {
+               setFlag(args[parameter]);
+            }
+
+            profilename = args[args.length - 1];
+
+            executeClients();
+         }
+      }
+      catch (Exception e)
+      {
+         e.printStackTrace();
+      }
+      finally
+      {
+         if (c != null)
+         {
+            try
+            {
+               c.close();
+            }
+            catch (Exception e)
+            {
+               // Nothing to do
+            }
+         }
+      }
+   }
+
+   /**
+    * Client
+    */
+   static class Client implements Runnable
+   {
+      /** Step: Continue with the next statement */
+      static final int STEP_CONTINUE = 0;
+
+      /** Step: Waiting for the run, the measurement or a dependency */
+      static final int STEP_WAIT = 1;
+
+      /** Step: Done */
+      static final int STEP_DONE = 2;
+
+      /** State: Connect */
+      private static final int STATE_CONNECT = 0;
+
+      /** State: Ready */
+      private static final int STATE_READY = 1;
+
+      /** State: Run */
+      private static final int STATE_RUN = 2;
+
+      /** Identifier */
+      private int identifier;
+
+      /** Interaction file */
+      private Path file;
+
+      /** Interaction data */
+      private InteractionReader interaction;
+
+      /** Client ready */
+      private CountDownLatch clientReady;
+
+      /** Client run */
+      private CountDownLatch clientRun;
+
+      /** Client done */
+      private CountDownLatch clientDone;
+
+      /** Measurement window */
+      private Window window;
+
+      /** Success */
+      private boolean success;
+
+      /** Before connection */
+      private long beforeConnection;
+
+      /** After connection */
+      private long afterConnection;
+
+      /** Before run */
+      private long beforeRun;
+
+      /** After run */
+      private long afterRun;
+
+      /** Errors */
+      private int errors;
+
+      /** Executions */
+      private int executions;
+
+      /** Statements */
+      private int statements;
+
+      /** Iterations */
+      private int iterations;
+
+      /** XA transactions */
+      private long transactions;
+
+      /** Latency */
+      private Histogram histogram;
+
+      /** State */
+      private int state;
+
+      /** XA connection */
+      private XAConnection xc;
+
+      /** XA transaction */
+      private Xid xid;
+
+      /** Connection */
+      private Connection c;
+
+      /** Current statement */
+      private DataEntry de;
+
+      /** Warming up */
+      private boolean warming;
+
+      /** Waiting for the measurement */
+      private boolean parked;
+
+      /** Running */
+      private boolean running;
+
+      /** In a unit */
+      private boolean unit;
+
+      /** Units */
+      private long units;
+
+      /** Statements counted for the measurement */
+      private int counted;
+
+      /**
+       * Constructor
+       */
+      Client(int identifier, Path file,
+             CountDownLatch clientReady, CountDownLatch clientRun, CountDownLatch clientDone,
+             Window window)
+      {
+         this.identifier = identifier;
+         this.file = file;
+         this.interaction = null;
+         this.clientReady = clientReady;
+         this.clientRun = clientRun;
+         this.clientDone = clientDone;
+         this.window = window;
+         this.success = false;
+         this.beforeConnection = 0;
+         this.afterConnection = 0;
+         this.beforeRun = 0;
+         this.afterRun = 0;
+         this.errors = 0;
+         this.executions = 0;
+         this.statements = 0;
+         this.iterations = 0;
+         this.transactions = 0;
+         this.histogram = new Histogram();
+         this.state = STATE_CONNECT;
+         this.xc = null;
+         this.xid = null;
+         this.c = null;
+         this.de = null;
+         this.warming = window != null && window.isActive() && window.isWarmup();
+         this.parked = false;
+         this.running = false;
+         this.unit = false;
+         this.units = 0;
+         this.counted = 0;
+      }
+
+      /**
+       * Get id
+       * @return The value
+       */
+      int getId()
+      {
+         return identifier;
+      }
+
+      /**
+       * Is success
+       * @return The value
+       */
+      boolean isSuccess()
+      {
+         return success;
+      }
+
+      /**
+       * Is the client inside a transaction
+       * @return The value
+       */
+      boolean isInTransaction()
+      {
+         try
+         {
+            return c != null && !c.isClosed() && !c.getAutoCommit();
+         }
+         catch (SQLException se)
+         {
+            return false;
+         }
+      }
+
+      /**
+       * Get the connection time
+       * @return The value
+       */
+      long getConnectionTime()
+      {
+         return afterConnection - beforeConnection;
+      }
+
+      /**
+       * Get the run time
+       * @return The value
+       */
+      long getRunTime()
+      {
+         return afterRun - beforeRun;
+      }
+      
+      /**
+       * Get number of statements
+       * @return The value
+       */
+      int getStatements()
+      {
+         return statements;
+      }
+
+      /**
+       * Get errors
+       * @return The value
+       */
+      int getErrors()
+      {
+         return errors;
+      }
+
+      /**
+       * Get the result of the client
+       * @return The value
+       */
+      String getResult()
+      {
+         return identifier + "," + getRunTime() + "," + getConnectionTime() + "," + statements + "," +
+            executions + "," + errors + "," + iterations + "," + success + "," + histogram.getData();
+      }
+
+      /**
+       * Create a client from the result of a client run by an agent
+       * @param s The result
+       * @return The client
+       */
+      static Client fromResult(String s)
+      {
+         String[] values = s.split(",", 9);
+         Client cli = new Client(Integer.valueOf(values[0]), null, null, null, null, null);
+
+         cli.afterRun = Long.valueOf(values[1]);
+         cli.afterConnection = Long.valueOf(values[2]);
+         cli.statements = Integer.valueOf(values[3]);
+         cli.executions = Integer.valueOf(values[4]);
+         cli.errors = Integer.valueOf(values[5]);
+         cli.iterations = Integer.valueOf(values[6]);
+         cli.success = Boolean.valueOf(values[7]);
+         cli.histogram = Histogram.fromData(values[8]);
+
+         return cli;
+      }
+
+      /**
+       * Get the number of iterations
+       * @return The value
+       */
+      int getIterations()
+      {
+         return iterations;
+      }
+
+      /**
+       * Get the latency histogram
+       * @return The value
+       */
+      Histogram getHistogram()
+      {
+         return histogram;
+      }
+
+      /**
+       * Get the number of executions sent to the driver
+       * @return The value
+       */
+      int getExecutions()
+      {
+         return executions;
+      }
+
+      /**
+       * Execute a run of compatible INSERT/UPDATE/DELETE statements as a single batch.
+       * Prepared statements are grouped when they share the same SQL, simple statements
+       * are pipelined through one Statement
+       * @param c The connection
+       * @param first The first statement
+       */
+      private void executeBatch(Connection c, DataEntry first) throws Exception
+      {
+         List<DataEntry> entries = new ArrayList<>();
+         int iteration = interaction.getIteration();
+         entries.add(first);
+
+         while (entries.size() < batchSize)
+         {
+            DataEntry next = interaction.peek();
+
+            if (next == null || iteration != interaction.getIteration() ||
+                !next.isBatchable() || next.isPrepared() != first.isPrepared() ||
+                (first.isPrepared() && !first.getStatement().equals(next.getStatement())))
+               break;
+
+            entries.add(interaction.next());
+         }
+
+         int size = entries.size();
+         statements += size - 1;
+         metrics.statements(size - 1);
+
+         Statement stmt = null;
+         try
+         {
+            if (first.isPrepared())
+            {
+               PreparedStatement ps = c.prepareStatement(first.getStatement());
+               long offset = Math.multiplyExact((long)iteration, keyOffset);
+               stmt = ps;
+
+               for (DataEntry de : entries)
+               {
+                  setParameters(ps, de, offset);
+                  ps.addBatch();
+               }
+            }
+            else
+            {
+               stmt = c.createStatement();
+
+               for (DataEntry de : entries)
+               {
+                  stmt.addBatch(de.getStatement());
+               }
+            }
+
+            executions++;
+            stmt.executeBatch();
+         }
+         catch (BatchUpdateException bue)
+         {
+            if (error)
+            {
+               int[] counts = bue.getUpdateCounts();
+               int failed = size - (counts != null ? counts.length : 0);
+
+               // An autocommit batch runs as one implicit transaction, so nothing of it remains
+               if (c.getAutoCommit())
+               {
+                  failed = size;
+               }
+               else if (counts != null)
+               {
+                  for (int count : counts)
+                  {
+                     if (count == Statement.EXECUTE_FAILED)
+                        failed++;
+                  }
+               }
+
+               errors += failed;
+               metrics.errors(failed);
+            }
+            else
+            {
+               throw bue;
+            }
+         }
+         catch (Exception sqle)
+         {
+            if (error)
+            {
+               errors += size;
+               metrics.errors(size);
+            }
+            else
+            {
+               throw sqle;
+            }
+         }
+         finally
+         {
+            if (stmt != null)
+               stmt.close();
+         }
+      }
+
+      /**
+       * Do the interaction
+       */
+      public void run()
+      {
+         int result = step();
+
+         while (result != STEP_DONE)
+         {
+            if (result == STEP_WAIT)
+            {
+               try
+               {
+                  await();
+               }
+               catch (Exception e)
+               {
+                  fail(e);
+                  return;
+               }
+            }
+
+            result = step();
+         }
+      }
+
+      /**
+       * Execute the next step of the interaction without blocking on other clients
+       * @return The result of the step
+       */
+      int step()
+      {
+         try
+         {
+            if (state == STATE_CONNECT)
+            {
+               beforeConnection = System.currentTimeMillis();
+               try
+               {
+                  connect();
+               }
+               finally
+               {
+                  clientReady.countDown();
+               }
+               state = STATE_READY;
+            }
+
+            if (state == STATE_READY)
+            {
+               if (clientRun.getCount() > 0)
+                  return STEP_WAIT;
+
+               beforeRun = System.currentTimeMillis();
+               metrics.started();
+               running = true;
+               state = STATE_RUN;
+            }
+
+            if (parked)
+            {
+               if (!window.isMeasuring())
+                  return STEP_WAIT;
+
+               parked = false;
+            }
+
+            if (de == null)
+            {
+               de = interaction.next();
+
+               if (de == null)
+               {
+                  finish();
+                  return STEP_DONE;
+               }
+            }
+
+            if (dependencies != null && !unit)
+            {
+               // A dependency may only run once all clients are warm, so the warm-up isn't ordered
+               if (!warming && !dependencies.isReady(identifier, units))
+                  return STEP_WAIT;
+
+               unit = true;
+            }
+
+            long before = System.nanoTime();
+            execute();
+
+            if (!"BEGIN".equals(de.getStatement()))
+               histogram.record((System.nanoTime() - before) / 1000L);
+
+            if (dependencies != null && c.getAutoCommit())
+            {
+               dependencies.done(identifier, units);
+               units++;
+               unit = false;
+            }
+
+            if (warming)
+            {
+               if (c.getAutoCommit() && window.isWarm(statements, System.currentTimeMillis() - beforeRun))
+               {
+                  warming = false;
+                  counted = statements;
+                  window.warm(statements);
+                  parked = true;
+               }
+            }
+            else
+            {
+               window.measured(statements - counted);
+               counted = statements;
+            }
+
+            de = null;
+
+            if (duration > 0 && c.getAutoCommit() && System.currentTimeMillis() - beforeRun >= duration)
+            {
+               finish();
+               return STEP_DONE;
+            }
+
+            return STEP_CONTINUE;
+         }
+         catch (Exception e)
+         {
+            fail(e);
+            return STEP_DONE;
+         }
+      }
+
+      /**
+       * Get what the client waits for after a step returned STEP_WAIT
+       * @return The latch, or <code>null</code> if the client can continue
+       */
+      CountDownLatch getBlocker()
+      {
+         if (state == STATE_READY)
+            return clientRun;
+
+         if (parked)
+            return window.getMeasurement();
+
+         if (dependencies != null)
+            return dependencies.getPending(identifier, units);
+
+         return null;
+      }
+
+      /**
+       * Block until the client can continue
+       */
+      private void await() throws InterruptedException
+      {
+         if (state == STATE_READY)
+         {
+            clientRun.await();
+         }
+         else if (parked)
+         {
+            window.awaitMeasurement();
+         }
+         else if (dependencies != null)
+         {
+            dependencies.await(identifier, units);
+         }
+      }
+
+      /**
+       * Connect
+       */
+      private void connect() throws Exception
+      {
+         if (xa)
+         {
+            xc = getXAConnection();
+            c = xc.getConnection();
+         }
+         else
+         {
+            String url = null;
+            if (!ngDriver)
+            {
+               url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") + ":" +
+                  configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+            }
+            else
+            {
+               url = "jdbc:pgsql://" + configuration.getProperty("host", "localhost") + ":" +
+                  configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+            }
+
+            c = DriverManager.getConnection(url, configuration);
+         }
+
+         interaction = new InteractionReader(file, readAhead, loop);
+      }
+
+      /**
+       * Execute the current statement
+       */
+      private void execute() throws Exception
+      {
+         statements++;
+         metrics.statements(1);
+
+         if ("BEGIN".equals(de.getStatement()))
+         {
+            c.setAutoCommit(false);
+            if (xa)
+            {
+               transactions++;
+               xid = new XidImpl(xaRun, identifier, transactions);
+               xc.getXAResource().start(xid, XAResource.TMNOFLAGS);
+            }
+         }
+         else if ("ROLLBACK".equals(de.getStatement()))
+         {
+            if (xa)
+            {
+               if (xid != null)
+               {
+                  xc.getXAResource().end(xid, XAResource.TMFAIL);
+                  if (!onePhase)
+                     xc.getXAResource().prepare(xid);
+                  xc.getXAResource().rollback(xid);
+                  xid = null;
+               }
+            }
+            else
+            {
+               c.rollback();
+            }
+            c.setAutoCommit(true);
+            metrics.rollback();
+         }
+         else if ("COMMIT".equals(de.getStatement()))
+         {
+            if (xa)
+            {
+               if (xid != null)
+               {
+                  xc.getXAResource().end(xid, XAResource.TMSUCCESS);
+                  if (onePhase)
+                  {
+                     xc.getXAResource().commit(xid, true);
+                  }
+                  else
+                  {
+                     xc.getXAResource().prepare(xid);
+                     xc.getXAResource().commit(xid, false);
+                  }
+                  xid = null;
+               }
+            }
+            else
+            {
+               c.commit();
+            }
+            c.setAutoCommit(true);
+            metrics.commit();
+         }
+         else if (batch && de.isBatchable())
+         {
+            executeBatch(c, de);
+         }
+         else
+         {
+            executions++;
+
+            boolean cursor = resultSetMode == RESULTSET_CURSOR && de.isSelect() && c.getAutoCommit();
+            if (cursor)
+               c.setAutoCommit(false);
+
+            // The cursor of a SELECT needs a transaction, which ends with the statement
+            boolean failed = false;
+            boolean ok = false;
+            try
+            {
+               if (!de.isPrepared())
+               {
+                  Statement stmt = c.createStatement();
+                  try
+                  {
+                     if (fetchSize > 0)
+                        stmt.setFetchSize(fetchSize);
+
+                     if (stmt.execute(de.getStatement()) && resultSetMode != RESULTSET_NONE)
+                        consume(stmt.getResultSet());
+                  }
+                  catch (Exception sqle)
+                  {
+                     failed = true;
+
+                     if (error)
+                     {
+                        errors++;
+                        metrics.errors(1);
+                     }
+                     else
+                     {
+                        throw sqle;
+                     }
+                  }
+                  finally
+                  {
+                     stmt.close();
+                  }
+               }
+               else
+               {
+                  PreparedStatement ps = c.prepareStatement(de.getStatement());
+
+                  try
+                  {
+                     // An overflow of the key offset is an error of the statement
+                     setParameters(ps, de,
+                                   de.isDML() ? Math.multiplyExact((long)interaction.getIteration(), keyOffset) : 0);
+
+                     if (fetchSize > 0)
+                        ps.setFetchSize(fetchSize);
+
+                     if (ps.execute() && resultSetMode != RESULTSET_NONE)
+                        consume(ps.getResultSet());
+                  }
+                  catch (Exception sqle)
+                  {
+                     failed = true;
+
+                     if (error)
+                     {
+                        errors++;
+                        metrics.errors(1);
+                     }
+                     else
+                     {
+                        throw sqle;
+                     }
+                  }
+                  finally
+                  {
+                     ps.close();
+                  }
+               }
+
+               ok = !failed;
+            }
+            finally
+            {
+               if (cursor)
+               {
+                  try
+                  {
+                     if (ok)
+                     {
+                        c.commit();
+                     }
+                     else
+                     {
+                        c.rollback();
+                     }
+                  }
+                  finally
+                  {
+                     c.setAutoCommit(true);
+                  }
+               }
+            }
+         }
+      }
+
+      /**
+       * The interaction is done
+       */
+      private void finish()
+      {
+         iterations = interaction.getIteration() + 1;
+         afterRun = System.currentTimeMillis();
+         success = true;
+         close();
+      }
+
+      /**
+       * The interaction failed
+       * @param e The exception
+       */
+      private void fail(Exception e)
+      {
+         beforeRun = 0;
+         afterRun = 0;
+
+         System.out.println("Exception from client " + identifier);
+         System.out.println(de);
+         e.printStackTrace();
+
+         close();
+      }
+
+      /**
+       * Close the client
+       */
+      private void close()
+      {
+         if (interaction != null)
+         {
+            try
+            {
+               interaction.close();
+            }
+            catch (Exception e)
+            {
+               // Nothing to do
+            }
+         }
+         if (c != null)
+         {
+            try
+            {
+               c.close();
+            }
+            catch (Exception e)
+            {
+               // Nothing to do
+            }
+         }
+         afterConnection = System.currentTimeMillis();
+
+         if (warming)
+            window.warm(statements);
+
+         if (running)
+            metrics.stopped();
+
+         if (dependencies != null)
+            dependencies.release(identifier);
+
+         window.done();
+         clientDone.countDown();
+      }
+   }
+
+   /**
+    * The event loop of the async engine. The engine schedules the clients over a few threads,
+    * but the JDBC calls are still blocking, so a statement occupies a thread while it executes;
+    * it isn't non-blocking I/O. A client waiting for the run, the measurement or a dependency
+    * doesn't occupy a thread, but is parked on the latch it waits for, and only woken up when
+    * that latch is counted down
+    */
+   static class AsyncEngine
+   {
+      /** The threads */
+      private ExecutorService loop;
+
+      /** Latch          Parked clients */
+      private Map<CountDownLatch, List<AsyncClient>> waiting;
+
+      /**
+       * Constructor
+       * @param threads The number of threads
+       */
+      AsyncEngine(int threads)
+      {
+         this.loop = Executors.newFixedThreadPool(threads);
+         this.waiting = new HashMap<>();
+      }
+
+      /**
+       * Get the threads
+       * @return The value
+       */
+      ExecutorService getLoop()
+      {
+         return loop;
+      }
+
+      /**
+       * Queue a client for its next step
+       * @param client The client
+       */
+      void submit(AsyncClient client)
+      {
+         try
+         {
+            loop.execute(client);
+         }
+         catch (RejectedExecutionException ree)
+         {
+            // Event loop shut down
+         }
+      }
+
+      /**
+       * Park a waiting client on a latch, unless the latch was counted down
+       * in the meantime. The latch is checked under the lock of the engine,
+       * so a wakeup can't be lost
+       * @param client The client
+       * @param latch The latch
+       * @return True if parked, otherwise false
+       */
+      synchronized boolean park(AsyncClient client, CountDownLatch latch)
+      {
+         if (latch.getCount() == 0)
+            return false;
+
+         List<AsyncClient> l = waiting.get(latch);
+         if (l == null)
+         {
+            l = new ArrayList<>();
+            waiting.put(latch, l);
+         }
+         l.add(client);
+
+         return true;
+      }
+
+      /**
+       * Queue the clients parked on a latch, which has been counted down
+       * @param latch The latch
+       */
+      void wakeup(CountDownLatch latch)
+      {
+         List<AsyncClient> l = null;
+
+         synchronized (this)
+         {
+            l = waiting.remove(latch);
+         }
+
+         if (l == null)
+            return;
+
+         for (AsyncClient client : l)
+         {
+            submit(client);
+         }
+      }
+   }
+
+   /**
+    * A client of the async engine. A client keeps its thread from BEGIN until COMMIT or
+    * ROLLBACK, such that a client holding locks is never queued behind clients waiting for them
+    */
+   static class AsyncClient implements Runnable
+   {
+      /** The client */
+      private Client client;
+
+      /** The engine */
+      private AsyncEngine engine;
+
+      /**
+       * Constructor
+       * @param client The client
+       * @param engine The engine
+       */
+      AsyncClient(Client client, AsyncEngine engine)
+      {
+         this.client = client;
+         this.engine = engine;
+      }
+
+      /**
+       * Execute a step of the client, or a transaction
+       */
+      public void run()
+      {
+         int result = client.step();
+
+         while (result == Client.STEP_CONTINUE && client.isInTransaction())
+         {
+            result = client.step();
+         }
+
+         if (result == Client.STEP_CONTINUE)
+         {
+            engine.submit(this);
+         }
+         else if (result == Client.STEP_WAIT)
+         {
+            CountDownLatch latch = client.getBlocker();
+
+            if (latch == null || !engine.park(this, latch))
+               engine.submit(this);
+         }
+      }
+   }
+
+   /**
+    * The result of a run for a comparison, loaded from its result.csv and latency.csv
+    */
+   static class Comparison
+   {
+      /** The name */
+      private String name;
+
+      /** The time in milliseconds */
+      private long time;
+
+      /** The statements */
+      private long statements;
+
+      /** The throughput of the clients */
+      private double[] clientThroughput;
+
+      /** The latency */
+      private Histogram histogram;
+
+      /**
+       * Constructor
+       * @param run The directory of the run, or its result.csv
+       */
+      Comparison(String run) throws Exception
+      {
+         Path p = Paths.get(run);
+         if (Files.isDirectory(p))
+            p = p.resolve("result.csv");
+
+         this.name = run;
+         this.time = 0;
+         this.statements = 0;
+         this.histogram = null;
+
+         long clock = 0;
+         long measurementTime = 0;
+         long measured = -1;
+         List<Double> l = new ArrayList<>();
+
+         for (String line : Files.readAllLines(p))
+         {
+            String[] values = line.split(",");
+
+            if ("Clock".equals(values[0]))
+            {
+               clock = Long.valueOf(values[1]);
+            }
+            else if ("Measurement".equals(values[0]))
+            {
+               measurementTime = Long.valueOf(values[1]);
+               measured = Long.valueOf(values[2]);
+            }
+            else if (!"Warmup".equals(values[0]) && !"Tail".equals(values[0]))
+            {
+               long runTime = Long.valueOf(values[1]);
+               long clientStatements = Long.valueOf(values[3]);
+
+               statements += clientStatements;
+
+               if (runTime > 0)
+                  l.add((clientStatements * 1000.0) / runTime);
+            }
+         }
+
+         if (measured >= 0 && measurementTime > 0)
+         {
+            time = measurementTime;
+            statements = measured;
+         }
+         else
+         {
+            time = clock;
+         }
+
+         clientThroughput = new double[l.size()];
+         for (int i = 0; i < l.size(); i++)
+         {
+            clientThroughput[i] = l.get(i);
+         }
+
+         Path latency = p.resolveSibling("latency.csv");
+         if (Files.exists(latency))
+         {
+            histogram = new Histogram();
+
+            for (String line : Files.readAllLines(latency))
+            {
+               String[] values = line.split(",");
+               histogram.record(Long.valueOf(values[0]), Long.valueOf(values[1]));
+            }
+         }
+      }
+
+      /**
+       * Get the name
+       * @return The value
+       */
+      String getName()
+      {
+         return name;
+      }
+
+      /**
+       * Get the throughput; the steady state if measured
+       * @return The value in statements per second
+       */
+      double getThroughput()
+      {
+         if (time == 0)
+            return 0.0;
+
+         return (statements * 1000.0) / time;
+      }
+
+      /**
+       * Get the throughput of the clients
+       * @return The values in statements per second
+       */
+      double[] getClientThroughput()
+      {
+         return clientThroughput;
+      }
+
+      /**
+       * Get the latency
+       * @return The value, or <code>null</code> if there is no latency.csv
+       */
+      Histogram getHistogram()
+      {
+         return histogram;
+      }
+   }
+
+   /**
+    * Significance tests for the comparison of runs
+    */
+   static class Statistics
+   {
+      /**
+       * One-sided Welch t-test that the mean of the run is lower than the mean of the baseline
+       * @param baseline The baseline samples
+       * @param run The run samples
+       * @return The p-value, or NaN if there are too few samples
+       */
+      static double welch(double[] baseline, double[] run)
+      {
+         if (baseline.length < 2 || run.length < 2)
+            return Double.NaN;
+
+         double m1 = mean(baseline);
+         double m2 = mean(run);
+         double v1 = variance(baseline, m1) / baseline.length;
+         double v2 = variance(run, m2) / run.length;
+
+         if (v1 + v2 == 0.0)
+            return m2 < m1 ? 0.0 : 1.0;
+
+         double t = (m2 - m1) / Math.sqrt(v1 + v2);
+         double df = ((v1 + v2) * (v1 + v2)) /
+            ((v1 * v1) / (baseline.length - 1) + (v2 * v2) / (run.length - 1));
+
+         double tail = 0.5 * incompleteBeta(df / (df + t * t), df / 2.0, 0.5);
+
+         return t < 0.0 ? tail : 1.0 - tail;
+      }
+
+      /**
+       * One-sided Mann-Whitney U test that the values of the run are higher than the values
+       * of the baseline. The buckets of the histograms are treated as ties
+       * @param baseline The baseline
+       * @param run The run
+       * @return The p-value, or NaN if a histogram is empty
+       */
+      static double mannWhitney(Histogram baseline, Histogram run)
+      {
+         double n1 = run.getCount();
+         double n2 = baseline.getCount();
+
+         if (n1 == 0 || n2 == 0)
+            return Double.NaN;
+
+         double n = n1 + n2;
+         double rank = 0.0;
+         double ranks = 0.0;
+         double ties = 0.0;
+
+         for (int i = 0; i < Histogram.BUCKETS; i++)
+         {
+            double a = run.getCount(i);
+            double t = a + baseline.getCount(i);
+
+            if (t > 0)
+            {
+               ranks += a * (rank + (t + 1.0) / 2.0);
+               ties += t * t * t - t;
+               rank += t;
+            }
+         }
+
+         double u = ranks - (n1 * (n1 + 1.0)) / 2.0;
+         double variance = ((n1 * n2) / 12.0) * ((n + 1.0) - ties / (n * (n - 1.0)));
+
+         if (variance <= 0.0)
+            return 1.0;
+
+         double z = (u - (n1 * n2) / 2.0) / Math.sqrt(variance);
+
+         return 0.5 * erfc(z / Math.sqrt(2.0));
+      }
+
+      /**
+       * Get the mean
+       * @param values The values
+       * @return The value
+       */
+      private static double mean(double[] values)
+      {
+         double sum = 0.0;
+         for (double v : values)
+         {
+            sum += v;
+         }
+         return sum / values.length;
+      }
+
+      /**
+       * Get the sample variance
+       * @param values The values
+       * @param mean The mean
+       * @return The value
+       */
+      private static double variance(double[] values, double mean)
+      {
+         double sum = 0.0;
+         for (double v : values)
+         {
+            sum += (v - mean) * (v - mean);
+         }
+         return sum / (values.length - 1);
+      }
+
+      /**
+       * Complementary error function with a fractional error below 1.2e-7
+       * @param x The value
+       * @return The result
+       */
+      private static double erfc(double x)
+      {
+         double z = Math.abs(x);
+         double t = 1.0 / (1.0 + 0.5 * z);
+         double r = t * Math.exp(-z * z - 1.26551223 +
+                                 t * (1.00002368 +
+                                 t * (0.37409196 +
+                                 t * (0.09678418 +
+                                 t * (-0.18628806 +
+                                 t * (0.27886807 +
+                                 t * (-1.13520398 +
+                                 t * (1.48851587 +
+                                 t * (-0.82215223 +
+                                 t * 0.17087277)))))))));
+
+         return x >= 0.0 ? r : 2.0 - r;
+      }
+
+      /**
+       * Logarithm of the gamma function (Lanczos)
+       * @param x The value
+       * @return The result
+       */
+      private static double logGamma(double x)
+      {
+         double[] c = new double[] {76.18009172947146, -86.50532032941677, 24.01409824083091,
+                                    -1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+         double y = x;
+         double tmp = x + 5.5;
+         tmp -= (x + 0.5) * Math.log(tmp);
+         double ser = 1.000000000190015;
+
+         for (double v : c)
+         {
+            y += 1.0;
+            ser += v / y;
+         }
+
+         return -tmp + Math.log(2.5066282746310005 * ser / x);
+      }
+
+      /**
+       * Regularized incomplete beta function
+       * @param x The value
+       * @param a The a parameter
+       * @param b The b parameter
+       * @return The result
+       */
+      private static double incompleteBeta(double x, double a, double b)
+      {
+         if (x <= 0.0)
+            return 0.0;
+
+         if (x >= 1.0)
+            return 1.0;
+
+         double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) +
+                                 a * Math.log(x) + b * Math.log(1.0 - x));
+
+         if (x < (a + 1.0) / (a + b + 2.0))
+            return front * betaFraction(x, a, b) / a;
+
+         return 1.0 - front * betaFraction(1.0 - x, b, a) / b;
+      }
+
+      /**
+       * Continued fraction of the incomplete beta function
+       * @param x The value
+       * @param a The a parameter
+       * @param b The b parameter
+       * @return The result
+       */
+      private static double betaFraction(double x, double a, double b)
+      {
+         double tiny = 1.0e-30;
+         double c = 1.0;
+         double d = 1.0 - (a + b) * x / (a + 1.0);
+
+         if (Math.abs(d) < tiny)
+            d = tiny;
+
+         d = 1.0 / d;
+         double h = d;
+
+         for (int m = 1; m <= 200; m++)
+         {
+            int m2 = 2 * m;
+            double aa = m * (b - m) * x / ((a + m2 - 1.0) * (a + m2));
+
+            d = 1.0 + aa * d;
+            if (Math.abs(d) < tiny)
+               d = tiny;
+            c = 1.0 + aa / c;
+            if (Math.abs(c) < tiny)
+               c = tiny;
+            d = 1.0 / d;
+            h *= d * c;
+
+            aa = -(a + m) * (a + b + m) * x / ((a + m2) * (a + m2 + 1.0));
+
+            d = 1.0 + aa * d;
+            if (Math.abs(d) < tiny)
+               d = tiny;
+            c = 1.0 + aa / c;
+            if (Math.abs(c) < tiny)
+               c = tiny;
+            d = 1.0 / d;
+
+            double delta = d * c;
+            h *= delta;
+
+            if (Math.abs(delta - 1.0) < 1.0e-12)
+               break;
+         }
+
+         return h;
+      }
+   }
+
+   /**
+    * Measurement window, which separates the warm-up, the steady state where all
+    * clients are active, and the tail drain of a run
+    */
+   static class Window
+   {
+      /** Active */
+      private boolean active;
+
+      /** Warm-up statements per client */
+      private int warmupStatements;
+
+      /** Warm-up time per client */
+      private long warmupTime;
+
+      /** Clients warm */
+      private CountDownLatch clientWarm;
+
+      /** Measurement started */
+      private CountDownLatch clientMeasure;
+
+      /** First client done */
+      private CountDownLatch clientFirstDone;
+
+      /** Complete */
+      private volatile boolean complete;
+
+      /** Statements executed during warm-up */
+      private LongAdder warmup;
+
+      /** Statements executed after warm-up */
+      private LongAdder measured;
+
+      /** Statements executed in the steady state */
+      private long steady;
+
+      /** Start */
+      private long start;
+
+      /** Measurement start */
+      private long measurementStart;
+
+      /** Measurement end */
+      private long measurementEnd;
+
+      /** End */
+      private long end;
+
+      /**
+       * Constructor
+       * @param clients The number of clients
+       * @param warmupStatements The number of warm-up statements per client
+       * @param warmupTime The warm-up time per client
+       * @param active Are all clients running concurrently
+       */
+      Window(int clients, int warmupStatements, long warmupTime, boolean active)
+      {
+         this.active = active;
+         this.warmupStatements = warmupStatements;
+         this.warmupTime = warmupTime;
+         this.clientWarm = new CountDownLatch(clients);
+         this.clientMeasure = new CountDownLatch(1);
+         this.clientFirstDone = new CountDownLatch(1);
+         this.complete = true;
+         this.warmup = new LongAdder();
+         this.measured = new LongAdder();
+         this.steady = 0;
+         this.start = 0;
+         this.measurementStart = 0;
+         this.measurementEnd = 0;
+         this.end = 0;
+      }
+
+      /**
+       * Is active
+       * @return The value
+       */
+      boolean isActive()
+      {
+         return active;
+      }
+
+      /**
+       * Is a warm-up configured
+       * @return The value
+       */
+      boolean isWarmup()
+      {
+         return warmupStatements > 0 || warmupTime > 0;
+      }
+
+      /**
+       * Is a client warm
+       * @param statements The number of statements executed by the client
+       * @param time The time the client has been running
+       * @return The value
+       */
+      boolean isWarm(int statements, long time)
+      {
+         return statements >= warmupStatements && time >= warmupTime;
+      }
+
+      /**
+       * Did all clients take part in the steady state
+       * @return The value
+       */
+      boolean isComplete()
+      {
+         return complete;
+      }
+
+      /**
+       * A client is done with its warm-up
+       * @param statements The number of warm-up statements
+       */
+      void warm(int statements)
+      {
+         warmup.add(statements);
+         clientWarm.countDown();
+      }
+
+      /**
+       * Wait for the measurement to start
+       */
+      void awaitMeasurement() throws InterruptedException
+      {
+         if (active)
+            clientMeasure.await();
+      }
+
+      /**
+       * Get the latch of the start of the measurement
+       * @return The value
+       */
+      CountDownLatch getMeasurement()
+      {
+         return clientMeasure;
+      }
+
+      /**
+       * Has the measurement started
+       * @return The value
+       */
+      boolean isMeasuring()
+      {
+         return !active || clientMeasure.getCount() == 0;
+      }
+
+      /**
+       * Statements executed after warm-up
+       * @param statements The number of statements
+       */
+      void measured(int statements)
+      {
+         measured.add(statements);
+      }
+
+      /**
+       * A client is done
+       */
+      void done()
+      {
+         if (clientMeasure.getCount() > 0)
+            complete = false;
+
+         clientFirstDone.countDown();
+      }
+
+      /**
+       * Wait for the measurement window; starts when all clients are warm, and ends
+       * when the first client is done
+       * @param start The start of the run
+       */
+      void await(long start) throws InterruptedException
+      {
+         this.start = start;
+
+         if (!active)
+            return;
+
+         if (!isWarmup())
+         {
+            while (clientWarm.getCount() > 0)
+            {
+               clientWarm.countDown();
+            }
+         }
+
+         clientWarm.await();
+         measurementStart = System.currentTimeMillis();
+         clientMeasure.countDown();
+         wakeup(clientMeasure);
+
+         if (isWarmup())
+            System.out.println("Measurement start: " + new java.util.Date(measurementStart));
+
+         clientFirstDone.await();
+         measurementEnd = System.currentTimeMillis();
+         steady = measured.sum();
+
+         if (isWarmup())
+            System.out.println("Measurement end: " + new java.util.Date(measurementEnd));
+      }
+
+      /**
+       * Set the end of the run
+       * @param end The value
+       */
+      void setEnd(long end)
+      {
+         this.end = end;
+      }
+
+      /**
+       * Get the warm-up time
+       * @return The value
+       */
+      long getWarmupTime()
+      {
+         return measurementStart - start;
+      }
+
+      /**
+       * Get the number of warm-up statements
+       * @return The value
+       */
+      long getWarmupStatements()
+      {
+         return warmup.sum();
+      }
+
+      /**
+       * Get the measurement time
+       * @return The value
+       */
+      long getMeasurementTime()
+      {
+         return measurementEnd - measurementStart;
+      }
+
+      /**
+       * Get the number of statements in the measurement window
+       * @return The value
+       */
+      long getMeasuredStatements()
+      {
+         return steady;
+      }
+
+      /**
+       * Get the throughput of the measurement window
+       * @return The number of statements per second
+       */
+      long getThroughput()
+      {
+         long time = getMeasurementTime();
+
+         if (time <= 0)
+            return 0;
+
+         return steady * 1000L / time;
+      }
+
+      /**
+       * Get the tail time
+       * @return The value
+       */
+      long getTailTime()
+      {
+         return end - measurementEnd;
+      }
+
+      /**
+       * Get the number of statements in the tail
+       * @return The value
+       */
+      long getTailStatements()
+      {
+         return measured.sum() - steady;
+      }
+   }
+
+   /**
+    * Latency histogram in microseconds with logarithmic buckets, each split in
+    * 8 linear sub-buckets. Updates are done by the owning client, and reads can
+    * happen from any thread
+    */
+   static class Histogram
+   {
+      /** Sub-buckets per power of two */
+      private static final int SUB_BUCKETS = 8;
+
+      /** Number of buckets */
+      private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+      /** Counts */
+      private AtomicLongArray counts;
+
+      /** Total count */
+      private AtomicLong count;
+
+      /** Sum */
+      private AtomicLong sum;
+
+      /**
+       * Constructor
+       */
+      Histogram()
+      {
+         counts = new AtomicLongArray(BUCKETS);
+         count = new AtomicLong();
+         sum = new AtomicLong();
+      }
+
+      /**
+       * Get the bucket of a value
+       * @param v The value
+       * @return The bucket
+       */
+      static int bucket(long v)
+      {
+         if (v < SUB_BUCKETS)
+            return v < 0 ? 0 : (int)v;
+
+         int exp = 63 - Long.numberOfLeadingZeros(v);
+         int sub = (int)((v >>> (exp - 3)) & (SUB_BUCKETS - 1));
+
+         return (exp - 2) * SUB_BUCKETS + sub;
+      }
+
+      /**
+       * Get the highest value of a bucket
+       * @param b The bucket
+       * @return The value
+       */
+      static long highest(int b)
+      {
+         if (b < SUB_BUCKETS)
+            return b;
+
+         int exp = b / SUB_BUCKETS + 2;
+         int sub = b % SUB_BUCKETS;
+
+         return ((long)(SUB_BUCKETS + sub + 1) << (exp - 3)) - 1;
+      }
+
+      /**
+       * Record a value
+       * @param v The value
+       */
+      void record(long v)
+      {
+         counts.incrementAndGet(bucket(v));
+         count.incrementAndGet();
+         sum.addAndGet(v);
+      }
+
+      /**
+       * Record a value a number of times
+       * @param v The value
+       * @param n The number of times
+       */
+      void record(long v, long n)
+      {
+         counts.addAndGet(bucket(v), n);
+         count.addAndGet(n);
+         sum.addAndGet(v * n);
+      }
+
+      /**
+       * Add the values of another histogram
+       * @param h The histogram
+       */
+      void add(Histogram h)
+      {
+         for (int i = 0; i < BUCKETS; i++)
+         {
+            long v = h.counts.get(i);
+            if (v != 0)
+               counts.addAndGet(i, v);
+         }
+         count.addAndGet(h.count.get());
+         sum.addAndGet(h.sum.get());
+      }
+
+      /**
+       * Get the difference to an earlier snapshot of this histogram
+       * @param h The snapshot
+       * @return The difference
+       */
+      Histogram subtract(Histogram h)
+      {
+         Histogram result = new Histogram();
+
+         for (int i = 0; i < BUCKETS; i++)
+         {
+            result.counts.set(i, counts.get(i) - h.counts.get(i));
+         }
+         result.count.set(count.get() - h.count.get());
+         result.sum.set(sum.get() - h.sum.get());
+
+         return result;
+      }
+
+      /**
+       * Get the count
+       * @return The value
+       */
+      long getCount()
+      {
+         return count.get();
+      }
+
+      /**
+       * Get the data of the histogram as count|sum|bucket=count|...
+       * @return The value
+       */
+      String getData()
+      {
+         StringBuilder sb = new StringBuilder();
+         sb = sb.append(count.get());
+         sb = sb.append("|");
+         sb = sb.append(sum.get());
+
+         for (int i = 0; i < BUCKETS; i++)
+         {
+            long v = counts.get(i);
+            if (v != 0)
+            {
+               sb = sb.append("|");
+               sb = sb.append(i);
+               sb = sb.append("=");
+               sb = sb.append(v);
+            }
+         }
+
+         return sb.toString();
+      }
+
+      /**
+       * Create a histogram from its data
+       * @param s The data
+       * @return The histogram
+       */
+      static Histogram fromData(String s)
+      {
+         Histogram h = new Histogram();
+         String[] values = s.split("\\|");
+
+         h.count.set(Long.valueOf(values[0]));
+         h.sum.set(Long.valueOf(values[1]));
+
+         for (int i = 2; i < values.length; i++)
+         {
+            int equals = values[i].indexOf("=");
+            h.counts.set(Integer.valueOf(values[i].substring(0, equals)), Long.valueOf(values[i].substring(equals + 1)));
+         }
+
+         return h;
+      }
+
+      /**
+       * Get the count of a bucket
+       * @param b The bucket
+       * @return The value
+       */
+      long getCount(int b)
+      {
+         return counts.get(b);
+      }
+
+      /**
+       * Get the sum
+       * @return The value
+       */
+      long getSum()
+      {
+         return sum.get();
+      }
+
+      /**
+       * Get the mean
+       * @return The value
+       */
+      long getMean()
+      {
+         long c = count.get();
+
+         if (c == 0)
+            return 0;
+
+         return sum.get() / c;
+      }
+
+      /**
+       * Get a percentile
+       * @param p The percentile, e.g. 99.0
+       * @return The highest value of the bucket of the percentile
+       */
+      long getPercentile(double p)
+      {
+         long total = 0;
+         for (int i = 0; i < BUCKETS; i++)
+         {
+            total += counts.get(i);
+         }
+
+         if (total == 0)
+            return 0;
+
+         long target = (long)Math.ceil(total * p / 100.0);
+         long current = 0;
+
+         for (int i = 0; i < BUCKETS; i++)
+         {
+            current += counts.get(i);
+            if (current >= target && current > 0)
+               return highest(i);
+         }
+
+         return getMax();
+      }
+
+      /**
+       * Get the max
+       * @return The highest value of the highest bucket
+       */
+      long getMax()
+      {
+         for (int i = BUCKETS - 1; i >= 0; i--)
+         {
+            if (counts.get(i) > 0)
+               return highest(i);
+         }
+
+         return 0;
+      }
+   }
+
+   /**
+    * Interval reporter, which prints the throughput and latency of the last interval
+    */
+   static class IntervalReporter implements Runnable
+   {
+      /** The clients */
+      private List<Client> clients;
+
+      /** The start */
+      private long start;
+
+      /** The time of the last report */
+      private long last;
+
+      /** Metrics at the last report */
+      private long[] values;
+
+      /** Latency at the last report */
+      private Histogram histogram;
+
+      /**
+       * Constructor
+       * @param clients The clients
+       */
+      IntervalReporter(List<Client> clients)
+      {
+         this.clients = clients;
+         this.start = System.currentTimeMillis();
+         this.last = start;
+         this.values = metrics.getValues();
+         this.histogram = new Histogram();
+      }
+
+      /**
+       * Report the interval
+       */
+      public void run()
+      {
+         long now = System.currentTimeMillis();
+         long[] current = metrics.getValues();
+         Histogram h = new Histogram();
+
+         for (Client cli : clients)
+         {
+            h.add(cli.getHistogram());
+         }
+
+         Histogram interval = h.subtract(histogram);
+         long time = now - last;
+
+         StringBuilder sb = new StringBuilder();
+         sb = sb.append("Interval ");
+         sb = sb.append((now - start) / 1000L);
+         sb = sb.append("s: ");
+         sb = sb.append(perSecond(current[0] - values[0], time));
+         sb = sb.append(" statements/s, ");
+         sb = sb.append(perSecond(current[1] - values[1], time));
+         sb = sb.append(" commits/s, ");
+         sb = sb.append(perSecond(current[2] - values[2], time));
+         sb = sb.append(" rollbacks/s, ");
+         sb = sb.append(perSecond(current[3] - values[3], time));
+         sb = sb.append(" errors/s, ");
+         sb = sb.append(current[4]);
+         sb = sb.append(" clients, latency ");
+         sb = sb.append(interval.getMean());
+         sb = sb.append("/");
+         sb = sb.append(interval.getPercentile(95.0));
+         sb = sb.append("/");
+         sb = sb.append(interval.getPercentile(99.0));
+         sb = sb.append("/");
+         sb = sb.append(interval.getMax());
+         sb = sb.append("us");
+
+         System.out.println(sb.toString());
+
+         last = now;
+         values = current;
+         histogram = h;
+      }
+
+      /**
+       * Get a rate per second
+       * @param delta The delta
+       * @param time The time in milliseconds
+       * @return The value
+       */
+      private static long perSecond(long delta, long time)
+      {
+         if (time <= 0)
+            return 0;
+
+         return delta * 1000L / time;
+      }
+   }
+
+   /**
+    * Metrics of the run, which are updated by the clients and read by the
+    * interval reporter and the metrics endpoint
+    */
+   static class Metrics
+   {
+      /** Statements */
+      private LongAdder statements;
+
+      /** Commits */
+      private LongAdder commits;
+
+      /** Rollbacks */
+      private LongAdder rollbacks;
+
+      /** Errors */
+      private LongAdder errors;
+
+      /** Clients in flight */
+      private LongAdder inFlight;
+
+      /**
+       * Constructor
+       */
+      Metrics()
+      {
+         statements = new LongAdder();
+         commits = new LongAdder();
+         rollbacks = new LongAdder();
+         errors = new LongAdder();
+         inFlight = new LongAdder();
+      }
+
+      /**
+       * Statements executed
+       * @param n The number of statements
+       */
+      void statements(int n)
+      {
+         statements.add(n);
+      }
+
+      /**
+       * Transaction committed
+       */
+      void commit()
+      {
+         commits.increment();
+      }
+
+      /**
+       * Transaction rolled back
+       */
+      void rollback()
+      {
+         rollbacks.increment();
+      }
+
+      /**
+       * Errors
+       * @param n The number of errors
+       */
+      void errors(int n)
+      {
+         errors.add(n);
+      }
+
+      /**
+       * Client started
+       */
+      void started()
+      {
+         inFlight.increment();
+      }
+
+      /**
+       * Client stopped
+       */
+      void stopped()
+      {
+         inFlight.decrement();
+      }
+
+      /**
+       * Get the values
+       * @return Statements, commits, rollbacks, errors and clients in flight
+       */
+      long[] getValues()
+      {
+         return new long[] {statements.sum(), commits.sum(), rollbacks.sum(), errors.sum(), inFlight.sum()};
+      }
+   }
+
+   /**
+    * Metrics endpoint in the Prometheus text format
+    */
+   static class MetricsHandler implements HttpHandler
+   {
+      /** The clients */
+      private List<Client> clients;
+
+      /**
+       * Constructor
+       * @param clients The clients
+       */
+      MetricsHandler(List<Client> clients)
+      {
+         this.clients = clients;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public void handle(HttpExchange exchange) throws IOException
+      {
+         long[] values = metrics.getValues();
+         Histogram h = new Histogram();
+
+         for (Client cli : clients)
+         {
+            h.add(cli.getHistogram());
+         }
+
+         StringBuilder sb = new StringBuilder();
+         sb = sb.append("# TYPE replay_statements_total counter\n");
+         sb = sb.append("replay_statements_total ").append(values[0]).append("\n");
+         sb = sb.append("# TYPE replay_commits_total counter\n");
+         sb = sb.append("replay_commits_total ").append(values[1]).append("\n");
+         sb = sb.append("# TYPE replay_rollbacks_total counter\n");
+         sb = sb.append("replay_rollbacks_total ").append(values[2]).append("\n");
+         sb = sb.append("# TYPE replay_errors_total counter\n");
+         sb = sb.append("replay_errors_total ").append(values[3]).append("\n");
+         sb = sb.append("# TYPE replay_clients_in_flight gauge\n");
+         sb = sb.append("replay_clients_in_flight ").append(values[4]).append("\n");
+         sb = sb.append("# TYPE replay_latency_microseconds summary\n");
+         sb = sb.append("replay_latency_microseconds{quantile=\"0.5\"} ").append(h.getPercentile(50.0)).append("\n");
+         sb = sb.append("replay_latency_microseconds{quantile=\"0.95\"} ").append(h.getPercentile(95.0)).append("\n");
+         sb = sb.append("replay_latency_microseconds{quantile=\"0.99\"} ").append(h.getPercentile(99.0)).append("\n");
+         sb = sb.append("replay_latency_microseconds_sum ").append(h.getSum()).append("\n");
+         sb = sb.append("replay_latency_microseconds_count ").append(h.getCount()).append("\n");
+
+         byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+         exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4");
+         exchange.sendResponseHeaders(200, data.length);
+
+         OutputStream os = exchange.getResponseBody();
+         os.write(data);
+         os.close();
+      }
+   }
+
+   /**
+    * Query context used while resolving the parameter types of a query
+    */
+   static class QueryContext
+   {
+      /** Current table name */
+      private String currentTableName;
+
+      /** Aliases:       Alias   Name */
+      private Map<String, String> aliases;
+
+      QueryContext()
+      {
+         currentTableName = null;
+         aliases = new TreeMap<>();
+      }
+   }
+
+   /**
+    * Interaction reader, which streams the data entries of a client from disk. The next
+    * chunk of entries is read by a background thread while the client consumes the current one
+    */
+   static class InteractionReader implements Closeable
+   {
+      /** The threads reading ahead, shared by all readers */
+      private static final ExecutorService READERS = Executors.newCachedThreadPool(new ThreadFactory()
+      {
+         public Thread newThread(Runnable r)
+         {
+            Thread t = new Thread(r, "InteractionReader");
+            t.setDaemon(true);
+            return t;
+         }
+      });
+
+      /** The reader */
+      private BufferedReader reader;
+
+      /** The entries being consumed */
+      private ArrayDeque<DataEntry> buffer;
+
+      /** The next entries, read in the background */
+      private Future<Chunk> next;
+
+      /** The size of the read-ahead buffer */
+      private int size;
+
+      /** The first line after the header */
+      private String pending;
+
+      /** The path */
+      private Path path;
+
+      /** The number of iterations */
+      private int iterations;
+
+      /** The iteration of the entries being consumed */
+      private int iteration;
+
+      /** The iteration being read */
+      private int reading;
+
+      /** The number of entries read in the iteration being read */
+      private int read;
+
+      /**
+       * Constructor
+       * @param p The path of the .cli file
+       * @param size The size of the read-ahead buffer
+       * @param iterations The number of times the file is read
+       */
+      InteractionReader(Path p, int size, int iterations) throws Exception
+      {
+         this.path = p;
+         this.buffer = new ArrayDeque<>();
+         this.size = size;
+         this.iterations = iterations;
+         this.iteration = 0;
+         this.reading = 0;
+
+         open();
+         this.next = readAhead();
+      }
+
+      /**
+       * Get the current iteration
+       * @return The value
+       */
+      int getIteration()
+      {
+         return iteration;
+      }
+
+      /**
+       * Open the file, and skip the header
+       */
+      private void open() throws Exception
+      {
+         reader = Files.newBufferedReader(path);
+         pending = reader.readLine();
+         read = 0;
+
+         while (pending != null && pending.startsWith("#"))
+         {
+            pending = reader.readLine();
+         }
       }
-   }
 
-   /**
-    * Get a XAConnection
-    * @return The connection
-    */
-   private static synchronized XAConnection getXAConnection() throws Exception
-   {
-      if (xaDataSource == null)
+      /**
+       * Get the next data entry without consuming it
+       * @return The entry, or <code>null</code> if there are no more entries
+       */
+      DataEntry peek() throws Exception
       {
-         String host = configuration.getProperty("host", "localhost");
-         int port = Integer.valueOf(configuration.getProperty("port", "5432"));
-         String database = configuration.getProperty("database");
+         if (buffer.isEmpty())
+            advance();
 
-         if (!ngDriver)
-         {
-            Class<?> clz = Class.forName("org.postgresql.xa.PGXADataSource");
-            Object obj = clz.newInstance();
+         return buffer.peekFirst();
+      }
 
-            Method mHost = clz.getMethod("setServerName", String.class);
-            mHost.invoke(obj, host);
+      /**
+       * Get the next data entry
+       * @return The entry, or <code>null</code> if there are no more entries
+       */
+      DataEntry next() throws Exception
+      {
+         if (buffer.isEmpty())
+            advance();
 
-            Method mPort = clz.getMethod("setPortNumber", int.class);
-            mPort.invoke(obj, port);
+         return buffer.pollFirst();
+      }
 
-            Method mDatabase = clz.getMethod("setDatabaseName", String.class);
-            mDatabase.invoke(obj, database);
+      /**
+       * Switch to the entries read in the background, and start reading the following
+       * entries, so the client only waits for the file when it is faster than the disk
+       */
+      private void advance() throws Exception
+      {
+         if (next == null)
+            return;
 
-            xaDataSource = (XADataSource)obj;
+         Chunk chunk;
+         try
+         {
+            chunk = next.get();
          }
-         else
+         catch (ExecutionException ee)
          {
-            Class<?> clz = Class.forName("com.impossibl.postgres.jdbc.xa.PGXADataSource");
-            Object obj = clz.newInstance();
-
-            Method mHost = clz.getMethod("setHost", String.class);
-            mHost.invoke(obj, host);
+            next = null;
 
-            Method mPort = clz.getMethod("setPort", int.class);
-            mPort.invoke(obj, port);
+            if (ee.getCause() instanceof Exception)
+               throw (Exception)ee.getCause();
 
-            Method mDatabase = clz.getMethod("setDatabase", String.class);
-            mDatabase.invoke(obj, database);
+            throw ee;
+         }
 
-            xaDataSource = (XADataSource)obj;
+         if (chunk.getEntries().isEmpty())
+         {
+            next = null;
+            return;
          }
+
+         buffer = chunk.getEntries();
+         iteration = chunk.getIteration();
+         next = readAhead();
       }
 
-      return xaDataSource.getXAConnection(configuration.getProperty("user"),
-                                          configuration.getProperty("password"));
-   }
+      /**
+       * Read the next entries in the background
+       * @return The entries
+       */
+      private Future<Chunk> readAhead()
+      {
+         return READERS.submit(new Callable<Chunk>()
+         {
+            public Chunk call() throws Exception
+            {
+               return fill();
+            }
+         });
+      }
 
-   /**
-    * ANALYZE
-    */
-   private static void analyze() throws Exception
-   {
-      Connection c = null;
-      Statement stmt = null;
-      try
+      /**
+       * Read the next entries. A chunk doesn't span iterations, and is empty at the end
+       * @return The entries
+       */
+      private Chunk fill() throws Exception
       {
-         String url = null;
-         if (!ngDriver)
+         if (pending == null && read > 0 && reading + 1 < iterations)
          {
-            url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") + ":" +
-               configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+            reader.close();
+            open();
+            reading++;
          }
-         else
+
+         ArrayDeque<DataEntry> entries = new ArrayDeque<>(size);
+
+         while (pending != null && entries.size() < size)
          {
-            url = "jdbc:pgsql://" + configuration.getProperty("host", "localhost") + ":" +
-               configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
+            String prepared = pending;
+            String statement = reader.readLine();
+            String types = reader.readLine();
+            String parameters = reader.readLine();
+            entries.addLast(new DataEntry(prepared, statement, types, parameters));
+            read++;
+
+            pending = reader.readLine();
          }
 
-         c = DriverManager.getConnection(url, configuration);
-
-         stmt = c.createStatement();
-         stmt.execute("ANALYZE");
+         return new Chunk(reading, entries);
       }
-      finally
+
+      /**
+       * {@inheritDoc}
+       */
+      public void close() throws IOException
       {
-         if (stmt != null)
+         if (next != null)
          {
             try
             {
-               stmt.close();
+               next.get();
             }
-            catch (SQLException se)
+            catch (Exception e)
             {
-               // Ignore
+               // Closing anyway
             }
+
+            next = null;
          }
-         if (c != null)
+
+         reader.close();
+      }
+
+      /**
+       * Entries of an iteration
+       */
+      static class Chunk
+      {
+         /** The iteration */
+         private int iteration;
+
+         /** The entries */
+         private ArrayDeque<DataEntry> entries;
+
+         /**
+          * Constructor
+          * @param iteration The iteration
+          * @param entries The entries
+          */
+         Chunk(int iteration, ArrayDeque<DataEntry> entries)
          {
-            try
-            {
-               c.close();
-            }
-            catch (SQLException se)
-            {
-               // Ignore
-            }
+            this.iteration = iteration;
+            this.entries = entries;
+         }
+
+         /**
+          * Get the iteration
+          * @return The value
+          */
+         int getIteration()
+         {
+            return iteration;
+         }
+
+         /**
+          * Get the entries
+          * @return The value
+          */
+         ArrayDeque<DataEntry> getEntries()
+         {
+            return entries;
          }
       }
    }
 
    /**
-    * Usage
+    * Dependencies between the transactions of the clients. A transaction waits
+    * for the transactions it depends on to end before it starts
     */
-   private static void usage()
+   static class Dependencies
    {
-      System.out.println("Usage: Replay -i <log_file>                      (init)");
-      System.out.println("       Replay [-r] [-s] [-x] [-e] [-w] <profile> (run)");
-   }
+      /** Transaction    Predecessors */
+      private Map<Long, List<CountDownLatch>> waits;
 
-   /**
-    * Main
-    * @param args The arguments
-    */
-   public static void main(String[] args)
-   {
-      Connection c = null;
-      try
-      {
-         if (args.length == 0)
-         {
-            usage();
-            return;
-         }
+      /** Transaction    Done */
+      private Map<Long, CountDownLatch> done;
 
-         String config = DEFAULT_CONFIGURATION;
-         readConfiguration(config);
+      /** Client         Done */
+      private Map<Integer, List<CountDownLatch>> clients;
 
-         String url = null;
-         
-         if (configuration.getProperty("url") == null)
-         {
-            String database = configuration.getProperty("database");
-            if (database == null)
-            {
-               System.out.println("database not defined.");
-               return;
-            }
+      /**
+       * Constructor
+       * @param p The path of the dependencies file
+       */
+      Dependencies(Path p) throws Exception
+      {
+         waits = new HashMap<>();
+         done = new HashMap<>();
+         clients = new HashMap<>();
 
-            url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") +
-               ":" + configuration.getProperty("port", "5432") + "/" + database;
-         }
-         else
+         BufferedReader reader = Files.newBufferedReader(p);
+         try
          {
-            url = configuration.getProperty("url");
+            String line = reader.readLine();
+            while (line != null)
+            {
+               String[] values = line.split(",");
+               int client = Integer.valueOf(values[2]);
+               long predecessor = getKey(client, Long.valueOf(values[3]));
 
-            int doubleSlash = url.indexOf("//");
-            int slash = url.indexOf("/", doubleSlash + 2);
-            int col = url.indexOf(":", doubleSlash);
-            String host = url.substring(doubleSlash + 2, col != -1 ? col : slash);
-            String port = "5432";
-            String database = url.substring(slash + 1);
+               CountDownLatch latch = done.get(predecessor);
+               if (latch == null)
+               {
+                  latch = new CountDownLatch(1);
+                  done.put(predecessor, latch);
 
-            if (col != -1)
-               port = url.substring(col + 1, slash);
+                  List<CountDownLatch> l = clients.get(client);
+                  if (l == null)
+                  {
+                     l = new ArrayList<>();
+                     clients.put(client, l);
+                  }
+                  l.add(latch);
+               }
 
-            if (url.indexOf(":pgsql:") != -1)
-               ngDriver = true;
+               long transaction = getKey(Integer.valueOf(values[0]), Long.valueOf(values[1]));
+               List<CountDownLatch> l = waits.get(transaction);
+               if (l == null)
+               {
+                  l = new ArrayList<>();
+                  waits.put(transaction, l);
+               }
+               l.add(latch);
 
-            configuration.setProperty("host", host);
-            configuration.setProperty("port", port);
-            configuration.setProperty("database", database);
+               line = reader.readLine();
+            }
          }
-
-         String user = configuration.getProperty("user");
-         if (user == null)
+         finally
          {
-            System.out.println("user not defined.");
-            return;
+            reader.close();
          }
+      }
 
-         String password = configuration.getProperty("password");
-         if (password == null)
-         {
-            System.out.println("password not defined.");
-            return;
-         }
+      /**
+       * Get the key of a transaction
+       * @param client The client
+       * @param unit The unit of the client
+       * @return The value
+       */
+      private static long getKey(int client, long unit)
+      {
+         return ((long)client << 32) | (unit & 0xFFFFFFFFL);
+      }
+
+      /**
+       * Wait for the predecessors of a transaction
+       * @param client The client
+       * @param unit The unit of the client
+       */
+      void await(int client, long unit) throws InterruptedException
+      {
+         List<CountDownLatch> l = waits.get(getKey(client, unit));
 
-         if ("-i".equals(args[0]))
+         if (l != null)
          {
-            if (args.length == 1)
+            for (CountDownLatch latch : l)
             {
-               usage();
-               return;
+               latch.await();
             }
+         }
+      }
 
-            filename = args[1];
-
-            profilename = filename.substring(0, filename.lastIndexOf("."));
-            
-            c = DriverManager.getConnection(url, configuration);
+      /**
+       * Are the predecessors of a transaction done
+       * @param client The client
+       * @param unit The unit of the client
+       * @return The value
+       */
+      boolean isReady(int client, long unit)
+      {
+         List<CountDownLatch> l = waits.get(getKey(client, unit));
 
-            File directory = new File(profilename);
-            if (directory.exists())
+         if (l != null)
+         {
+            for (CountDownLatch latch : l)
             {
-               Files.walk(Paths.get(profilename))
-                  .sorted(Comparator.reverseOrder())
-                  .map(Path::toFile)
-                  .forEach(File::delete);
+               if (latch.getCount() > 0)
+                  return false;
             }
-            directory.mkdirs();
-
-            processLog();
-            createInteraction(c);
          }
-         else
+
+         return true;
+      }
+
+      /**
+       * Get a predecessor of a transaction that isn't done
+       * @param client The client
+       * @param unit The unit of the client
+       * @return The latch of the predecessor, or <code>null</code> if all are done
+       */
+      CountDownLatch getPending(int client, long unit)
+      {
+         List<CountDownLatch> l = waits.get(getKey(client, unit));
+
+         if (l != null)
          {
-            for (int parameter = 0; parameter < args.length - 1; parameter++)
+            for (CountDownLatch latch : l)
             {
-               if ("-r".equals(args[parameter]))
-               {
-                  resultSet = true;
-               }
-               else if ("-s".equals(args[parameter]))
-               {
-                  parallelExecution = false;
-               }
-               else if ("-x".equals(args[parameter]))
-               {
-                  xa = true;
-               }
-               else if ("-e".equals(args[parameter]))
-               {
-                  error = true;
-               }
-               else if ("-w".equals(args[parameter]))
-               {
-                  wait = true;
-               }
+               if (latch.getCount() > 0)
+                  return latch;
             }
-
-            profilename = args[args.length - 1];
-
-            executeClients();
          }
+
+         return null;
       }
-      catch (Exception e)
+
+      /**
+       * A transaction is done
+       * @param client The client
+       * @param unit The unit of the client
+       */
+      void done(int client, long unit)
       {
-         e.printStackTrace();
+         CountDownLatch latch = done.get(getKey(client, unit));
+
+         if (latch != null)
+         {
+            latch.countDown();
+            wakeup(latch);
+         }
       }
-      finally
+
+      /**
+       * Release all transactions of a client, f.ex. when it fails
+       * @param client The client
+       */
+      void release(int client)
       {
-         if (c != null)
+         List<CountDownLatch> l = clients.get(client);
+
+         if (l != null)
          {
-            try
-            {
-               c.close();
-            }
-            catch (Exception e)
+            for (CountDownLatch latch : l)
             {
-               // Nothing to do
+               latch.countDown();
+               wakeup(latch);
             }
          }
       }
    }
 
    /**
-    * Client
+    * Unit of work, e.g. a transaction or a statement outside of a transaction
     */
-   static class Client implements Runnable
+   static class Unit implements Comparable<Unit>
    {
-      /** Identifier */
-      private int identifier;
-
-      /** Interaction data */
-      private List<DataEntry> interaction;
-
-      /** Client ready */
-      private CountDownLatch clientReady;
-
-      /** Client run */
-      private CountDownLatch clientRun;
-
-      /** Client done */
-      private CountDownLatch clientDone;
-
-      /** Success */
-      private boolean success;
-
-      /** Before connection */
-      private long beforeConnection;
+      /** The reader */
+      private UnitReader reader;
 
-      /** After connection */
-      private long afterConnection;
-
-      /** Before run */
-      private long beforeRun;
+      /** The sequence number in the client */
+      private long sequence;
 
-      /** After run */
-      private long afterRun;
+      /** The entries */
+      private List<DataEntry> entries;
 
-      /** Errors */
-      private int errors;
+      /** The timestamp and transaction identifier of the entries */
+      private List<String> timestamps;
 
       /**
        * Constructor
+       * @param reader The reader
+       * @param sequence The sequence number
        */
-      Client(int identifier, List<DataEntry> interaction,
-             CountDownLatch clientReady, CountDownLatch clientRun, CountDownLatch clientDone)
+      Unit(UnitReader reader, long sequence)
       {
-         this.identifier = identifier;
-         this.interaction = interaction;
-         this.clientReady = clientReady;
-         this.clientRun = clientRun;
-         this.clientDone = clientDone;
-         this.success = false;
-         this.beforeConnection = 0;
-         this.afterConnection = 0;
-         this.beforeRun = 0;
-         this.afterRun = 0;
-         this.errors = 0;
+         this.reader = reader;
+         this.sequence = sequence;
+         this.entries = new ArrayList<>();
+         this.timestamps = new ArrayList<>();
       }
 
       /**
-       * Get id
+       * Get the reader
        * @return The value
        */
-      int getId()
+      UnitReader getReader()
       {
-         return identifier;
+         return reader;
       }
 
       /**
-       * Is success
+       * Get the sequence number
        * @return The value
        */
-      boolean isSuccess()
+      long getSequence()
       {
-         return success;
+         return sequence;
       }
 
       /**
-       * Get the connection time
+       * Get the entries
        * @return The value
        */
-      long getConnectionTime()
+      List<DataEntry> getEntries()
       {
-         return afterConnection - beforeConnection;
+         return entries;
       }
 
       /**
-       * Get the run time
+       * Get the timestamps
        * @return The value
        */
-      long getRunTime()
+      List<String> getTimestamps()
       {
-         return afterRun - beforeRun;
+         return timestamps;
       }
-      
+
       /**
-       * Get number of statements
-       * @return The value
+       * Get the timestamp of the start of the unit
+       * @return The value, or an empty string if unknown
        */
-      int getStatements()
+      String getStart()
       {
-         return interaction.size();
+         if (timestamps.isEmpty() || timestamps.get(0) == null)
+            return "";
+
+         String ts = timestamps.get(0);
+         return ts.substring(0, ts.lastIndexOf("|"));
       }
 
       /**
-       * Get errors
+       * Get the timestamp of the end of the unit
+       * @return The value, or an empty string if unknown
+       */
+      String getEnd()
+      {
+         if (timestamps.isEmpty() || timestamps.get(timestamps.size() - 1) == null)
+            return "";
+
+         String ts = timestamps.get(timestamps.size() - 1);
+         return ts.substring(0, ts.lastIndexOf("|"));
+      }
+
+      /**
+       * Get the key of the unit; the first parameter of the first statement with parameters,
+       * or the first statement
        * @return The value
        */
-      int getErrors()
+      String getKey()
       {
-         return errors;
+         for (DataEntry de : entries)
+         {
+            if (de.getParameters() != null && de.getParameters().size() > 0)
+               return de.getParameters().get(0);
+         }
+
+         for (DataEntry de : entries)
+         {
+            if (!"BEGIN".equals(de.getStatement()))
+               return de.getStatement();
+         }
+
+         return "";
       }
 
       /**
-       * Do the interaction
+       * Write the unit
+       * @param cli The .cli writer
+       * @param ts The .ts writer
        */
-      public void run()
+      void write(BufferedWriter cli, BufferedWriter ts) throws Exception
       {
-         beforeConnection = System.currentTimeMillis();
-         XAConnection xc = null;
-         Xid xid = null;
-         Connection c = null;
-         DataEntry de = null;
-         try
+         for (int i = 0; i < entries.size(); i++)
          {
-            try
+            for (String s : entries.get(i).getData())
             {
-               if (xa)
-               {
-                  xc = getXAConnection();
-                  c = xc.getConnection();
-                  xid = new XidImpl(identifier);
-               }
-               else
-               {
-                  String url = null;
-                  if (!ngDriver)
-                  {
-                     url = "jdbc:postgresql://" + configuration.getProperty("host", "localhost") + ":" +
-                        configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
-                  }
-                  else
-                  {
-                     url = "jdbc:pgsql://" + configuration.getProperty("host", "localhost") + ":" +
-                        configuration.getProperty("port", "5432") + "/" + configuration.getProperty("database");
-                  }
-
-                  c = DriverManager.getConnection(url, configuration);
-               }
+               cli.write(s, 0, s.length());
+               cli.newLine();
             }
-            catch (Exception ce)
+
+            String t = timestamps.get(i);
+            if (t != null)
             {
-               clientReady.countDown();
-               throw ce;
+               ts.write(t, 0, t.length());
+               ts.newLine();
             }
+         }
+      }
 
-            clientReady.countDown();
-            clientRun.await();
-            beforeRun = System.currentTimeMillis();
+      /**
+       * {@inheritDoc}
+       */
+      public int compareTo(Unit u)
+      {
+         int result = getStart().compareTo(u.getStart());
 
-            for (int counter = 0; counter < interaction.size(); counter++)
-            {
-               de = interaction.get(counter);
-               if ("BEGIN".equals(de.getStatement()))
-               {
-                  c.setAutoCommit(false);
-                  if (xa)
-                  {
-                     xc.getXAResource().start(xid, XAResource.TMNOFLAGS);
-                  }
-               }
-               else if ("ROLLBACK".equals(de.getStatement()))
-               {
-                  if (xa)
-                  {
-                     xc.getXAResource().end(xid, XAResource.TMFAIL);
-                     xc.getXAResource().prepare(xid);
-                     xc.getXAResource().rollback(xid);
-                  }
-                  else
-                  {
-                     c.rollback();
-                  }
-                  c.setAutoCommit(true);
-               }
-               else if ("COMMIT".equals(de.getStatement()))
-               {
-                  if (xa)
-                  {
-                     xc.getXAResource().end(xid, XAResource.TMSUCCESS);
-                     xc.getXAResource().prepare(xid);
-                     xc.getXAResource().commit(xid, false);
-                  }
-                  else
-                  {
-                     c.commit();
-                  }
-                  c.setAutoCommit(true);
-               }
-               else
-               {
-                  if (!de.isPrepared())
-                  {
-                     Statement stmt = c.createStatement();
-                     try
-                     {
-                        if (stmt.execute(de.getStatement()) && resultSet)
-                        {
-                           ResultSet rs = stmt.getResultSet();
-                           while (rs.next())
-                           {
-                              // Just advance
-                           }
-                           rs.close();
-                        }
-                     }
-                     catch (Exception sqle)
-                     {
-                        if (error)
-                        {
-                           errors++;
-                        }
-                        else
-                        {
-                           throw sqle;
-                        }
-                     }
-                     finally
-                     {
-                        stmt.close();
-                     }
-                  }
-                  else
-                  {
-                     PreparedStatement ps = c.prepareStatement(de.getStatement());
+         if (result == 0)
+            result = Long.compare(sequence, u.sequence);
 
-                     List<Integer> types = de.getTypes();
-                     List<String> parameters = de.getParameters();
+         if (result == 0)
+            result = Integer.compare(reader.getId(), u.reader.getId());
 
-                     if (types != null)
-                     {
-                        for (int i = 0; i < types.size(); i++)
-                        {
-                           int type = types.get(i);
-                           String value = parameters.get(i);
-
-                           if ("null".equals(value))
-                           {
-                              ps.setObject(i + 1, null);
-                           }
-                           else
-                           {
-                              switch (type)
-                              {
-                                 case Types.BINARY:
-                                    ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
-                                    break;
-                                 case Types.BIT:
-                                    ps.setBoolean(i + 1, Boolean.valueOf(value));
-                                    break;
-                                 case Types.BIGINT:
-                                    ps.setLong(i + 1, Long.valueOf(value));
-                                    break;
-                                 case Types.BOOLEAN:
-                                    ps.setBoolean(i + 1, Boolean.valueOf(value));
-                                    break;
-                                 case Types.CHAR:
-                                    ps.setString(i + 1, value);
-                                    break;
-                                 case Types.DATE:
-                                    ps.setDate(i + 1, java.sql.Date.valueOf(value));
-                                    break;
-                                 case Types.DECIMAL:
-                                    ps.setDouble(i + 1, Double.valueOf(value));
-                                    break;
-                                 case Types.DOUBLE:
-                                    ps.setDouble(i + 1, Double.valueOf(value));
-                                    break;
-                                 case Types.FLOAT:
-                                    ps.setFloat(i + 1, Float.valueOf(value));
-                                    break;
-                                 case Types.INTEGER:
-                                    ps.setInt(i + 1, Integer.valueOf(value));
-                                    break;
-                                 case Types.LONGVARBINARY:
-                                    ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
-                                    break;
-                                 case Types.LONGVARCHAR:
-                                    ps.setString(i + 1, value);
-                                    break;
-                                 case Types.NUMERIC:
-                                    ps.setDouble(i + 1, Double.valueOf(value));
-                                    break;
-                                 case Types.REAL:
-                                    ps.setFloat(i + 1, Float.valueOf(value));
-                                    break;
-                                 case Types.SMALLINT:
-                                    ps.setShort(i + 1, Short.valueOf(value));
-                                    break;
-                                 case Types.TIME:
-                                 case Types.TIME_WITH_TIMEZONE:
-                                    ps.setTime(i + 1, java.sql.Time.valueOf(value));
-                                    break;
-                                 case Types.TIMESTAMP:
-                                 case Types.TIMESTAMP_WITH_TIMEZONE:
-                                    ps.setTimestamp(i + 1, java.sql.Timestamp.valueOf(value));
-                                    break;
-                                 case Types.TINYINT:
-                                    ps.setShort(i + 1, Short.valueOf(value));
-                                    break;
-                                 case Types.VARBINARY:
-                                    ps.setBytes(i + 1, DatatypeConverter.parseHexBinary(value.substring(2)));
-                                    break;
-                                 case Types.VARCHAR:
-                                    ps.setString(i + 1, value);
-                                    break;
-                                 case Types.OTHER:
-                                    boolean isNumber = true;
-
-                                    for (int ch = 0; isNumber && ch < value.length(); ch++)
-                                    {
-                                       if (!Character.isDigit(value.charAt(ch)))
-                                          isNumber = false;
-                                    }
-
-                                    if (isNumber)
-                                    {
-                                       Long number = Long.parseLong(value);
-                                       if (number.longValue() < Short.MAX_VALUE)
-                                       {
-                                          ps.setShort(i + 1, number.shortValue());
-                                       }
-                                       else if (number.longValue() < Integer.MAX_VALUE)
-                                       {
-                                          ps.setInt(i + 1, number.intValue());
-                                       }
-                                       else
-                                       {
-                                          ps.setLong(i + 1, number.longValue());
-                                       }
-                                    }
-                                    else
-                                    {
-                                       try
-                                       {
-                                          UUID uuid = UUID.fromString(value);
-                                          ps.setObject(i + 1, uuid);
-                                       }
-                                       catch (Exception e)
-                                       {
-                                          ps.setObject(i + 1, value);
-                                       }
-                                    }
-
-                                    break;
-                                 default:
-                                    System.out.println("Unsupported value: " + type);
-                                    break;
-                              }
-                           }
-                        }
-                     }
-                     
-                     try
-                     {
-                        if (ps.execute() && resultSet)
-                        {
-                           ResultSet rs = ps.getResultSet();
-                           while (rs.next())
-                           {
-                              // Just advance
-                           }
-                           rs.close();
-                        }
-                     }
-                     catch (Exception sqle)
-                     {
-                        if (error)
-                        {
-                           errors++;
-                        }
-                        else
-                        {
-                           throw sqle;
-                        }
-                     }
-                     finally
-                     {
-                        ps.close();
-                     }
-                  }
-               }
-            }
-            
-            afterRun = System.currentTimeMillis();
-            success = true;
-         }
-         catch (Exception e)
-         {
-            beforeRun = 0;
-            afterRun = 0;
+         return result;
+      }
+   }
 
-            System.out.println("Exception from client " + identifier);
-            System.out.println(de);
-            e.printStackTrace();
-         }
-         finally
+   /**
+    * Unit reader, which streams the units of work of a client
+    */
+   static class UnitReader implements Closeable
+   {
+      /** The identifier of the client */
+      private int id;
+
+      /** The interaction */
+      private InteractionReader interaction;
+
+      /** The timestamps */
+      private BufferedReader timestamps;
+
+      /** The number of units read */
+      private long units;
+
+      /**
+       * Constructor
+       * @param id The identifier of the client
+       * @param cli The .cli file
+       * @param ts The .ts file, which may not exist
+       */
+      UnitReader(int id, Path cli, Path ts) throws Exception
+      {
+         this.id = id;
+         this.interaction = new InteractionReader(cli, readAhead, 1);
+         this.timestamps = Files.exists(ts) ? Files.newBufferedReader(ts) : null;
+         this.units = 0;
+      }
+
+      /**
+       * Get the identifier
+       * @return The value
+       */
+      int getId()
+      {
+         return id;
+      }
+
+      /**
+       * Get the next unit
+       * @return The unit, or <code>null</code> if there are no more units
+       */
+      Unit next() throws Exception
+      {
+         DataEntry de = interaction.next();
+
+         if (de == null)
+            return null;
+
+         Unit u = new Unit(this, units++);
+         add(u, de);
+
+         if ("BEGIN".equals(de.getStatement()))
          {
-            if (c != null)
+            de = interaction.next();
+            while (de != null)
             {
-               try
-               {
-                  c.close();
-               }
-               catch (Exception e)
-               {
-                  // Nothing to do
-               }
+               add(u, de);
+
+               if ("COMMIT".equals(de.getStatement()) || "ROLLBACK".equals(de.getStatement()))
+                  break;
+
+               de = interaction.next();
             }
-            afterConnection = System.currentTimeMillis();
-            clientDone.countDown();
          }
+
+         return u;
       }
-   }
 
+      /**
+       * Add an entry to a unit
+       * @param u The unit
+       * @param de The entry
+       */
+      private void add(Unit u, DataEntry de) throws Exception
+      {
+         u.getEntries().add(de);
+         u.getTimestamps().add(timestamps != null ? timestamps.readLine() : null);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      public void close() throws IOException
+      {
+         interaction.close();
+
+         if (timestamps != null)
+            timestamps.close();
+      }
+   }
 
    /**
     * Log entry
@@ -1900,6 +6141,9 @@ public class Replay
       private String statement;
       private List<Integer> types;
       private List<String> parameters;
+      private Boolean dml;
+      private boolean returning;
+      private boolean select;
       
       DataEntry()
       {
@@ -1907,6 +6151,9 @@ public class Replay
          statement = null;
          types = null;
          parameters = null;
+         dml = null;
+         returning = false;
+         select = false;
       }
 
       DataEntry(String p, String s, String t, String pa)
@@ -1979,6 +6226,44 @@ public class Replay
       void setStatement(String v)
       {
          statement = v;
+         dml = null;
+      }
+
+      /**
+       * Is DML, e.g. an INSERT, UPDATE or DELETE
+       * @return The value
+       */
+      boolean isDML()
+      {
+         if (dml == null)
+         {
+            String s = statement.trim().toUpperCase(Locale.US);
+
+            dml = Boolean.valueOf(s.startsWith("INSERT") || s.startsWith("UPDATE") || s.startsWith("DELETE"));
+            returning = s.indexOf("RETURNING") != -1;
+            select = s.startsWith("SELECT") || s.startsWith("WITH");
+         }
+
+         return dml.booleanValue();
+      }
+
+      /**
+       * Is SELECT
+       * @return The value
+       */
+      boolean isSelect()
+      {
+         isDML();
+         return select;
+      }
+
+      /**
+       * Is batchable, e.g. DML that doesn't return a ResultSet
+       * @return The value
+       */
+      boolean isBatchable()
+      {
+         return isDML() && !returning;
       }
       
       /**
@@ -2073,19 +6358,29 @@ public class Replay
    }
 
    /**
-    * Basic Xid implementation
+    * Basic Xid implementation. The global transaction identifier is made up of
+    * the run, the client and the transaction, so each transaction has its own Xid
     */
    static class XidImpl implements Xid
    {
-      private int id;
+      /** The format identifier of Replay */
+      static final int FORMAT_ID = 0x52504c59;
+
+      private long run;
+      private int client;
+      private long transaction;
 
       /**
        * Constructor
-       * @param id The identifier
+       * @param run The run
+       * @param client The client
+       * @param transaction The transaction
        */
-      public XidImpl(int id)
+      public XidImpl(long run, int client, long transaction)
       {
-         this.id = id;
+         this.run = run;
+         this.client = client;
+         this.transaction = transaction;
       }
 
       /**
@@ -2093,7 +6388,7 @@ public class Replay
        */
       public int getFormatId()
       {
-         return id;
+         return FORMAT_ID;
       }
 
       /**
@@ -2101,7 +6396,7 @@ public class Replay
        */
       public byte[] getGlobalTransactionId()
       {
-         return new byte[] {(byte)(id >>> 24), (byte)(id >>> 16), (byte)(id >>> 8), (byte)id};
+         return ByteBuffer.allocate(20).putLong(run).putInt(client).putLong(transaction).array();
       }
 
       /**
@@ -2109,7 +6404,7 @@ public class Replay
        */
       public byte[] getBranchQualifier()
       {
-         return new byte[] {(byte)(id >>> 24), (byte)(id >>> 16), (byte)(id >>> 8), (byte)id};
+         return ByteBuffer.allocate(4).putInt(client).array();
       }
 
       /**
@@ -2118,7 +6413,7 @@ public class Replay
       @Override
       public int hashCode()
       {
-         return id;
+         return (int)(run ^ (run >>> 32)) + 31 * client + 7 * (int)(transaction ^ (transaction >>> 32));
       }
 
       /**
@@ -2135,7 +6430,7 @@ public class Replay
 
          XidImpl x = (XidImpl)other;
 
-         return id == x.id;
+         return run == x.run && client == x.client && transaction == x.transaction;
       }
    }
 }
@@ -25,15 +25,25 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -44,6 +54,17 @@ import java.util.Properties;
 import java.util.Random;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 
 /**
  * Generate a SQL workload for Replay
@@ -120,6 +141,51 @@ public class SQLLoadGenerator
    /** UPDATE: Foreign keys */
    private static final int UPDATE_FOREIGNKEY = 1;
 
+   /** Distribution: Uniform */
+   private static final int DISTRIBUTION_UNIFORM = 0;
+
+   /** Distribution: Zipfian */
+   private static final int DISTRIBUTION_ZIPFIAN = 1;
+
+   /** Distribution: Hotspot */
+   private static final int DISTRIBUTION_HOTSPOT = 2;
+
+   /** Distribution: Latest */
+   private static final int DISTRIBUTION_LATEST = 3;
+
+   /** Default Zipfian theta */
+   private static final double DEFAULT_DISTRIBUTION_THETA = 0.99;
+
+   /** Default percentage of hot keys */
+   private static final int DEFAULT_DISTRIBUTION_HOTSPOT = 20;
+
+   /** Default percentage of access to the hot keys */
+   private static final int DEFAULT_DISTRIBUTION_HOTSPOT_ACCESS = 80;
+
+   /** Default duration of a run in seconds; 0 runs the statements */
+   private static final int DEFAULT_DURATION = 0;
+
+   /** Default statements per second for a client; 0 is unlimited */
+   private static final int DEFAULT_RATE = 0;
+
+   /** Default percentage of statements targeting the hot partitions */
+   private static final int DEFAULT_PARTITION_MIX = 0;
+
+   /** Default number of hot partitions */
+   private static final int DEFAULT_PARTITION_HOT = 1;
+
+   /** Attempts to generate a new primary key for the targeted partition */
+   private static final int PARTITION_ATTEMPTS = 1000;
+
+   /** Seed of the hash partitioning in PostgreSQL */
+   private static final long HASH_PARTITION_SEED = 0x7A5B22367996DCFDL;
+
+   /** Rows per generation range */
+   private static final int RANGE_ROWS = 10000;
+
+   /** Time used for the data of a seeded profile: 2020-01-01 00:00:00 UTC */
+   private static final long SEED_TIME = 1577836800000L;
+
    /** Profile */
    private static Properties profile;
 
@@ -129,8 +195,26 @@ public class SQLLoadGenerator
    /** Statement scale */
    private static double statementScale = DEFAULT_SCALE;
 
-   /** Random */
-   private static Random random = new Random();
+   /** Seed */
+   private static long seed;
+
+   /** Time */
+   private static long time;
+
+   /** Load the data into the database */
+   private static boolean load = false;
+
+   /** Run the workload against the database */
+   private static boolean run = false;
+
+   /** Statements before the load */
+   private static List<String> loadTables = new ArrayList<>();
+
+   /** Statements after the load */
+   private static List<String> loadConstraints = new ArrayList<>();
+
+   /** Random stream of each thread */
+   private static ThreadLocal<Random> streams = new ThreadLocal<>();
 
    /** Column names   Table   Names */
    private static Map<String, List<String>> columnNames = new HashMap<>();
@@ -141,8 +225,14 @@ public class SQLLoadGenerator
    /** Primary keys   Table   Column */
    private static Map<String, String> primaryKeys = new HashMap<>();
 
-   /** Active PKs     Table       Client           PKs */
-   private static Map<String, Map<Integer, List<String>>> activePKs = new HashMap<>();
+   /** Pseudo PKs     Table (first column, no primary key) */
+   private static Set<String> pseudoPrimaryKeys = new HashSet<>();
+
+   /** Partitions     Table       Number */
+   private static Map<String, Integer> partitionCounts = new HashMap<>();
+
+   /** Active PKs     Table       Client       PKs */
+   private static Map<String, Map<Integer, KeyRegistry>> activePKs = new ConcurrentHashMap<>();
 
    /** Foreign keys   Table       Column */
    private static Map<String, Set<String>> foreignKeys = new HashMap<>();
@@ -160,13 +250,16 @@ public class SQLLoadGenerator
    private static Map<String, Map<String, Set<String>>> uniques = new HashMap<>();
 
    /** Workload statements */
-   private static Set<String> wStatements = new HashSet();
+   private static Set<String> wStatements = ConcurrentHashMap.newKeySet();
 
    /** SERIAL         Table   Counter */
-   private static Map<String, Long> serials = new HashMap<>();
+   private static Map<String, Long> serials = new ConcurrentHashMap<>();
+
+   /** Distributions  Key */
+   private static Map<String, Distribution> distributions = new ConcurrentHashMap<>();
 
    /** Index          Table       Def           Client        Values */
-   private static Map<String, Map<IndexDef, Map<Integer, List<IndexVal>>>> indexes = new HashMap<>();
+   private static Map<String, Map<IndexDef, Map<Integer, IndexValues>>> indexes = new HashMap<>();
 
    /**
     * Write data to a file
@@ -417,48 +510,14 @@ public class SQLLoadGenerator
                columnNames.put(tableName, colNames);
                columnTypes.put(tableName, colTypes);
             
-               StringBuilder sb = new StringBuilder();
-               sb.append("CREATE TABLE ");
-               sb.append(tableName);
-               sb.append(" (");
-               for (int i = 0; i < colNames.size(); i++)
-               {
-                  sb.append(colNames.get(i));
-                  sb.append(" ");
-                  sb.append(colTypes.get(i));
-                  if (primaryKey != null && primaryKey.equals(colNames.get(i)))
-                  {
-                     sb.append(" PRIMARY KEY");
-                  }
-                  else if (!isNullable(tableName, colNames.get(i)))
-                  {
-                     sb.append(" NOT NULL");
-                  }
-                  if (i < colNames.size() - 1)
-                     sb.append(", ");
-               }
-               sb.append(")");
+               int first = l.size();
+               l.add(getCreateTable(tableName, colNames, colTypes, primaryKey, tPartitions, true));
+               StringBuilder sb;
 
                if (tPartitions > 0)
                {
-                  sb.append(" PARTITION BY HASH (");
-                  if (primaryKey != null)
-                  {
-                     sb.append(primaryKey);
-                  }
-                  else
-                  {
-                     sb.append(colNames.get(0));
-                  }
-                  sb.append(")");
-               }
-
-               sb.append(";");
+                  partitionCounts.put(tableName, Integer.valueOf(tPartitions));
 
-               l.add(sb.toString());
-
-               if (tPartitions > 0)
-               {
                   for (int t = 0; t < tPartitions; t++)
                   {
                      sb = new StringBuilder();
@@ -508,7 +567,14 @@ public class SQLLoadGenerator
 
                l.addAll(colDescriptions);
 
-               if (primaryKey == null)
+               loadTables.add(getCreateTable(tableName, colNames, colTypes, primaryKey, tPartitions, false));
+               loadTables.addAll(l.subList(first + 1, l.size()));
+
+               if (primaryKey != null)
+               {
+                  loadConstraints.add("ALTER TABLE " + tableName + " ADD PRIMARY KEY (" + primaryKey + ");");
+               }
+               else
                {
                   sb = new StringBuilder();
                   sb.append("CREATE INDEX idx_");
@@ -526,8 +592,10 @@ public class SQLLoadGenerator
                   sb.append(");");
 
                   l.add(sb.toString());
+                  loadConstraints.add(sb.toString());
 
                   primaryKeys.put(tableName, colNames.get(0));
+                  pseudoPrimaryKeys.add(tableName);
                }
             }
             else
@@ -538,7 +606,10 @@ public class SQLLoadGenerator
       }
       
       if (alter.size() > 0)
+      {
          l.addAll(alter);
+         loadConstraints.addAll(alter);
+      }
 
       e = profile.propertyNames();
 
@@ -582,6 +653,7 @@ public class SQLLoadGenerator
             sb.append(");");
             
             l.add(sb.toString());
+            loadConstraints.add(sb.toString());
 
             List<String> columns = new ArrayList<>();
             StringTokenizer st = new StringTokenizer(cols, ",");
@@ -597,2188 +669,4542 @@ public class SQLLoadGenerator
    }
 
    /**
-    * Write data.sql
-    * @param profileName The name of the profile
+    * Get the CREATE TABLE statement of a table
+    * @param tableName The name of the table
+    * @param colNames The column names
+    * @param colTypes The column types
+    * @param primaryKey The primary key, or null
+    * @param partitions The number of partitions
+    * @param inline Define the primary key as part of the table
+    * @return The statement
     */
-   private static void writeData(String profileName) throws Exception
+   private static String getCreateTable(String tableName, List<String> colNames, List<String> colTypes,
+                                        String primaryKey, int partitions, boolean inline)
    {
-      List<String> l = new ArrayList<>();
-
-      l.add("BEGIN;");
-      l.add("");
-
-      // No dependencies
-      for (String tableName : columnNames.keySet())
+      StringBuilder sb = new StringBuilder();
+      sb.append("CREATE TABLE ");
+      sb.append(tableName);
+      sb.append(" (");
+      for (int i = 0; i < colNames.size(); i++)
       {
-         if (!fromTo.containsKey(tableName))
+         sb.append(colNames.get(i));
+         sb.append(" ");
+         sb.append(colTypes.get(i));
+         if (primaryKey != null && primaryKey.equals(colNames.get(i)))
          {
-            l.addAll(getINSERT(tableName));
-            l.add("");
+            sb.append(inline ? " PRIMARY KEY" : " NOT NULL");
          }
+         else if (!isNullable(tableName, colNames.get(i)))
+         {
+            sb.append(" NOT NULL");
+         }
+         if (i < colNames.size() - 1)
+            sb.append(", ");
       }
+      sb.append(")");
 
-      // Dependencies
-      for (String tableName : columnNames.keySet())
+      if (partitions > 0)
       {
-         if (fromTo.containsKey(tableName))
+         sb.append(" PARTITION BY HASH (");
+         if (primaryKey != null)
+         {
+            sb.append(primaryKey);
+         }
+         else
          {
-            l.addAll(getINSERT(tableName));
-            l.add("");
+            sb.append(colNames.get(0));
          }
+         sb.append(")");
       }
 
-      l.add("COMMIT;");
-      l.add("");
+      sb.append(";");
 
-      l.add("ANALYZE;");
-      writeFile(Paths.get(profileName, "data.sql"), l);
+      return sb.toString();
    }
 
    /**
-    * Get INSERTs for a table
-    * @param tableName The name of the table
-    * @return The INSERT data
+    * Write data.sql, and the data of each table to data/&lt;table&gt;.sql.
+    * Tables are generated in dependency order, and the tables of each level
+    * are generated concurrently
+    * @param profileName The name of the profile
     */
-   private static List<String> getINSERT(String tableName) throws Exception
+   private static void writeData(String profileName) throws Exception
    {
-      int rows = getRows(tableName);
-      List<String> colNames = columnNames.get(tableName);
-      List<String> colTypes = columnTypes.get(tableName);
-
-      List<String> l = new ArrayList<>(rows);
+      boolean copy = "copy".equalsIgnoreCase(profile.getProperty("data.format", "insert"));
+      int threads = profile.getProperty("threads") != null ?
+         Integer.parseInt(profile.getProperty("threads")) : Runtime.getRuntime().availableProcessors();
+      ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+      List<String> l = new ArrayList<>();
+      List<String> remaining = new ArrayList<>(columnNames.keySet());
+      Set<String> done = new HashSet<>();
+      long start = System.currentTimeMillis();
 
-      for (int row = 1; row <= rows; row++)
+      if (load)
+      {
+         execute(loadTables);
+      }
+      else
       {
-         List<String> colValues = new ArrayList<>(colNames.size());
+         Files.createDirectory(Paths.get(profileName, "data"));
+      }
 
-         StringBuilder sb = new StringBuilder();
-         sb.append("INSERT INTO ");
-         sb.append(tableName);
-         sb.append(" (");
-         for (int i = 0; i < colNames.size(); i++)
-         {
-            if (!isSerial(colTypes.get(i)))
-            {
-               sb.append(colNames.get(i));
-               if (i < colNames.size() - 1)
-                  sb.append(", ");
-            }
-         }
-         sb.append(") VALUES (");
-         for (int i = 0; i < colTypes.size(); i++)
+      try
+      {
+         while (!remaining.isEmpty())
          {
-            String colType = colTypes.get(i);
-            String val;
-            if (!isSerial(colType))
+            List<String> level = new ArrayList<>();
+            for (String tableName : remaining)
             {
-               if (isPrimaryKey(tableName, colNames.get(i)))
-               {
-                  val = generatePrimaryKey(0, tableName, colNames.get(i), colType, row, false);
-               }
-               else if (isForeignKey(tableName, colNames.get(i)))
-               {
-                  val = generateForeignKey(0, tableName, colNames.get(i));
-               }
-               else if (isUnique(tableName, colNames.get(i)))
-               {
-                  val = generateUnique(tableName, colNames.get(i), colType);
-               }
-               else
+               Set<String> dependencies = new HashSet<>();
+               if (fromTo.containsKey(tableName))
                {
-                  val = getData(tableName, colNames.get(i), colType, row, i == 0 ? false : true);
+                  dependencies.addAll(fromTo.get(tableName));
+                  dependencies.remove(tableName);
                }
 
-               if (!"NULL".equals(val) && mustEscape(colType))
-                  sb.append("\'");
-               if (isPrimaryKey(tableName, colNames.get(i)))
-               {
-                  sb.append(val);
-               }
-               else if (isForeignKey(tableName, colNames.get(i)))
-               {
-                  sb.append(val);
-               }
-               else if (isUnique(tableName, colNames.get(i)))
+               if (done.containsAll(dependencies))
+                  level.add(tableName);
+            }
+
+            // Circular dependencies; the tables read the keys of each other, so they are generated one at a time
+            if (level.isEmpty())
+            {
+               level.addAll(remaining);
+
+               for (String tableName : level)
                {
-                  sb.append(val);
+                  writeTable(profileName, tableName, copy || load, pool, true);
                }
-               else
+            }
+            else
+            {
+               ExecutorService es = Executors.newFixedThreadPool(level.size());
+               try
                {
-                  sb.append(val);
-                  if (i == 0)
+                  List<Future<Object>> futures = new ArrayList<>();
+                  for (String tableName : level)
                   {
-                     Map<Integer, List<String>> m = activePKs.get(tableName);
-
-                     if (m == null)
-                        m = new HashMap<>();
-
-                     List<String> gen = m.get(Integer.valueOf(0));
+                     boolean self = fromTo.containsKey(tableName) && fromTo.get(tableName).contains(tableName);
 
-                     if (gen == null)
-                        gen = new ArrayList<>(getRows(tableName));
-
-                     gen.add(val);
-                     m.put(Integer.valueOf(0), gen);
-                     activePKs.put(tableName, m);
+                     futures.add(es.submit(new Callable<Object>()
+                     {
+                        public Object call() throws Exception
+                        {
+                           writeTable(profileName, tableName, copy || load, pool, self);
+                           return null;
+                        }
+                     }));
                   }
+
+                  for (Future<Object> f : futures)
+                     f.get();
+               }
+               finally
+               {
+                  es.shutdown();
                }
-               if (!"NULL".equals(val) && mustEscape(colType))
-                  sb.append("\'");
-               if (i < colTypes.size() - 1)
-                  sb.append(", ");
             }
-            else
+
+            for (String tableName : level)
             {
-               // In order to init the activePKs map
-               val = generatePrimaryKey(0, tableName, colNames.get(i), colType, row, false);
+               l.add("\\ir data/" + tableName + ".sql");
             }
 
-            colValues.add(val);
+            done.addAll(level);
+            remaining.removeAll(level);
          }
-         sb.append(");");
+      }
+      finally
+      {
+         pool.shutdown();
+      }
 
-         l.add(sb.toString());
+      if (load)
+      {
+         loadConstraints.add("ANALYZE;");
+         execute(loadConstraints);
 
-         insertIndex(0, tableName, colNames, colValues);
+         System.out.println("Load: " + (System.currentTimeMillis() - start) + " ms");
       }
+      else
+      {
+         l.add("");
+         l.add("ANALYZE;");
 
-      return l;
+         writeFile(Paths.get(profileName, "data.sql"), l);
+      }
    }
 
    /**
-    * Write workload
+    * Get a connection to the database of the profile
+    * @return The connection
+    */
+   private static Connection getConnection() throws Exception
+   {
+      String url = profile.getProperty("url");
+
+      if (url == null)
+      {
+         String host = profile.getProperty("host", "localhost");
+         int port = Integer.valueOf(profile.getProperty("port", "5432"));
+         String database = profile.getProperty("database");
+
+         if (database == null)
+            throw new Exception("database not defined");
+
+         url = "jdbc:postgresql://" + host + ":" + port + "/" + database;
+      }
+
+      Properties p = new Properties();
+
+      if (profile.getProperty("user") != null)
+         p.setProperty("user", profile.getProperty("user"));
+
+      if (profile.getProperty("password") != null)
+         p.setProperty("password", profile.getProperty("password"));
+
+      return DriverManager.getConnection(url, p);
+   }
+
+   /**
+    * Execute statements against the database of the profile
+    * @param l The statements
+    */
+   private static void execute(List<String> l) throws Exception
+   {
+      Connection c = null;
+      Statement stmt = null;
+
+      try
+      {
+         c = getConnection();
+         stmt = c.createStatement();
+
+         for (String s : l)
+         {
+            stmt.execute(s);
+         }
+      }
+      finally
+      {
+         if (stmt != null)
+            stmt.close();
+
+         if (c != null)
+            c.close();
+      }
+   }
+
+   /**
+    * Write a line
+    * @param bw The writer
+    * @param s The line
+    */
+   private static void writeLine(BufferedWriter bw, String s) throws Exception
+   {
+      bw.write(s, 0, s.length());
+      bw.newLine();
+   }
+
+   /**
+    * Write the data of a table, either as INSERTs or as a COPY block, or
+    * stream it through COPY into the database when loading.
+    * The rows are generated in ranges on the pool, and written in order.
+    * A table that references its own keys, or is part of a circular dependency,
+    * is generated in order on the calling thread, and registers each key when
+    * its row is generated
     * @param profileName The name of the profile
+    * @param tableName The name of the table
+    * @param copy Use COPY
+    * @param pool The pool
+    * @param sequential Generate the ranges in order on the calling thread
     */
-   private static void writeWorkload(String profileName) throws Exception
+   private static void writeTable(String profileName, String tableName, boolean copy, ForkJoinPool pool,
+                                  boolean sequential) throws Exception
    {
-      int clients = profile.getProperty("clients") != null ?
-         Integer.parseInt(profile.getProperty("clients")) : DEFAULT_CLIENTS;
-      int statements = profile.getProperty("statements") != null ?
-         Integer.parseInt(profile.getProperty("statements")) : DEFAULT_STATEMENTS;
-      int mspt = profile.getProperty("mspt") != null ?
-         Integer.parseInt(profile.getProperty("mspt")) : DEFAULT_MAX_STATEMENTS_PER_TRANSACTION;
-      int mixSelect = profile.getProperty("mix.select") != null ?
-         Integer.parseInt(profile.getProperty("mix.select")) : DEFAULT_MIX_SELECT;
-      int mixUpdate = profile.getProperty("mix.update") != null ?
-         Integer.parseInt(profile.getProperty("mix.update")) : DEFAULT_MIX_UPDATE;
-      int mixInsert = profile.getProperty("mix.insert") != null ?
-         Integer.parseInt(profile.getProperty("mix.insert")) : DEFAULT_MIX_INSERT;
-      int mixDelete = profile.getProperty("mix.delete") != null ?
-         Integer.parseInt(profile.getProperty("mix.delete")) : DEFAULT_MIX_DELETE;
-      int commit = profile.getProperty("commit") != null ?
-         Integer.parseInt(profile.getProperty("commit")) : DEFAULT_COMMIT;
-      int rollback = profile.getProperty("rollback") != null ?
-         Integer.parseInt(profile.getProperty("rollback")) : DEFAULT_ROLLBACK;
-
-      int totalSelect = 0;
-      int totalUpdate = 0;
-      int totalInsert = 0;
-      int totalDelete = 0;
-      int[] totalDistTx = new int[mspt];
-      int totalTx = 0;
-      int totalTxC = 0;
-      int totalTxR = 0;
-      int select = 0;
-      int update = 0;
-      int insert = 0;
-      int delete = 0;
-      int tx = 0;
-      int txC = 0;
-      int txR = 0;
-      int[] distTx = new int[mspt];
+      int rows = getRows(tableName);
+      List<String> colNames = columnNames.get(tableName);
+      List<String> colTypes = columnTypes.get(tableName);
+      String pk = primaryKeys.get(tableName);
+      String pkType = colTypes.get(Math.max(0, colNames.indexOf(pk)));
+      KeyRegistry gen = getKeyRegistry(0, tableName, true);
 
-      List<String> tableNames = new ArrayList<>(columnNames.size());
-      for (String tableName : columnNames.keySet())
+      StringBuilder columns = new StringBuilder();
+      for (int i = 0; i < colNames.size(); i++)
       {
-         tableNames.add(tableName);
+         if (!isSerial(colTypes.get(i)))
+         {
+            columns.append(colNames.get(i));
+            if (i < colNames.size() - 1)
+               columns.append(", ");
+         }
       }
-      
-      for (int i = 1; i <= clients; i++)
+
+      // Random keys must be unique over the table, so they are drawn up front
+      String[] keys = null;
+      if (isDataRandom(pkType) && !sequential)
       {
-         select = 0;
-         update = 0;
-         insert = 0;
-         delete = 0;
-         tx = 0;
-         txC = 0;
-         txR = 0;
-         distTx = new int[mspt];
-
-         int cStatements = profile.getProperty("client." + i + ".statements") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".statements")) : statements;
-         int cMixSelect = profile.getProperty("client." + i + ".mix.select") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".mix.select")) : mixSelect;
-         int cMixUpdate = profile.getProperty("client." + i + ".mix.update") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".mix.update")) : mixUpdate;
-         int cMixInsert = profile.getProperty("client." + i + ".mix.insert") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".mix.insert")) : mixInsert;
-         int cMixDelete = profile.getProperty("client." + i + ".mix.delete") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".mix.delete")) : mixDelete;
-         int cCommit = profile.getProperty("client." + i + ".commit") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".commit")) : commit;
-         int cRollback = profile.getProperty("client." + i + ".rollback") != null ?
-            Integer.parseInt(profile.getProperty("client." + i + ".rollback")) : rollback;
-
-         cStatements = (int)(statementScale * cStatements);
-
-         if (cStatements == 0)
-            continue;
+         streams.set(getStream(tableName, -1));
 
-         List<String> l = new ArrayList<>();
-         int statement = 0;
-         while (statement <= cStatements)
-         {
-            int numberOfStatements = random.nextInt(mspt + 1);
-            if (numberOfStatements == 0)
-               numberOfStatements = 1;
-
-            l.add("P");
-            l.add("BEGIN");
-            l.add("");
-            l.add("");
-            totalTx++;
-            tx++;
-
-            distTx[numberOfStatements - 1]++;
-            totalDistTx[numberOfStatements - 1]++;
-
-            for (int s = 0; s < numberOfStatements; s++)
-            {
-               String table = tableNames.get(random.nextInt(tableNames.size()));
-               List<String> colNames = columnNames.get(table);
-               List<String> colTypes = columnTypes.get(table);
-               int type = 0;
-               List<String> result = null;
-
-               int tMixSelect = profile.getProperty(table + ".mix.select") != null ?
-                  Integer.parseInt(profile.getProperty(table + ".mix.select")) : cMixSelect;
-               int tMixUpdate = profile.getProperty(table + ".mix.update") != null ?
-                  Integer.parseInt(profile.getProperty(table + ".mix.update")) : cMixUpdate;
-               int tMixInsert = profile.getProperty(table + ".mix.insert") != null ?
-                  Integer.parseInt(profile.getProperty(table + ".mix.insert")) : cMixInsert;
-               int tMixDelete = profile.getProperty(table + ".mix.delete") != null ?
-                  Integer.parseInt(profile.getProperty(table + ".mix.delete")) : cMixDelete;
-
-               int size = tMixSelect + tMixUpdate + tMixInsert + tMixDelete;
-               int[] tDistribution = new int[size];
-               for (int ti = 0; ti < tMixSelect; ti++)
-               {
-                  tDistribution[ti] = 0;
-               }
-               for (int ti = 0; ti < tMixUpdate; ti++)
-               {
-                  tDistribution[ti + tMixSelect] = 1;
-               }
-               for (int ti = 0; ti < tMixInsert; ti++)
-               {
-                  tDistribution[ti + tMixSelect + tMixUpdate] = 2;
-               }
-               for (int ti = 0; ti < tMixDelete; ti++)
-               {
-                  tDistribution[ti + tMixSelect + tMixUpdate + tMixDelete] = 3;
-               }
+         keys = new String[rows];
+         for (int row = 1; row <= rows; row++)
+         {
+            keys[row - 1] = generatePrimaryKey(0, tableName, pk, pkType, row, false);
+         }
+      }
 
-               type = tDistribution[random.nextInt(cMixSelect + cMixUpdate + cMixInsert + cMixDelete)];
+      BufferedWriter bw = null;
+      Connection c = null;
+      CopyIn ci = null;
+
+      try
+      {
+         if (load)
+         {
+            c = getConnection();
+            ci = c.unwrap(PGConnection.class).getCopyAPI().copyIn("COPY " + tableName + " (" + columns.toString() + ") FROM STDIN");
+         }
+         else
+         {
+            bw = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(profileName, "data", tableName + ".sql"),
+                                                                                 StandardOpenOption.CREATE,
+                                                                                 StandardOpenOption.WRITE,
+                                                                                 StandardOpenOption.TRUNCATE_EXISTING),
+                                                           StandardCharsets.UTF_8),
+                                    1 << 20);
+
+            writeLine(bw, "BEGIN;");
+            writeLine(bw, "");
+
+            if (copy)
+               writeLine(bw, "COPY " + tableName + " (" + columns.toString() + ") FROM STDIN;");
+         }
 
-               if (type == 1 && colNames.size() <= 1)
-                  type = 0;
+         int ranges = (rows + RANGE_ROWS - 1) / RANGE_ROWS;
+         int next = 0;
+         Deque<Future<RowRange>> window = new ArrayDeque<>();
 
-               if ((type == 0 && cMixSelect == 0) ||
-                   (type == 1 && cMixUpdate == 0) ||
-                   (type == 2 && cMixInsert == 0) ||
-                   (type == 3 && cMixDelete == 0))
-               {
-                  type = -1;
-               }
+         while (next < ranges || !window.isEmpty())
+         {
+            while (next < ranges && window.size() < 2 * pool.getParallelism())
+            {
+               RowRange task = new RowRange(tableName, columns.toString(), copy, keys, sequential, next,
+                                            next * RANGE_ROWS + 1, Math.min(rows, (next + 1) * RANGE_ROWS));
 
-               switch (type)
+               if (sequential)
                {
-                  case 0:
-                  {
-                     result = generateSELECT(i, table, colNames, colTypes);
-                     totalSelect++;
-                     select++;
-                     break;
-                  }
-                  case 1:
-                  {
-                     result = generateUPDATE(i, table, colNames, colTypes);
-                     totalUpdate++;
-                     update++;
-                     break;
-                  }
-                  case 2:
-                  {
-                     result = generateINSERT(i, table, colNames, colTypes);
-                     totalInsert++;
-                     insert++;
-                     break;
-                  }
-                  case 3:
-                  {
-                     result = generateDELETE(i, table, colNames, colTypes);
-                     totalDelete++;
-                     delete++;
-                     break;
-                  }
-                  default:
-                  {
-                     result = null;
-                     break;
-                  }
+                  FutureTask<RowRange> ft = new FutureTask<>(task);
+                  ft.run();
+                  window.add(ft);
                }
-
-               if (result != null)
+               else
                {
-                  l.add("P");
-                  l.add(result.get(0));
-                  l.add(result.get(1));
-                  l.add(result.get(2));
-
-                  wStatements.add(result.get(0));
+                  window.add(pool.submit(task));
                }
+               next++;
             }
 
-            l.add("P");
-            int c = random.nextInt(cCommit + cRollback + 1);
-            if (c <= cCommit)
+            RowRange range = window.poll().get();
+
+            if (ci != null)
             {
-               l.add("COMMIT");
-               totalTxC++;
-               txC++;
+               byte[] b = range.data.getBytes(StandardCharsets.UTF_8);
+               ci.writeToCopy(b, 0, b.length);
             }
             else
             {
-               l.add("ROLLBACK");
-               totalTxR++;
-               txR++;
+               bw.write(range.data);
+            }
+
+            for (int i = 0; i < range.values.size(); i++)
+            {
+               List<String> colValues = range.values.get(i);
+
+               for (int col = 0; col < colTypes.size(); col++)
+               {
+                  if (!sequential &&
+                      ((keys == null && isPrimaryKey(tableName, colNames.get(col))) ||
+                       (isSerial(colTypes.get(col)) && !isPrimaryKey(tableName, colNames.get(col)))))
+                  {
+                     gen.add(colValues.get(col));
+                  }
+               }
+
+               insertIndex(0, tableName, colNames, colValues);
             }
-            l.add("");
-            l.add("");
+         }
+
+         if (ci != null)
+         {
+            ci.endCopy();
+         }
+         else
+         {
+            if (copy)
+               bw.write("\\.\n");
 
-            statement += numberOfStatements + 2;
+            writeLine(bw, "");
+            writeLine(bw, "COMMIT;");
          }
+      }
+      finally
+      {
+         if (ci != null && ci.isActive())
+            ci.cancelCopy();
 
-         writeFile(Paths.get(profileName, i + ".cli"), l);
+         if (c != null)
+            c.close();
 
-         System.out.println("Client: " + i);
-         System.out.println("      TX: " + tx + " (" + txC + "/" + txR + ")");
-         System.out.println("                 " + Arrays.toString(distTx));
-         System.out.println("  SELECT: " + select);
-         System.out.println("  UPDATE: " + update);
-         System.out.println("  INSERT: " + insert);
-         System.out.println("  DELETE: " + delete);
+         if (bw != null)
+            bw.close();
       }
 
-      System.out.println("Total: ");
-      System.out.println("      TX: " + totalTx + " (" + totalTxC + "/" + totalTxR + ")");
-      System.out.println("                 " + Arrays.toString(totalDistTx));
-      System.out.println("  SELECT: " + totalSelect);
-      System.out.println("  UPDATE: " + totalUpdate);
-      System.out.println("  INSERT: " + totalInsert);
-      System.out.println("  DELETE: " + totalDelete);
+      for (String colType : colTypes)
+      {
+         if (isSerial(colType))
+            serials.put(tableName, Long.valueOf(rows));
+      }
    }
 
    /**
-    * Generate SELECT statement
+    * Append a value in the COPY text format
+    * @param sb The builder
+    * @param val The value
     */
-   private static List<String> generateSELECT(int client, String table, List<String> colNames, List<String> colTypes)
-      throws Exception
+   private static void appendCopyValue(StringBuilder sb, String val)
    {
-      List<String> result = new ArrayList<>(3);
-      String pk = primaryKeys.get(table);
-      int index = colNames.indexOf(pk);
-      Set<String> fks = foreignKeys.get(table);
-      IndexDef id = null;
-      IndexVal iv = null;
-      int selectMode = SELECT_PRIMARY_KEY;
-      int selected = 0;
-
-      StringBuilder sql = new StringBuilder();
-      if (fks == null || fks.isEmpty())
+      if ("NULL".equals(val))
       {
-         sql.append("SELECT ");
-         for (int col = 0; col < colNames.size(); col++)
-         {
-            sql.append(colNames.get(col));
-            if (col < colNames.size() - 1)
-               sql.append(", ");
-         }
-         sql.append(" FROM ");
-         sql.append(table);
-         sql.append(" WHERE ");
+         sb.append("\\N");
+         return;
+      }
 
-         selectMode = getSelectMode(table);
-         switch (selectMode)
+      for (int i = 0; i < val.length(); i++)
+      {
+         char c = val.charAt(i);
+         switch (c)
          {
-            case SELECT_PRIMARY_KEY:
-               sql.append(colNames.get(index));
-               sql.append(" = ?");
+            case '\\':
+               sb.append("\\\\");
                break;
-            case SELECT_INDEX:
-               id = getRandomIndexDefinition(client, table);
-               iv = getRandomIndexValue(client, table, id);
-
-               if (id != null && iv != null)
-               {
-                  for (int i = 0; i < id.getColumns().size(); i++)
-                  {
-                     sql.append(id.getColumns().get(i));
-                     sql.append(" = ?");
-
-                     if (i < id.getColumns().size() - 1)
-                        sql.append(" AND ");
-                  }
-               }
-               else
-               {
-                  selectMode = SELECT_PRIMARY_KEY;
-                  id = null;
-                  iv = null;
-
-                  sql.append(colNames.get(index));
-                  sql.append(" = ?");
-               }
+            case '\t':
+               sb.append("\\t");
                break;
-            case SELECT_IN:
-               selected = random.nextInt(getINCount(table)) + 1;
-               sql.append(colNames.get(index));
-               if (selected > 1)
-               {
-                  sql.append(" IN (");
-                  for (int i = 0; i < selected; i++)
-                  {
-                     sql.append("?");
-
-                     if (i < selected - 1)
-                        sql.append(", ");
-                  }
-                  sql.append(")");
-               }
-               else
-               {
-                  selectMode = SELECT_PRIMARY_KEY;
-                  sql.append(" = ?");
-               }
+            case '\n':
+               sb.append("\\n");
+               break;
+            case '\r':
+               sb.append("\\r");
                break;
             default:
-               throw new Exception("Unknown SELECT mode: " + selectMode);
+               sb.append(c);
+               break;
          }
       }
-      else
-      {
-         List<String> tcs = new ArrayList<>();
-         List<String> fkTables = new ArrayList<>();
-         List<String> fkCols = new ArrayList<>();
-
-         for (String fk : fks)
-         {
-            int index1 = fk.indexOf(":");
-            int index2 = fk.lastIndexOf(":");
-            tcs.add(fk.substring(0, index1));
-            fkTables.add(fk.substring(index1 + 1, index2));
-            fkCols.add(fk.substring(index2 + 1));
-         }
+   }
 
-         sql.append("SELECT ");
-         for (int col = 0; col < colNames.size(); col++)
-         {
-            sql.append(table);
-            sql.append("_.");
-            sql.append(colNames.get(col));
-            sql.append(" AS ");
-            sql.append(table);
-            sql.append("_");
-            sql.append(colNames.get(col));
-            sql.append(", ");
-         }
+   /**
+    * Write workload
+    * @param profileName The name of the profile
+    */
+   private static void writeWorkload(String profileName) throws Exception
+   {
+      int mspt = profile.getProperty("mspt") != null ?
+         Integer.parseInt(profile.getProperty("mspt")) : DEFAULT_MAX_STATEMENTS_PER_TRANSACTION;
+      List<String> phases = getPhases();
+      int clients = getClients(phases);
+      ClientWorkload total = new ClientWorkload(0, mspt);
+      List<ClientWorkload> phaseTotals = new ArrayList<>();
 
-         for (int i = 0; i < tcs.size(); i++)
-         {
-            String fkt = fkTables.get(i);
-            List<String> fkNames = columnNames.get(fkt);
-            for (int col = 0; col < fkNames.size(); col++)
-            {
-               sql.append(tcs.get(i));
-               sql.append("_");
-               sql.append(fkt);
-               sql.append("_.");
-               sql.append(fkNames.get(col));
-               sql.append(" AS ");
-               sql.append(tcs.get(i));
-               sql.append("_");
-               sql.append(fkt);
-               sql.append("_");
-               sql.append(fkNames.get(col));
-               if (col < fkNames.size() - 1 || i < tcs.size() - 1)
-                  sql.append(", ");
-            }
-         }
+      for (int p = 0; p < phases.size(); p++)
+      {
+         phaseTotals.add(new ClientWorkload(0, mspt));
+      }
 
-         sql.append(" FROM ");
-         sql.append(table);
-         sql.append(" ");
-         sql.append(table);
-         sql.append("_ ");
+      List<String> tableNames = new ArrayList<>(columnNames.size());
+      for (String tableName : columnNames.keySet())
+      {
+         tableNames.add(tableName);
+      }
+      
+      for (int i = 1; i <= clients; i++)
+      {
+         ClientWorkload client = new ClientWorkload(i, mspt);
+         List<String> l = new ArrayList<>();
+         List<List<String>> tx = new ArrayList<>();
 
-         for (int i = 0; i < tcs.size(); i++)
+         for (int p = 0; p < phases.size(); p++)
          {
-            String tc = tcs.get(i);
-            String fkt = fkTables.get(i);
-            String fkc = fkCols.get(i);
-            sql.append("LEFT OUTER JOIN ");
-            sql.append(fkt);
-            sql.append(" ");
-            sql.append(tc);
-            sql.append("_");
-            sql.append(fkt);
-            sql.append("_ ON ");
-            sql.append(table);
-            sql.append("_.");
-            sql.append(tc);
-            sql.append(" = ");
-            sql.append(tc);
-            sql.append("_");
-            sql.append(fkt);
-            sql.append("_.");
-            sql.append(fkc);
+            ClientWorkload cw = getClientWorkload(i, mspt, phases.get(p));
 
-            if (i < tcs.size() - 1)
-               sql.append(" ");
-         }
+            if (cw == null || cw.statements == 0)
+               continue;
 
-         sql.append(" WHERE ");
-         sql.append(table);
-         sql.append("_.");
-         sql.append(colNames.get(index));
-         sql.append(" = ?");
-      }
-               
-      result.add(sql.toString());
-      switch (selectMode)
-      {
-         case SELECT_PRIMARY_KEY:
-            result.add(getJavaType(colTypes.get(index)));
-            result.add(getPrimaryKey(client, table));
-            break;
-         case SELECT_INDEX:
-            StringBuilder types = new StringBuilder();
-            StringBuilder values = new StringBuilder();
-            for (int i = 0; i < id.getColumns().size(); i++)
+            while (cw.statement <= cw.statements)
             {
-               String colName = id.getColumns().get(i);
-               int colIndex = colNames.indexOf(colName);
+               tx.clear();
+               boolean commit = generateTransaction(cw, tableNames, tx);
 
-               types.append(getJavaType(colTypes.get(colIndex)));
-               values.append(iv.getValues().get(i));
+               l.add("P");
+               l.add("BEGIN");
+               l.add("");
+               l.add("");
 
-               if (i < id.getColumns().size() - 1)
+               for (List<String> result : tx)
                {
-                  types.append("|");
-                  values.append("|");
+                  l.add("P");
+                  l.add(result.get(0));
+                  l.add(result.get(1));
+                  l.add(result.get(2));
                }
+
+               l.add("P");
+               l.add(commit ? "COMMIT" : "ROLLBACK");
+               l.add("");
+               l.add("");
             }
-            result.add(types.toString());
-            result.add(values.toString());
-            break;
-         case SELECT_IN:
-            types = new StringBuilder();
-            values = new StringBuilder();
-            String pkType = getJavaType(colTypes.get(index));
-            Set<String> pks = new HashSet<>();
 
-            for (int i = 0; i < selected; i++)
-            {
-               types.append(pkType);
+            client.add(cw);
+            phaseTotals.get(p).add(cw);
+         }
 
-               String value = getPrimaryKey(client, table);
-               int counter = 0;
-               while (pks.contains(value) && counter < selected)
-               {
-                  value = getPrimaryKey(client, table);
-                  counter++;
-               }
-               pks.add(value);
-               values.append(value);
+         if (l.isEmpty())
+            continue;
 
-               if (i < selected - 1)
-               {
-                  types.append("|");
-                  values.append("|");
-               }
-            }
-            result.add(types.toString());
-            result.add(values.toString());
-            break;
-         default:
-            throw new Exception("Unknown SELECT mode: " + selectMode);
+         writeFile(Paths.get(profileName, i + ".cli"), l);
+
+         System.out.println("Client: " + i);
+         printWorkload(client);
+         total.add(client);
       }
 
-      return result;
+      System.out.println("Total: ");
+      printWorkload(total);
+
+      if (phases.get(0) != null)
+      {
+         for (int p = 0; p < phases.size(); p++)
+         {
+            System.out.println("Phase: " + phases.get(p));
+            printWorkload(phaseTotals.get(p));
+         }
+      }
    }
 
    /**
-    * Generate UPDATE statement
+    * Get the phases of the workload
+    * @return The names of the phases; a single null entry if the workload has no phases
     */
-   private static List<String> generateUPDATE(int client, String table, List<String> colNames, List<String> colTypes)
-      throws Exception
+   private static List<String> getPhases()
    {
-      List<String> result = new ArrayList<>(3);
-      String pk = primaryKeys.get(table);
-      int index = colNames.indexOf(pk);
-      int rows = getRows(table);
-      boolean[] updated = new boolean[colNames.size()];
-      boolean proceed = false;
-      List<String> cn = new ArrayList<>(colNames.size());
-      List<String> cv = new ArrayList<>(colNames.size());
-      String val;
-      String pkVal;
-      int updateMode = getUpdateMode(table);
-
-      StringBuilder sql = new StringBuilder();
-      StringBuilder types = new StringBuilder();
-      StringBuilder values = new StringBuilder();
+      List<String> l = new ArrayList<>();
 
-      sql.append("UPDATE ");
-      sql.append(table);
-      sql.append(" SET ");
-      for (int col = 0; col < colNames.size(); col++)
+      if (profile.getProperty("phases") != null)
       {
-         updated[col] = false;
-         if (col != index)
+         StringTokenizer st = new StringTokenizer(profile.getProperty("phases"), ",");
+         while (st.hasMoreTokens())
          {
-            if (updateMode == UPDATE_FIELDS && !isForeignKey(table, colNames.get(col)) && !isUnique(table, colNames.get(col)))
-            {
-               if (col > 0)
-               {
-                  for (int test = 0; test < col; test++)
-                  {
-                     if (updated[test])
-                     {
-                        sql.append(", ");
-                        types.append("|");
-                        values.append("|");
-                        break;
-                     }
-                  }
-               }
+            l.add(st.nextToken().trim());
+         }
+      }
 
-               sql.append(colNames.get(col));
-               sql.append(" = ?");
+      if (l.isEmpty())
+         l.add(null);
 
-               types.append(getJavaType(colTypes.get(col)));
+      return l;
+   }
 
-               val = getData(table, colNames.get(col), colTypes.get(col), random.nextInt(rows));
-               values.append(val);
+   /**
+    * Get the number of clients of a phase
+    * @param phase The phase, or null
+    * @return The number of clients
+    */
+   private static int getPhaseClients(String phase)
+   {
+      int clients = profile.getProperty("clients") != null ?
+         Integer.parseInt(profile.getProperty("clients")) : DEFAULT_CLIENTS;
 
-               cn.add(colNames.get(col));
-               cv.add(val);
+      if (phase != null && profile.getProperty("phase." + phase + ".clients") != null)
+         clients = Integer.parseInt(profile.getProperty("phase." + phase + ".clients"));
 
-               updated[col] = true;
-               proceed = true;
-            }
-            else if (updateMode == UPDATE_FOREIGNKEY && isForeignKey(table, colNames.get(col)))
-            {
-               if (col > 0)
-               {
-                  for (int test = 0; test < col; test++)
-                  {
-                     if (updated[test])
-                     {
-                        sql.append(", ");
-                        types.append("|");
-                        values.append("|");
-                        break;
-                     }
-                  }
-               }
+      return clients;
+   }
 
-               sql.append(colNames.get(col));
-               sql.append(" = ?");
+   /**
+    * Get the highest number of clients of the phases
+    * @param phases The phases
+    * @return The number of clients
+    */
+   private static int getClients(List<String> phases)
+   {
+      int clients = 0;
 
-               types.append(getJavaType(colTypes.get(col)));
+      for (String phase : phases)
+      {
+         clients = Math.max(clients, getPhaseClients(phase));
+      }
 
-               String fk = getForeignKey(table, colNames.get(col));
-               String fkTable = fk.substring(fk.indexOf(":") + 1, fk.lastIndexOf(":"));
+      return clients;
+   }
 
-               val = getPrimaryKey(client, fkTable);
-               values.append(val);
+   /**
+    * Get a workload setting for a client; the phase setting takes precedence over
+    * the client setting, which takes precedence over the global setting
+    * @param client The client
+    * @param phase The phase, or null
+    * @param key The key
+    * @param defaultValue The default value
+    * @return The value
+    */
+   private static int getWorkloadSetting(int client, String phase, String key, int defaultValue)
+   {
+      String value = null;
 
-               cn.add(colNames.get(col));
-               cv.add(val);
+      if (phase != null)
+         value = profile.getProperty("phase." + phase + "." + key);
 
-               updated[col] = true;
-               proceed = true;
-            }
-         }
-      }
-      sql.append(" WHERE ");
-      sql.append(colNames.get(index));
-      sql.append(" = ?");
-               
-      result.add(sql.toString());
+      if (value == null)
+         value = profile.getProperty("client." + client + "." + key);
 
-      if (types.length() > 0)
-         types.append("|");
-      types.append(getJavaType(colTypes.get(index)));
+      if (value == null)
+         value = profile.getProperty(key);
 
-      result.add(types.toString());
+      return value != null ? Integer.parseInt(value) : defaultValue;
+   }
 
-      if (values.length() > 0)
-         values.append("|");
+   /**
+    * Get the level where a workload setting of a client is defined
+    * @param client The client
+    * @param phase The phase, or null
+    * @param key The key
+    * @return 3 for the phase, 2 for the client, 1 for the global setting, and 0 for the default
+    */
+   private static int getWorkloadLevel(int client, String phase, String key)
+   {
+      if (phase != null && profile.getProperty("phase." + phase + "." + key) != null)
+         return 3;
 
-      pkVal = getPrimaryKey(client, table);
-      values.append(pkVal);
-      cn.add(colNames.get(index));
-      cv.add(pkVal);
-      
-      result.add(values.toString());
+      if (profile.getProperty("client." + client + "." + key) != null)
+         return 2;
 
-      if (!proceed)
+      if (profile.getProperty(key) != null)
+         return 1;
+
+      return 0;
+   }
+
+   /**
+    * Get the workload definition of a client
+    * @param client The client
+    * @param mspt The max number of statements per transaction
+    * @param phase The phase, or null
+    * @return The workload; null if the client isn't part of the phase
+    */
+   private static ClientWorkload getClientWorkload(int client, int mspt, String phase)
+   {
+      if (client > getPhaseClients(phase))
          return null;
 
-      updateIndex(client, table, pkVal, cn, cv);
+      ClientWorkload cw = new ClientWorkload(client, mspt);
 
-      return result;
+      cw.statements = getWorkloadSetting(client, phase, "statements", DEFAULT_STATEMENTS);
+      cw.mixSelect = getWorkloadSetting(client, phase, "mix.select", DEFAULT_MIX_SELECT);
+      cw.mixUpdate = getWorkloadSetting(client, phase, "mix.update", DEFAULT_MIX_UPDATE);
+      cw.mixInsert = getWorkloadSetting(client, phase, "mix.insert", DEFAULT_MIX_INSERT);
+      cw.mixDelete = getWorkloadSetting(client, phase, "mix.delete", DEFAULT_MIX_DELETE);
+      cw.commit = getWorkloadSetting(client, phase, "commit", DEFAULT_COMMIT);
+      cw.rollback = getWorkloadSetting(client, phase, "rollback", DEFAULT_ROLLBACK);
+      cw.rate = getWorkloadSetting(client, phase, "rate", DEFAULT_RATE);
+      cw.duration = getWorkloadSetting(client, phase, "duration", DEFAULT_DURATION);
+
+      // The most specific of the statements and the duration decides the length
+      if (getWorkloadLevel(client, phase, "statements") > getWorkloadLevel(client, phase, "duration"))
+         cw.duration = 0;
+
+      if (phase != null && cw.rate > 0 && cw.duration > 0)
+      {
+         cw.statements = cw.rate * cw.duration;
+      }
+
+      cw.statements = (int)(statementScale * cw.statements);
+
+      return cw;
    }
 
    /**
-    * Generate INSERT statement
+    * Generate a transaction for a client
+    * @param cw The workload of the client
+    * @param tableNames The table names
+    * @param tx The generated statements as SQL, types and values
+    * @return True if the transaction commits, otherwise false
     */
-   private static List<String> generateINSERT(int client, String table, List<String> colNames, List<String> colTypes)
+   private static boolean generateTransaction(ClientWorkload cw, List<String> tableNames, List<List<String>> tx)
       throws Exception
    {
-      List<String> result = new ArrayList<>(3);
-      String pk = primaryKeys.get(table);
-      int rows = getRows(table);
-      List<String> colValues = new ArrayList<>(colNames.size());
+      int i = cw.client;
+      int mspt = cw.distTx.length;
+      int numberOfStatements = random().nextInt(mspt + 1);
+      if (numberOfStatements == 0)
+         numberOfStatements = 1;
 
-      StringBuilder sql = new StringBuilder();
-      StringBuilder types = new StringBuilder();
-      StringBuilder values = new StringBuilder();
+      cw.tx++;
+      cw.distTx[numberOfStatements - 1]++;
 
-      sql.append("INSERT INTO ");
-      sql.append(table);
-      sql.append(" (");
-      for (int i = 0; i < colNames.size(); i++)
+      for (int s = 0; s < numberOfStatements; s++)
       {
-         if (!isSerial(colTypes.get(i)))
+         String table = tableNames.get(random().nextInt(tableNames.size()));
+         List<String> colNames = columnNames.get(table);
+         List<String> colTypes = columnTypes.get(table);
+         int type = 0;
+         List<String> result = null;
+
+         int tMixSelect = profile.getProperty(table + ".mix.select") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.select")) : cw.mixSelect;
+         int tMixUpdate = profile.getProperty(table + ".mix.update") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.update")) : cw.mixUpdate;
+         int tMixInsert = profile.getProperty(table + ".mix.insert") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.insert")) : cw.mixInsert;
+         int tMixDelete = profile.getProperty(table + ".mix.delete") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.delete")) : cw.mixDelete;
+
+         int size = tMixSelect + tMixUpdate + tMixInsert + tMixDelete;
+         int[] tDistribution = new int[size];
+         for (int ti = 0; ti < tMixSelect; ti++)
          {
-            sql.append(colNames.get(i));
-            if (i < colNames.size() - 1)
-               sql.append(", ");
+            tDistribution[ti] = 0;
          }
-      }
-      sql.append(") VALUES (");
-      for (int i = 0; i < colTypes.size(); i++)
-      {
-         String colType = colTypes.get(i);
-         String val;
-         if (!isSerial(colType))
+         for (int ti = 0; ti < tMixUpdate; ti++)
          {
-            sql.append("?");
-            types.append(getJavaType(colType));
-            if (isPrimaryKey(table, colNames.get(i)))
+            tDistribution[ti + tMixSelect] = 1;
+         }
+         for (int ti = 0; ti < tMixInsert; ti++)
+         {
+            tDistribution[ti + tMixSelect + tMixUpdate] = 2;
+         }
+         for (int ti = 0; ti < tMixDelete; ti++)
+         {
+            tDistribution[ti + tMixSelect + tMixUpdate + tMixDelete] = 3;
+         }
+
+         type = tDistribution[random().nextInt(cw.mixSelect + cw.mixUpdate + cw.mixInsert + cw.mixDelete)];
+
+         if (type == 1 && colNames.size() <= 1)
+            type = 0;
+
+         if ((type == 0 && cw.mixSelect == 0) ||
+             (type == 1 && cw.mixUpdate == 0) ||
+             (type == 2 && cw.mixInsert == 0) ||
+             (type == 3 && cw.mixDelete == 0))
+         {
+            type = -1;
+         }
+
+         switch (type)
+         {
+            case 0:
             {
-               val = generatePrimaryKey(client, table, colNames.get(i), colType);
+               result = generateSELECT(i, table, colNames, colTypes);
+               cw.select++;
+               break;
             }
-            else if (isForeignKey(table, colNames.get(i)))
+            case 1:
             {
-               val = generateForeignKey(client, table, colNames.get(i));
+               result = generateUPDATE(i, table, colNames, colTypes);
+               cw.update++;
+               break;
             }
-            else if (isUnique(table, colNames.get(i)))
+            case 2:
             {
-               val = generateUnique(table, colNames.get(i), colType);
+               result = generateINSERT(i, table, colNames, colTypes);
+               cw.insert++;
+               break;
             }
-            else
+            case 3:
             {
-               val = getData(table, colNames.get(i), colType, random.nextInt(rows));
+               result = generateDELETE(i, table, colNames, colTypes);
+               cw.delete++;
+               break;
             }
-
-            values.append(val);
-
-            if (i < colTypes.size() - 1)
+            default:
             {
-               sql.append(", ");
-               types.append("|");
-               values.append("|");
+               result = null;
+               break;
             }
          }
-         else
+
+         if (result != null)
          {
-            val = generatePrimaryKey(client, table, colNames.get(i), colType);
+            tx.add(result);
+            wStatements.add(result.get(0));
          }
+      }
 
-         colValues.add(val);
+      boolean commit;
+      int c = random().nextInt(cw.commit + cw.rollback + 1);
+      if (c <= cw.commit)
+      {
+         commit = true;
+         cw.txC++;
+      }
+      else
+      {
+         commit = false;
+         cw.txR++;
       }
-      sql.append(")");
-               
-      result.add(sql.toString());
-      result.add(types.toString());
-      result.add(values.toString());
 
-      insertIndex(client, table, colNames, colValues);
+      cw.statement += numberOfStatements + 2;
 
-      return result;
+      return commit;
    }
 
    /**
-    * Generate DELETE statement
+    * Print the summary of a workload
+    * @param cw The workload
     */
-   private static List<String> generateDELETE(int client, String table, List<String> colNames, List<String> colTypes)
-      throws Exception
+   private static void printWorkload(ClientWorkload cw)
    {
-      List<String> result = new ArrayList<>(3);
-      String pk = primaryKeys.get(table);
-      int index = colNames.indexOf(pk);
-      int rows = getRows(table);
-      boolean ret = true;
-      String val;
+      System.out.println("      TX: " + cw.tx + " (" + cw.txC + "/" + cw.txR + ")");
+      System.out.println("                 " + Arrays.toString(cw.distTx));
+      System.out.println("  SELECT: " + cw.select);
+      System.out.println("  UPDATE: " + cw.update);
+      System.out.println("  INSERT: " + cw.insert);
+      System.out.println("  DELETE: " + cw.delete);
+   }
 
-      if (toFrom.containsKey(table))
-         return null;
+   /**
+    * Run the workload against the database of the profile, generating the
+    * transactions of each client as it goes
+    * @param profileName The name of the profile
+    */
+   private static void runWorkload(String profileName) throws Exception
+   {
+      int mspt = profile.getProperty("mspt") != null ?
+         Integer.parseInt(profile.getProperty("mspt")) : DEFAULT_MAX_STATEMENTS_PER_TRANSACTION;
+      List<String> phases = getPhases();
+      int clients = getClients(phases);
+      ClientWorkload total = new ClientWorkload(0, mspt);
+      Histogram histogram = new Histogram();
+      List<WorkloadRunner> runners = new ArrayList<>();
+      List<Thread> threads = new ArrayList<>();
 
-      StringBuilder sql = new StringBuilder();
-      sql.append("DELETE FROM ");
-      sql.append(table);
-      sql.append(" WHERE ");
-      sql.append(colNames.get(index));
-      sql.append(" = ?");
-               
-      result.add(sql.toString());
-      result.add(getJavaType(colTypes.get(index)));
+      List<String> tableNames = new ArrayList<>(columnNames.size());
+      for (String tableName : columnNames.keySet())
+      {
+         tableNames.add(tableName);
+      }
 
-      val = getPrimaryKey(client, table);
-      ret = deletePrimaryKey(client, table, val);
-      result.add(val);
+      for (int i = 1; i <= clients; i++)
+      {
+         List<ClientWorkload> work = new ArrayList<>(phases.size());
+         boolean active = false;
 
-      if (!ret)
-         return null;
+         for (String phase : phases)
+         {
+            ClientWorkload cw = getClientWorkload(i, mspt, phase);
 
-      deleteIndex(client, table, val);
+            if (cw != null && cw.statements == 0 && cw.duration == 0)
+               cw = null;
 
-      return result;
-   }
-   
-   /**
-    * Verify type
-    * @param type The type
-    */
-   private static void verifyType(String type) throws Exception
-   {
-      if (type.indexOf("(") != -1)
-         type = type.substring(0, type.indexOf("("));
-      switch (type.toLowerCase().trim())
+            if (cw != null)
+               active = true;
+
+            work.add(cw);
+         }
+
+         if (active)
+            runners.add(new WorkloadRunner(i, mspt, work, tableNames));
+      }
+
+      CyclicBarrier barrier = new CyclicBarrier(Math.max(1, runners.size()));
+      for (WorkloadRunner runner : runners)
       {
-         case "bigint":
-         case "int8":
-         case "bigserial":
-         case "serial8":
-         case "bit":
-         case "bit varying":
-         case "varbit":
-         case "boolean":
-         case "bool":
-         case "bytea":
-         case "character":
-         case "char":
-         case "character varying":
-         case "varchar":
-         case "date":
-         case "double precision":
-         case "float8":
-         case "integer":
-         case "int":
-         case "int4":
-         case "numeric":
-         case "decimal":
-         case "real":
-         case "float4":
-         case "smallint":
-         case "int2":
-         case "smallserial":
-         case "serial2":
-         case "serial":
-         case "serial4":
-         case "text":
-         case "time":
-         case "time without time zone":
-         case "time with time zone":
-         case "timetz":
-         case "timestamp":
-         case "timestamp without time zone":
-         case "timestamp with time zone":
-         case "timestamptz":
-         case "uuid":
-            break;
-         default:
-            throw new Exception("Unknown type: " + type);
+         runner.setBarrier(barrier);
+         threads.add(new Thread(runner, "Client " + runner.getWorkload().client));
       }
-   }
 
-   /**
-    * Get Java type
-    * @param type The type
-    */
-   private static String getJavaType(String type) throws Exception
-   {
-      if (type.indexOf("(") != -1)
-         type = type.substring(0, type.indexOf("("));
-      switch (type.toLowerCase().trim())
+      long start = System.currentTimeMillis();
+
+      for (Thread t : threads)
       {
-         case "bigint":
-         case "int8":
-            return Integer.toString(Types.BIGINT);
-         case "bigserial":
-         case "serial8":
-            return Integer.toString(Types.OTHER);
-         case "bit":
-         case "bit varying":
-         case "varbit":
-            return Integer.toString(Types.BIT);
-         case "boolean":
-         case "bool":
-            return Integer.toString(Types.BOOLEAN);
-         case "bytea":
-            return Integer.toString(Types.BINARY);
-         case "character":
-         case "char":
-            return Integer.toString(Types.CHAR);
-         case "character varying":
-         case "varchar":
-            return Integer.toString(Types.VARCHAR);
-         case "date":
-            return Integer.toString(Types.DATE);
-         case "double precision":
-         case "float8":
-            return Integer.toString(Types.DOUBLE);
-         case "integer":
-         case "int":
-         case "int4":
-            return Integer.toString(Types.INTEGER);
-         case "numeric":
-            return Integer.toString(Types.NUMERIC);
-         case "decimal":
-            return Integer.toString(Types.DECIMAL);
-         case "real":
-         case "float4":
-            return Integer.toString(Types.REAL);
-         case "smallint":
-         case "int2":
-            return Integer.toString(Types.SMALLINT);
-         case "smallserial":
-         case "serial2":
-            return Integer.toString(Types.OTHER);
-         case "serial":
-         case "serial4":
-            return Integer.toString(Types.OTHER);
-         case "text":
-            return Integer.toString(Types.VARCHAR);
-         case "time":
-         case "time without time zone":
-            return Integer.toString(Types.TIME);
-         case "time with time zone":
-         case "timetz":
-            return Integer.toString(Types.TIME_WITH_TIMEZONE);
-         case "timestamp":
-         case "timestamp without time zone":
-            return Integer.toString(Types.TIMESTAMP);
-         case "timestamp with time zone":
-         case "timestamptz":
-            return Integer.toString(Types.TIMESTAMP_WITH_TIMEZONE);
-         case "uuid":
-            return Integer.toString(Types.OTHER);
+         t.start();
       }
-      throw new Exception("Unsupported type: " + type);
-   }
-
-   /**
-    * Is primary key
-    * @param table The table
-    * @param col The col
-    * @return True if primary key, otherwise false
-    */
-   private static boolean isPrimaryKey(String table, String col)
-   {
-      String pk = primaryKeys.get(table);
-
-      if (pk == null)
-         return false;
-
-      return pk.equals(col);
-   }
-
-   /**
-    * Generate primary key
-    * @param client The client
-    * @param table The table
-    * @param name The column name
-    * @param type The type
-    */
-   private static String generatePrimaryKey(int client, String table, String name, String type) throws Exception
-   {
-      return generatePrimaryKey(client, table, name, type, random.nextInt(Integer.MAX_VALUE));
-   }
 
-   /**
-    * Generate primary key
-    * @param client The client
-    * @param table The table
-    * @param name The column name
-    * @param type The type
-    * @param row Hint for row number
-    */
-   private static String generatePrimaryKey(int client, String table, String name, String type, int row) throws Exception
-   {
-      return generatePrimaryKey(client, table, name, type, row, true);
-   }
+      for (Thread t : threads)
+      {
+         t.join();
+      }
 
-   /**
-    * Generate primary key
-    * @param client The client
-    * @param table The table
-    * @param name The column name
-    * @param type The type
-    * @param row Hint for row number
-    * @param r Random
-    */
-   private static String generatePrimaryKey(int client, String table, String name, String type, int row, boolean r) throws Exception
-   {
-      String newpk = getData(table, name, type, row, r);
-      Map<Integer, List<String>> m = activePKs.get(table);
+      long clock = System.currentTimeMillis() - start;
 
-      if (m == null)
-         m = new HashMap<>();
+      List<String> result = new ArrayList<>();
+      result.add("Clock," + clock + "," + clock);
 
-      if (client == 0)
+      for (WorkloadRunner runner : runners)
       {
-         List<String> gen = m.get(Integer.valueOf(0));
-
-         if (gen == null)
-            gen = new ArrayList<>(getRows(table));
+         ClientWorkload cw = runner.getWorkload();
+         Histogram h = new Histogram();
 
-         if (isDataRandom(type))
+         for (int p = 0; p < phases.size(); p++)
          {
-            while (gen.contains(newpk))
-            {
-               newpk = getData(table, name, type, row, r);
-            }
+            h.add(runner.getHistogram(p));
          }
-         else if (isSerial(type))
-         {
-            Long l = serials.get(table);
 
-            if (l == null)
-               l = Long.valueOf(0);
+         System.out.println("Client: " + cw.client);
+         printWorkload(cw);
+         printLatency(h, runner.getErrors());
 
-            l = Long.valueOf(l.longValue() + 1);
-            serials.put(table, l);
-            newpk = Long.toString(l);
-         }
+         total.add(cw);
+         histogram.add(h);
 
-         gen.add(newpk);
-         m.put(Integer.valueOf(0), gen);
+         result.add(cw.client + "," + runner.getRunTime() + "," + runner.getConnectionTime() + "," +
+                    runner.getStatements() + "," + runner.getErrors());
       }
-      else
-      {
-         List<String> gen = m.get(Integer.valueOf(0));
-         List<String> apks = m.get(Integer.valueOf(client));
 
-         if (apks == null)
-            apks = new ArrayList<>(getRows(table));
+      System.out.println("Total: ");
+      printWorkload(total);
+      printLatency(histogram, -1);
+      System.out.println("   Clock: " + clock + " ms");
 
-         if (isSerial(type))
+      if (phases.get(0) != null)
+      {
+         for (int p = 0; p < phases.size(); p++)
          {
-            Long l = serials.get(table);
-
-            if (l == null)
-               l = Long.valueOf(0);
+            ClientWorkload phaseTotal = new ClientWorkload(0, mspt);
+            Histogram h = new Histogram();
+            long time = 0;
 
-            l = Long.valueOf(l.longValue() + 1);
-            serials.put(table, l);
-            newpk = Long.toString(l);
-         }
-         else
-         {
-            while (gen.contains(newpk) || apks.contains(newpk))
+            for (WorkloadRunner runner : runners)
             {
-               newpk = getData(table, name, type, row, r);
+               if (runner.getWork(p) != null)
+                  phaseTotal.add(runner.getWork(p));
+               h.add(runner.getHistogram(p));
+               time = Math.max(time, runner.getPhaseTime(p));
             }
+
+            System.out.println("Phase: " + phases.get(p));
+            printWorkload(phaseTotal);
+            printLatency(h, -1);
+            System.out.println("   Clock: " + time + " ms");
          }
-         apks.add(newpk);
-         m.put(Integer.valueOf(client), apks);
       }
 
-      activePKs.put(table, m);
-
-      return newpk;
-   }
-
-   /**
-    * Get a random primary key
-    * @param client The client
-    * @param table The table
-    * @param type The type
-    * @param row Hint for row number
-    * @return The primary key
-    */
-   private static String getPrimaryKey(int client, String table) throws Exception
-   {
-      Map<Integer, List<String>> m = activePKs.get(table);
-      List<String> apks = m.get(Integer.valueOf(client));
-
-      if (apks == null || apks.size() == 0)
-         apks = m.get(Integer.valueOf(0));
+      List<String> latency = new ArrayList<>();
+      for (int i = 0; i < Histogram.BUCKETS; i++)
+      {
+         if (histogram.getCount(i) > 0)
+            latency.add(Histogram.highest(i) + "," + histogram.getCount(i));
+      }
 
-      return apks.get(random.nextInt(apks.size()));
+      writeFile(Paths.get(profileName, "result.csv"), result);
+      writeFile(Paths.get(profileName, "latency.csv"), latency);
    }
 
    /**
-    * Delete primary key
-    * @param client The client
-    * @param table The table
-    * @param pk The primary key
-    * @return True if the primary key was deleted, otherwise false
+    * Print the statement latency of a run
+    * @param histogram The histogram
+    * @param errors The number of failed transactions, or -1
     */
-   private static boolean deletePrimaryKey(int client, String table, String pk) throws Exception
+   private static void printLatency(Histogram histogram, long errors)
    {
-      Map<Integer, List<String>> m = activePKs.get(table);
-      List<String> apks = m.get(Integer.valueOf(client));
-
-      if (apks == null || apks.size() == 0)
-         return false;
-
-      apks.remove(pk);
-      m.put(Integer.valueOf(client), apks);
-      activePKs.put(table, m);
-      return true;
+      System.out.println(" LATENCY: " + (histogram.getCount() > 0 ? histogram.getSum() / histogram.getCount() : 0) +
+                         " / " + histogram.getPercentile(50.0) + " / " + histogram.getPercentile(95.0) +
+                         " / " + histogram.getPercentile(99.0) + " / " + histogram.getMax() + " us");
+      if (errors >= 0)
+         System.out.println("  ERRORS: " + errors);
    }
 
    /**
-    * Is foreign key
-    * @param table The table
-    * @param col The col
-    * @return True if foreign key, otherwise false
+    * Set the parameters of a statement
+    * @param ps The prepared statement
+    * @param types The types
+    * @param values The values
     */
-   private static boolean isForeignKey(String table, String col)
+   private static void setParameters(PreparedStatement ps, String types, String values) throws Exception
    {
-      Set<String> ts = foreignKeys.get(table);
+      if ("".equals(types))
+         return;
 
-      if (ts == null)
-         return false;
+      String[] t = types.split("\\|", -1);
+      String[] v = values.split("\\|", -1);
 
-      for (String data : ts)
+      for (int i = 0; i < t.length; i++)
       {
-         String c = data.substring(0, data.indexOf(":"));
-         if (c.equals(col))
-            return true;
-      }
+         int type = Integer.parseInt(t[i]);
+         String value = v[i];
 
-      return false;
+         if ("NULL".equals(value))
+         {
+            ps.setNull(i + 1, type);
+         }
+         else
+         {
+            switch (type)
+            {
+               case Types.BIGINT:
+                  ps.setLong(i + 1, Long.parseLong(value));
+                  break;
+               case Types.BIT:
+               case Types.BOOLEAN:
+                  ps.setBoolean(i + 1, Boolean.parseBoolean(value));
+                  break;
+               case Types.DATE:
+                  ps.setDate(i + 1, java.sql.Date.valueOf(value));
+                  break;
+               case Types.DECIMAL:
+               case Types.NUMERIC:
+                  ps.setBigDecimal(i + 1, new java.math.BigDecimal(value));
+                  break;
+               case Types.DOUBLE:
+                  ps.setDouble(i + 1, Double.parseDouble(value));
+                  break;
+               case Types.INTEGER:
+                  ps.setInt(i + 1, Integer.parseInt(value));
+                  break;
+               case Types.REAL:
+                  ps.setFloat(i + 1, Float.parseFloat(value));
+                  break;
+               case Types.SMALLINT:
+                  ps.setShort(i + 1, Short.parseShort(value));
+                  break;
+               case Types.TIME:
+               case Types.TIME_WITH_TIMEZONE:
+                  ps.setTime(i + 1, java.sql.Time.valueOf(value));
+                  break;
+               case Types.TIMESTAMP:
+               case Types.TIMESTAMP_WITH_TIMEZONE:
+                  ps.setTimestamp(i + 1, java.sql.Timestamp.valueOf(value));
+                  break;
+               case Types.OTHER:
+                  if (value.indexOf('-') != -1)
+                  {
+                     ps.setObject(i + 1, java.util.UUID.fromString(value));
+                  }
+                  else
+                  {
+                     ps.setLong(i + 1, Long.parseLong(value));
+                  }
+                  break;
+               default:
+                  ps.setString(i + 1, value);
+                  break;
+            }
+         }
+      }
    }
 
    /**
-    * Get foreign key
-    * @param table The table
-    * @param col The col
-    * @return The value
+    * Generate SELECT statement
     */
-   private static String getForeignKey(String table, String col)
+   private static List<String> generateSELECT(int client, String table, List<String> colNames, List<String> colTypes)
+      throws Exception
    {
-      Set<String> ts = foreignKeys.get(table);
+      List<String> result = new ArrayList<>(3);
+      String pk = primaryKeys.get(table);
+      int index = colNames.indexOf(pk);
+      Set<String> fks = foreignKeys.get(table);
+      IndexDef id = null;
+      IndexVal iv = null;
+      int selectMode = SELECT_PRIMARY_KEY;
+      int selected = 0;
 
-      if (ts != null)
+      StringBuilder sql = new StringBuilder();
+      if (fks == null || fks.isEmpty())
+      {
+         sql.append("SELECT ");
+         for (int col = 0; col < colNames.size(); col++)
+         {
+            sql.append(colNames.get(col));
+            if (col < colNames.size() - 1)
+               sql.append(", ");
+         }
+         sql.append(" FROM ");
+         sql.append(table);
+         sql.append(" WHERE ");
+
+         selectMode = getSelectMode(table);
+         switch (selectMode)
+         {
+            case SELECT_PRIMARY_KEY:
+               sql.append(colNames.get(index));
+               sql.append(" = ?");
+               break;
+            case SELECT_INDEX:
+               id = getRandomIndexDefinition(client, table);
+               iv = getRandomIndexValue(client, table, id);
+
+               if (id != null && iv != null)
+               {
+                  for (int i = 0; i < id.getColumns().size(); i++)
+                  {
+                     sql.append(id.getColumns().get(i));
+                     sql.append(" = ?");
+
+                     if (i < id.getColumns().size() - 1)
+                        sql.append(" AND ");
+                  }
+               }
+               else
+               {
+                  selectMode = SELECT_PRIMARY_KEY;
+                  id = null;
+                  iv = null;
+
+                  sql.append(colNames.get(index));
+                  sql.append(" = ?");
+               }
+               break;
+            case SELECT_IN:
+               selected = random().nextInt(getINCount(table)) + 1;
+               sql.append(colNames.get(index));
+               if (selected > 1)
+               {
+                  sql.append(" IN (");
+                  for (int i = 0; i < selected; i++)
+                  {
+                     sql.append("?");
+
+                     if (i < selected - 1)
+                        sql.append(", ");
+                  }
+                  sql.append(")");
+               }
+               else
+               {
+                  selectMode = SELECT_PRIMARY_KEY;
+                  sql.append(" = ?");
+               }
+               break;
+            default:
+               throw new Exception("Unknown SELECT mode: " + selectMode);
+         }
+      }
+      else
+      {
+         List<String> tcs = new ArrayList<>();
+         List<String> fkTables = new ArrayList<>();
+         List<String> fkCols = new ArrayList<>();
+
+         for (String fk : fks)
+         {
+            int index1 = fk.indexOf(":");
+            int index2 = fk.lastIndexOf(":");
+            tcs.add(fk.substring(0, index1));
+            fkTables.add(fk.substring(index1 + 1, index2));
+            fkCols.add(fk.substring(index2 + 1));
+         }
+
+         sql.append("SELECT ");
+         for (int col = 0; col < colNames.size(); col++)
+         {
+            sql.append(table);
+            sql.append("_.");
+            sql.append(colNames.get(col));
+            sql.append(" AS ");
+            sql.append(table);
+            sql.append("_");
+            sql.append(colNames.get(col));
+            sql.append(", ");
+         }
+
+         for (int i = 0; i < tcs.size(); i++)
+         {
+            String fkt = fkTables.get(i);
+            List<String> fkNames = columnNames.get(fkt);
+            for (int col = 0; col < fkNames.size(); col++)
+            {
+               sql.append(tcs.get(i));
+               sql.append("_");
+               sql.append(fkt);
+               sql.append("_.");
+               sql.append(fkNames.get(col));
+               sql.append(" AS ");
+               sql.append(tcs.get(i));
+               sql.append("_");
+               sql.append(fkt);
+               sql.append("_");
+               sql.append(fkNames.get(col));
+               if (col < fkNames.size() - 1 || i < tcs.size() - 1)
+                  sql.append(", ");
+            }
+         }
+
+         sql.append(" FROM ");
+         sql.append(table);
+         sql.append(" ");
+         sql.append(table);
+         sql.append("_ ");
+
+         for (int i = 0; i < tcs.size(); i++)
+         {
+            String tc = tcs.get(i);
+            String fkt = fkTables.get(i);
+            String fkc = fkCols.get(i);
+            sql.append("LEFT OUTER JOIN ");
+            sql.append(fkt);
+            sql.append(" ");
+            sql.append(tc);
+            sql.append("_");
+            sql.append(fkt);
+            sql.append("_ ON ");
+            sql.append(table);
+            sql.append("_.");
+            sql.append(tc);
+            sql.append(" = ");
+            sql.append(tc);
+            sql.append("_");
+            sql.append(fkt);
+            sql.append("_.");
+            sql.append(fkc);
+
+            if (i < tcs.size() - 1)
+               sql.append(" ");
+         }
+
+         sql.append(" WHERE ");
+         sql.append(table);
+         sql.append("_.");
+         sql.append(colNames.get(index));
+         sql.append(" = ?");
+      }
+               
+      result.add(sql.toString());
+      switch (selectMode)
+      {
+         case SELECT_PRIMARY_KEY:
+            result.add(getJavaType(colTypes.get(index)));
+            result.add(getPrimaryKey(client, table, getTargetPartition(table)));
+            break;
+         case SELECT_INDEX:
+            StringBuilder types = new StringBuilder();
+            StringBuilder values = new StringBuilder();
+            for (int i = 0; i < id.getColumns().size(); i++)
+            {
+               String colName = id.getColumns().get(i);
+               int colIndex = colNames.indexOf(colName);
+
+               types.append(getJavaType(colTypes.get(colIndex)));
+               values.append(iv.getValues().get(i));
+
+               if (i < id.getColumns().size() - 1)
+               {
+                  types.append("|");
+                  values.append("|");
+               }
+            }
+            result.add(types.toString());
+            result.add(values.toString());
+            break;
+         case SELECT_IN:
+            types = new StringBuilder();
+            values = new StringBuilder();
+            String pkType = getJavaType(colTypes.get(index));
+            Set<String> pks = new HashSet<>();
+            int partition = getTargetPartition(table);
+
+            for (int i = 0; i < selected; i++)
+            {
+               types.append(pkType);
+
+               String value = getPrimaryKey(client, table, partition);
+               int counter = 0;
+               while (pks.contains(value) && counter < selected)
+               {
+                  value = getPrimaryKey(client, table, partition);
+                  counter++;
+               }
+               pks.add(value);
+               values.append(value);
+
+               if (i < selected - 1)
+               {
+                  types.append("|");
+                  values.append("|");
+               }
+            }
+            result.add(types.toString());
+            result.add(values.toString());
+            break;
+         default:
+            throw new Exception("Unknown SELECT mode: " + selectMode);
+      }
+
+      return result;
+   }
+
+   /**
+    * Generate UPDATE statement
+    */
+   private static List<String> generateUPDATE(int client, String table, List<String> colNames, List<String> colTypes)
+      throws Exception
+   {
+      List<String> result = new ArrayList<>(3);
+      String pk = primaryKeys.get(table);
+      int index = colNames.indexOf(pk);
+      int rows = getRows(table);
+      boolean[] updated = new boolean[colNames.size()];
+      boolean proceed = false;
+      List<String> cn = new ArrayList<>(colNames.size());
+      List<String> cv = new ArrayList<>(colNames.size());
+      String val;
+      String pkVal;
+      int updateMode = getUpdateMode(table);
+
+      StringBuilder sql = new StringBuilder();
+      StringBuilder types = new StringBuilder();
+      StringBuilder values = new StringBuilder();
+
+      sql.append("UPDATE ");
+      sql.append(table);
+      sql.append(" SET ");
+      for (int col = 0; col < colNames.size(); col++)
+      {
+         updated[col] = false;
+         if (col != index)
+         {
+            if (updateMode == UPDATE_FIELDS && !isForeignKey(table, colNames.get(col)) && !isUnique(table, colNames.get(col)))
+            {
+               if (col > 0)
+               {
+                  for (int test = 0; test < col; test++)
+                  {
+                     if (updated[test])
+                     {
+                        sql.append(", ");
+                        types.append("|");
+                        values.append("|");
+                        break;
+                     }
+                  }
+               }
+
+               sql.append(colNames.get(col));
+               sql.append(" = ?");
+
+               types.append(getJavaType(colTypes.get(col)));
+
+               val = getData(table, colNames.get(col), colTypes.get(col), random().nextInt(rows));
+               values.append(val);
+
+               cn.add(colNames.get(col));
+               cv.add(val);
+
+               updated[col] = true;
+               proceed = true;
+            }
+            else if (updateMode == UPDATE_FOREIGNKEY && isForeignKey(table, colNames.get(col)))
+            {
+               if (col > 0)
+               {
+                  for (int test = 0; test < col; test++)
+                  {
+                     if (updated[test])
+                     {
+                        sql.append(", ");
+                        types.append("|");
+                        values.append("|");
+                        break;
+                     }
+                  }
+               }
+
+               sql.append(colNames.get(col));
+               sql.append(" = ?");
+
+               types.append(getJavaType(colTypes.get(col)));
+
+               String fk = getForeignKey(table, colNames.get(col));
+               String fkTable = fk.substring(fk.indexOf(":") + 1, fk.lastIndexOf(":"));
+
+               val = getPrimaryKey(client, fkTable);
+               values.append(val);
+
+               cn.add(colNames.get(col));
+               cv.add(val);
+
+               updated[col] = true;
+               proceed = true;
+            }
+         }
+      }
+      sql.append(" WHERE ");
+      sql.append(colNames.get(index));
+      sql.append(" = ?");
+               
+      result.add(sql.toString());
+
+      if (types.length() > 0)
+         types.append("|");
+      types.append(getJavaType(colTypes.get(index)));
+
+      result.add(types.toString());
+
+      if (values.length() > 0)
+         values.append("|");
+
+      pkVal = getPrimaryKey(client, table, getTargetPartition(table));
+      values.append(pkVal);
+      cn.add(colNames.get(index));
+      cv.add(pkVal);
+      
+      result.add(values.toString());
+
+      if (!proceed)
+         return null;
+
+      updateIndex(client, table, pkVal, cn, cv);
+
+      return result;
+   }
+
+   /**
+    * Generate INSERT statement
+    */
+   private static List<String> generateINSERT(int client, String table, List<String> colNames, List<String> colTypes)
+      throws Exception
+   {
+      List<String> result = new ArrayList<>(3);
+      String pk = primaryKeys.get(table);
+      int rows = getRows(table);
+      List<String> colValues = new ArrayList<>(colNames.size());
+
+      StringBuilder sql = new StringBuilder();
+      StringBuilder types = new StringBuilder();
+      StringBuilder values = new StringBuilder();
+
+      sql.append("INSERT INTO ");
+      sql.append(table);
+      sql.append(" (");
+      for (int i = 0; i < colNames.size(); i++)
+      {
+         if (!isSerial(colTypes.get(i)))
+         {
+            sql.append(colNames.get(i));
+            if (i < colNames.size() - 1)
+               sql.append(", ");
+         }
+      }
+      sql.append(") VALUES (");
+      for (int i = 0; i < colTypes.size(); i++)
+      {
+         String colType = colTypes.get(i);
+         String val;
+         if (!isSerial(colType))
+         {
+            sql.append("?");
+            types.append(getJavaType(colType));
+            if (isPrimaryKey(table, colNames.get(i)))
+            {
+               val = generatePrimaryKey(client, table, colNames.get(i), colType);
+            }
+            else if (isForeignKey(table, colNames.get(i)))
+            {
+               val = generateForeignKey(client, table, colNames.get(i));
+            }
+            else if (isUnique(table, colNames.get(i)))
+            {
+               val = generateUnique(table, colNames.get(i), colType);
+            }
+            else
+            {
+               val = getData(table, colNames.get(i), colType, random().nextInt(rows));
+            }
+
+            values.append(val);
+
+            if (i < colTypes.size() - 1)
+            {
+               sql.append(", ");
+               types.append("|");
+               values.append("|");
+            }
+         }
+         else
+         {
+            val = generatePrimaryKey(client, table, colNames.get(i), colType);
+         }
+
+         colValues.add(val);
+      }
+      sql.append(")");
+               
+      result.add(sql.toString());
+      result.add(types.toString());
+      result.add(values.toString());
+
+      insertIndex(client, table, colNames, colValues);
+
+      return result;
+   }
+
+   /**
+    * Generate DELETE statement
+    */
+   private static List<String> generateDELETE(int client, String table, List<String> colNames, List<String> colTypes)
+      throws Exception
+   {
+      List<String> result = new ArrayList<>(3);
+      String pk = primaryKeys.get(table);
+      int index = colNames.indexOf(pk);
+      int rows = getRows(table);
+      boolean ret = true;
+      String val;
+
+      if (toFrom.containsKey(table))
+         return null;
+
+      StringBuilder sql = new StringBuilder();
+      sql.append("DELETE FROM ");
+      sql.append(table);
+      sql.append(" WHERE ");
+      sql.append(colNames.get(index));
+      sql.append(" = ?");
+               
+      result.add(sql.toString());
+      result.add(getJavaType(colTypes.get(index)));
+
+      int partition = getTargetPartition(table);
+      val = getPrimaryKey(client, table, partition);
+      ret = deletePrimaryKey(client, table, val);
+
+      // A client only deletes its own keys, so use another partition if the key came from the initial rows
+      if (!ret && partition != -1)
+      {
+         val = getPrimaryKey(client, table);
+         ret = deletePrimaryKey(client, table, val);
+      }
+
+      result.add(val);
+
+      if (!ret)
+         return null;
+
+      deleteIndex(client, table, val);
+
+      return result;
+   }
+   
+   /**
+    * Verify type
+    * @param type The type
+    */
+   private static void verifyType(String type) throws Exception
+   {
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "bigint":
+         case "int8":
+         case "bigserial":
+         case "serial8":
+         case "bit":
+         case "bit varying":
+         case "varbit":
+         case "boolean":
+         case "bool":
+         case "bytea":
+         case "character":
+         case "char":
+         case "character varying":
+         case "varchar":
+         case "date":
+         case "double precision":
+         case "float8":
+         case "integer":
+         case "int":
+         case "int4":
+         case "numeric":
+         case "decimal":
+         case "real":
+         case "float4":
+         case "smallint":
+         case "int2":
+         case "smallserial":
+         case "serial2":
+         case "serial":
+         case "serial4":
+         case "text":
+         case "time":
+         case "time without time zone":
+         case "time with time zone":
+         case "timetz":
+         case "timestamp":
+         case "timestamp without time zone":
+         case "timestamp with time zone":
+         case "timestamptz":
+         case "uuid":
+            break;
+         default:
+            throw new Exception("Unknown type: " + type);
+      }
+   }
+
+   /**
+    * Get Java type
+    * @param type The type
+    */
+   private static String getJavaType(String type) throws Exception
+   {
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "bigint":
+         case "int8":
+            return Integer.toString(Types.BIGINT);
+         case "bigserial":
+         case "serial8":
+            return Integer.toString(Types.OTHER);
+         case "bit":
+         case "bit varying":
+         case "varbit":
+            return Integer.toString(Types.BIT);
+         case "boolean":
+         case "bool":
+            return Integer.toString(Types.BOOLEAN);
+         case "bytea":
+            return Integer.toString(Types.BINARY);
+         case "character":
+         case "char":
+            return Integer.toString(Types.CHAR);
+         case "character varying":
+         case "varchar":
+            return Integer.toString(Types.VARCHAR);
+         case "date":
+            return Integer.toString(Types.DATE);
+         case "double precision":
+         case "float8":
+            return Integer.toString(Types.DOUBLE);
+         case "integer":
+         case "int":
+         case "int4":
+            return Integer.toString(Types.INTEGER);
+         case "numeric":
+            return Integer.toString(Types.NUMERIC);
+         case "decimal":
+            return Integer.toString(Types.DECIMAL);
+         case "real":
+         case "float4":
+            return Integer.toString(Types.REAL);
+         case "smallint":
+         case "int2":
+            return Integer.toString(Types.SMALLINT);
+         case "smallserial":
+         case "serial2":
+            return Integer.toString(Types.OTHER);
+         case "serial":
+         case "serial4":
+            return Integer.toString(Types.OTHER);
+         case "text":
+            return Integer.toString(Types.VARCHAR);
+         case "time":
+         case "time without time zone":
+            return Integer.toString(Types.TIME);
+         case "time with time zone":
+         case "timetz":
+            return Integer.toString(Types.TIME_WITH_TIMEZONE);
+         case "timestamp":
+         case "timestamp without time zone":
+            return Integer.toString(Types.TIMESTAMP);
+         case "timestamp with time zone":
+         case "timestamptz":
+            return Integer.toString(Types.TIMESTAMP_WITH_TIMEZONE);
+         case "uuid":
+            return Integer.toString(Types.OTHER);
+      }
+      throw new Exception("Unsupported type: " + type);
+   }
+
+   /**
+    * Is primary key
+    * @param table The table
+    * @param col The col
+    * @return True if primary key, otherwise false
+    */
+   private static boolean isPrimaryKey(String table, String col)
+   {
+      String pk = primaryKeys.get(table);
+
+      if (pk == null)
+         return false;
+
+      return pk.equals(col);
+   }
+
+   /**
+    * Generate primary key
+    * @param client The client
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    */
+   private static String generatePrimaryKey(int client, String table, String name, String type) throws Exception
+   {
+      return generatePrimaryKey(client, table, name, type, random().nextInt(Integer.MAX_VALUE));
+   }
+
+   /**
+    * Generate primary key
+    * @param client The client
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    * @param row Hint for row number
+    */
+   private static String generatePrimaryKey(int client, String table, String name, String type, int row) throws Exception
+   {
+      return generatePrimaryKey(client, table, name, type, row, true);
+   }
+
+   /**
+    * Generate primary key
+    * @param client The client
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    * @param row Hint for row number
+    * @param r Random
+    */
+   private static String generatePrimaryKey(int client, String table, String name, String type, int row, boolean r) throws Exception
+   {
+      String newpk = getData(table, name, type, row, r);
+
+      if (client == 0)
+      {
+         KeyRegistry gen = getKeyRegistry(0, table, true);
+
+         if (isDataRandom(type))
+         {
+            while (gen.contains(newpk))
+            {
+               newpk = getData(table, name, type, row, r);
+            }
+         }
+         else if (isSerial(type))
+         {
+            newpk = Long.toString(serials.merge(table, Long.valueOf(1), Long::sum));
+         }
+
+         gen.add(newpk);
+      }
+      else
+      {
+         KeyRegistry gen = getKeyRegistry(0, table, true);
+         KeyRegistry apks = getKeyRegistry(client, table, true);
+
+         if (isSerial(type))
+         {
+            newpk = Long.toString(serials.merge(table, Long.valueOf(1), Long::sum));
+         }
+         else
+         {
+            int partition = getTargetPartition(table);
+            int attempts = 0;
+
+            while (gen.contains(newpk) || apks.contains(newpk) ||
+                   (partition != -1 && attempts < PARTITION_ATTEMPTS && getPartition(table, newpk) != partition))
+            {
+               newpk = getData(table, name, type, row, r);
+               attempts++;
+            }
+         }
+         apks.add(newpk);
+      }
+
+      return newpk;
+   }
+
+   /**
+    * Get the registry of the active primary keys of a client
+    * @param client The client
+    * @param table The table
+    * @param create Create the registry if it doesn't exist
+    * @return The registry; otherwise null
+    */
+   private static KeyRegistry getKeyRegistry(int client, String table, boolean create)
+   {
+      Map<Integer, KeyRegistry> m = activePKs.get(table);
+
+      if (m == null)
+      {
+         if (!create)
+            return null;
+
+         m = new ConcurrentHashMap<>();
+
+         Map<Integer, KeyRegistry> existing = activePKs.putIfAbsent(table, m);
+         if (existing != null)
+            m = existing;
+      }
+
+      KeyRegistry kr = m.get(Integer.valueOf(client));
+
+      if (kr == null && create)
+      {
+         List<String> colNames = columnNames.get(table);
+         List<String> colTypes = columnTypes.get(table);
+         String type = colTypes.get(Math.max(0, colNames.indexOf(primaryKeys.get(table))));
+         int capacity = client == 0 ? getRows(table) : 16;
+
+         boolean ranked = isRanked(table);
+
+         if (isIntegerType(type) && getPartitions(table) > 0 && getPartitionMix(table) > 0)
+         {
+            kr = new PartitionedKeyRegistry(table, capacity, getPartitions(table), ranked);
+         }
+         else if (isIntegerType(type))
+         {
+            kr = new LongKeyRegistry(capacity, ranked);
+         }
+         else
+         {
+            kr = new StringKeyRegistry(capacity, ranked);
+         }
+
+         m.put(Integer.valueOf(client), kr);
+      }
+
+      return kr;
+   }
+
+   /**
+    * Get a random primary key
+    * @param client The client
+    * @param table The table
+    * @return The primary key
+    */
+   private static String getPrimaryKey(int client, String table) throws Exception
+   {
+      return getPrimaryKey(client, table, -1);
+   }
+
+   /**
+    * Get a random primary key
+    * @param client The client
+    * @param table The table
+    * @param partition The partition of the key, or -1 for any partition
+    * @return The primary key
+    */
+   private static String getPrimaryKey(int client, String table, int partition) throws Exception
+   {
+      if (partition != -1)
+      {
+         PartitionedKeyRegistry pkr = (PartitionedKeyRegistry)getKeyRegistry(client, table, false);
+         int c = client;
+
+         if (pkr == null || pkr.size(partition) == 0)
+         {
+            pkr = (PartitionedKeyRegistry)getKeyRegistry(0, table, false);
+            c = 0;
+         }
+
+         if (pkr.size(partition) > 0)
+         {
+            Distribution d = getDistribution(table, table + ":" + c + ":" + partition);
+            return pkr.get(partition, d.next(random(), pkr.size(partition)));
+         }
+      }
+
+      KeyRegistry apks = getKeyRegistry(client, table, false);
+
+      if (apks == null || apks.size() == 0)
+      {
+         apks = getKeyRegistry(0, table, false);
+         client = 0;
+      }
+
+      return apks.get(getDistribution(table, table + ":" + client).next(random(), apks.size()));
+   }
+
+   /**
+    * Delete primary key
+    * @param client The client
+    * @param table The table
+    * @param pk The primary key
+    * @return True if the primary key was deleted, otherwise false, f.ex. for a key of the initial rows
+    */
+   private static boolean deletePrimaryKey(int client, String table, String pk) throws Exception
+   {
+      KeyRegistry apks = getKeyRegistry(client, table, false);
+
+      if (apks == null || apks.size() == 0)
+         return false;
+
+      return apks.remove(pk);
+   }
+
+   /**
+    * Is foreign key
+    * @param table The table
+    * @param col The col
+    * @return True if foreign key, otherwise false
+    */
+   private static boolean isForeignKey(String table, String col)
+   {
+      Set<String> ts = foreignKeys.get(table);
+
+      if (ts == null)
+         return false;
+
+      for (String data : ts)
+      {
+         String c = data.substring(0, data.indexOf(":"));
+         if (c.equals(col))
+            return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Get foreign key
+    * @param table The table
+    * @param col The col
+    * @return The value
+    */
+   private static String getForeignKey(String table, String col)
+   {
+      Set<String> ts = foreignKeys.get(table);
+
+      if (ts != null)
       {
          for (String data : ts)
          {
-            String c = data.substring(0, data.indexOf(":"));
-            if (c.equals(col))
-               return data;
+            String c = data.substring(0, data.indexOf(":"));
+            if (c.equals(col))
+               return data;
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Generate foreign key
+    * @param table The table
+    * @param col The column
+    * @return The foreign key
+    */
+   private static String generateForeignKey(int client, String table, String col)
+   {
+      Set<String> ts = foreignKeys.get(table);
+
+      for (String data : ts)
+      {
+         int index1 = data.indexOf(":");
+
+         String c = data.substring(0, index1);
+         if (c.equals(col))
+         {
+            int index2 = data.lastIndexOf(":");
+            String fkTable = data.substring(index1 + 1, index2);
+            String fkCol = data.substring(index2 + 1);
+
+            KeyRegistry apks = getKeyRegistry(client, fkTable, false);
+
+            if (apks == null || apks.size() == 0)
+               apks = getKeyRegistry(0, fkTable, false);
+
+            return apks.get(random().nextInt(apks.size()));
+         }
+      }
+
+      return "";
+   }
+
+   /**
+    * Is nullable
+    * @param table The table
+    * @param col The col
+    * @return True if NULL is supported, otherwise false
+    */
+   private static boolean isNullable(String table, String col)
+   {
+      if (isPrimaryKey(table, col) || isForeignKey(table, col))
+         return false;
+
+      Set<String> ts = notNulls.get(table);
+
+      if (ts == null)
+         return true;
+
+      return !ts.contains(col);
+   }
+
+   /**
+    * Get the NULL target for a table
+    * @param table The table name
+    * @return The value
+    */
+   private static int getNullTarget(String table)
+   {
+      int defaultNotNull = profile.getProperty("notnull") != null ?
+         Integer.parseInt(profile.getProperty("notnull")) : DEFAULT_NOT_NULL;
+
+      int notnull = profile.getProperty(table + ".notnull") != null ?
+         Integer.parseInt(profile.getProperty(table + ".notnull")) : defaultNotNull;
+
+      return notnull;
+   }
+
+   /**
+    * Is unique
+    * @param table The table
+    * @param col The col
+    * @return True if UNIQUE, otherwise false
+    */
+   private static boolean isUnique(String table, String col)
+   {
+      Map<String, Set<String>> m = uniques.get(table);
+
+      if (m == null)
+         return false;
+
+      return m.containsKey(col);
+   }
+
+   /**
+    * Generate unique value
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    */
+   private static String generateUnique(String table, String name, String type) throws Exception
+   {
+      String val = getData(table, name, type, Integer.MAX_VALUE, true);
+      // The sets are created by setup, so the ranges of a table only read them
+      Set<String> values = uniques.get(table).get(name);
+
+      while (values.contains(val))
+      {
+         val = getData(table, name, type, Integer.MAX_VALUE, true);
+      }
+
+      return val;
+   }
+
+   /**
+    * Get rows for a table
+    * @param table The table name
+    * @return The number of rows
+    */
+   private static int getRows(String table)
+   {
+      int defaultRows = profile.getProperty("rows") != null ?
+         Integer.parseInt(profile.getProperty("rows")) : DEFAULT_ROWS;
+
+      int rows = profile.getProperty(table + ".rows") != null ?
+         Integer.parseInt(profile.getProperty(table + ".rows")) : defaultRows;
+
+      return (int)(rowScale * rows);
+   }
+
+   /**
+    * Get the SELECT mode
+    * @param table The table name
+    * @return The mode
+    */
+   private static int getSelectMode(String table)
+   {
+      int defaultPk = profile.getProperty("mix.select") != null ?
+         Integer.parseInt(profile.getProperty("mix.select")) : DEFAULT_MIX_SELECT;
+
+      int pk = profile.getProperty(table + ".mix.select") != null ?
+         Integer.parseInt(profile.getProperty(table + ".mix.select")) : defaultPk;
+
+      int defaultIndex = profile.getProperty("mix.select.index") != null ?
+         Integer.parseInt(profile.getProperty("mix.select.index")) : DEFAULT_MIX_SELECT_INDEX;
+
+      int index = profile.getProperty(table + ".mix.select.index") != null ?
+         Integer.parseInt(profile.getProperty(table + ".mix.select.index")) : defaultIndex;
+
+      int defaultIn = profile.getProperty("mix.select.in") != null ?
+         Integer.parseInt(profile.getProperty("mix.select.in")) : DEFAULT_MIX_SELECT_IN;
+
+      int in = profile.getProperty(table + ".mix.select.in") != null ?
+         Integer.parseInt(profile.getProperty(table + ".mix.select.in")) : defaultIn;
+
+      int offset1 = (int)(100 * (((float)index) / (pk + index + in)));
+      int offset2 = (int)(100 * (((float)index + (float)in) / (pk + index + in)));
+
+      int[] distribution = new int[100];
+
+      Arrays.fill(distribution, 0, offset1, SELECT_INDEX);
+      Arrays.fill(distribution, offset1, offset2, SELECT_IN);
+      Arrays.fill(distribution, offset2, 100, SELECT_PRIMARY_KEY);
+
+      return distribution[random().nextInt(100)];
+   }
+
+   /**
+    * Get the number of primary keys for IN
+    * @param table The table name
+    * @return The number
+    */
+   private static int getINCount(String table)
+   {
+      int defaultInCount = profile.getProperty("mix.select.in.count") != null ?
+         Integer.parseInt(profile.getProperty("mix.select.in.count")) : DEFAULT_MIX_SELECT_IN_COUNT;
+
+      int inCount = profile.getProperty(table + ".mix.select.in.count") != null ?
+         Integer.parseInt(profile.getProperty(table + ".mix.select.in.count")) : defaultInCount;
+
+      return inCount;
+   }
+
+   /**
+    * Get the number of partitions of a table
+    * @param table The table name
+    * @return The number; 0 if the table isn't partitioned
+    */
+   private static int getPartitions(String table)
+   {
+      Integer partitions = partitionCounts.get(table);
+
+      if (partitions == null)
+         return 0;
+
+      return partitions.intValue();
+   }
+
+   /**
+    * Get the percentage of statements targeting the hot partitions of a table
+    * @param table The table name
+    * @return The percentage
+    */
+   private static int getPartitionMix(String table)
+   {
+      int defaultMix = profile.getProperty("partition.mix") != null ?
+         Integer.parseInt(profile.getProperty("partition.mix")) : DEFAULT_PARTITION_MIX;
+
+      int mix = profile.getProperty(table + ".partition.mix") != null ?
+         Integer.parseInt(profile.getProperty(table + ".partition.mix")) : defaultMix;
+
+      return mix;
+   }
+
+   /**
+    * Get the number of hot partitions of a table
+    * @param table The table name
+    * @return The number
+    */
+   private static int getPartitionHot(String table)
+   {
+      int defaultHot = profile.getProperty("partition.hot") != null ?
+         Integer.parseInt(profile.getProperty("partition.hot")) : DEFAULT_PARTITION_HOT;
+
+      int hot = profile.getProperty(table + ".partition.hot") != null ?
+         Integer.parseInt(profile.getProperty(table + ".partition.hot")) : defaultHot;
+
+      return Math.max(1, Math.min(hot, getPartitions(table)));
+   }
+
+   /**
+    * Get the partition targeted by a statement. The hot partitions are the
+    * partitions with the lowest remainders
+    * @param table The table name
+    * @return The partition; -1 if the statement can access any partition
+    */
+   private static int getTargetPartition(String table)
+   {
+      if (getPartitionMix(table) <= 0 || !(getKeyRegistry(0, table, false) instanceof PartitionedKeyRegistry))
+         return -1;
+
+      if (random().nextInt(100) >= getPartitionMix(table))
+         return -1;
+
+      int hot = getPartitionHot(table);
+
+      if (hot == 1)
+         return 0;
+
+      return random().nextInt(hot);
+   }
+
+   /**
+    * Get the partition of a primary key, using the hash partitioning of PostgreSQL
+    * @param table The table name
+    * @param key The primary key
+    * @return The partition
+    */
+   private static int getPartition(String table, String key)
+   {
+      List<String> colNames = columnNames.get(table);
+      List<String> colTypes = columnTypes.get(table);
+      String type = colTypes.get(Math.max(0, colNames.indexOf(primaryKeys.get(table))));
+      long value = Long.parseLong(key);
+      int k = (int)value;
+
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "bigint":
+         case "int8":
+         case "bigserial":
+         case "serial8":
+            int hi = (int)(value >>> 32);
+            k ^= value >= 0 ? hi : ~hi;
+            break;
+      }
+
+      long hash = hashUInt32Extended(k, HASH_PARTITION_SEED) + 0x49A0F4DD15E5A8E3L;
+
+      return (int)Long.remainderUnsigned(hash, getPartitions(table));
+   }
+
+   /**
+    * The extended hash of an integer in PostgreSQL (hash_uint32_extended)
+    * @param k The value
+    * @param seed The seed
+    * @return The hash
+    */
+   private static long hashUInt32Extended(int k, long seed)
+   {
+      int a = 0x9E3779B9 + 4 + 3923095;
+      int b = a;
+      int c = a;
+
+      if (seed != 0)
+      {
+         a += (int)(seed >>> 32);
+         b += (int)seed;
+
+         a -= c; a ^= Integer.rotateLeft(c, 4); c += b;
+         b -= a; b ^= Integer.rotateLeft(a, 6); a += c;
+         c -= b; c ^= Integer.rotateLeft(b, 8); b += a;
+         a -= c; a ^= Integer.rotateLeft(c, 16); c += b;
+         b -= a; b ^= Integer.rotateLeft(a, 19); a += c;
+         c -= b; c ^= Integer.rotateLeft(b, 4); b += a;
+      }
+
+      a += k;
+
+      c ^= b; c -= Integer.rotateLeft(b, 14);
+      a ^= c; a -= Integer.rotateLeft(c, 11);
+      b ^= a; b -= Integer.rotateLeft(a, 25);
+      c ^= b; c -= Integer.rotateLeft(b, 16);
+      a ^= c; a -= Integer.rotateLeft(c, 4);
+      b ^= a; b -= Integer.rotateLeft(a, 14);
+      c ^= b; c -= Integer.rotateLeft(b, 24);
+
+      return ((long)b << 32) | (c & 0xFFFFFFFFL);
+   }
+
+   /**
+    * Does the distribution of the key access for a table pick keys by their rank
+    * @param table The table name
+    * @return True for zipfian, hotspot and latest, otherwise false
+    */
+   private static boolean isRanked(String table)
+   {
+      String name = profile.getProperty(table + ".distribution", profile.getProperty("distribution", "uniform"));
+      return !"uniform".equals(name.toLowerCase().trim());
+   }
+
+   /**
+    * Get the distribution of the key access for a table
+    * @param table The table name
+    * @param key The key of the distribution
+    * @return The distribution
+    */
+   private static Distribution getDistribution(String table, String key) throws Exception
+   {
+      Distribution d = distributions.get(key);
+
+      if (d == null)
+      {
+         String name = profile.getProperty(table + ".distribution", profile.getProperty("distribution", "uniform"));
+         int type;
+
+         switch (name.toLowerCase().trim())
+         {
+            case "uniform":
+               type = DISTRIBUTION_UNIFORM;
+               break;
+            case "zipfian":
+               type = DISTRIBUTION_ZIPFIAN;
+               break;
+            case "hotspot":
+               type = DISTRIBUTION_HOTSPOT;
+               break;
+            case "latest":
+               type = DISTRIBUTION_LATEST;
+               break;
+            default:
+               throw new Exception("Unsupported distribution: " + name);
+         }
+
+         double defaultTheta = profile.getProperty("distribution.theta") != null ?
+            Double.parseDouble(profile.getProperty("distribution.theta")) : DEFAULT_DISTRIBUTION_THETA;
+
+         double theta = profile.getProperty(table + ".distribution.theta") != null ?
+            Double.parseDouble(profile.getProperty(table + ".distribution.theta")) : defaultTheta;
+
+         if (theta <= 0.0 || theta >= 1.0)
+            throw new Exception("Theta must be between 0 and 1 for " + table);
+
+         int defaultHotspot = profile.getProperty("distribution.hotspot") != null ?
+            Integer.parseInt(profile.getProperty("distribution.hotspot")) : DEFAULT_DISTRIBUTION_HOTSPOT;
+
+         int hotspot = profile.getProperty(table + ".distribution.hotspot") != null ?
+            Integer.parseInt(profile.getProperty(table + ".distribution.hotspot")) : defaultHotspot;
+
+         int defaultAccess = profile.getProperty("distribution.hotspot.access") != null ?
+            Integer.parseInt(profile.getProperty("distribution.hotspot.access")) : DEFAULT_DISTRIBUTION_HOTSPOT_ACCESS;
+
+         int access = profile.getProperty(table + ".distribution.hotspot.access") != null ?
+            Integer.parseInt(profile.getProperty(table + ".distribution.hotspot.access")) : defaultAccess;
+
+         d = new Distribution(type, theta, hotspot, access);
+
+         Distribution existing = distributions.putIfAbsent(key, d);
+         if (existing != null)
+            d = existing;
+      }
+
+      return d;
+   }
+
+   /**
+    * Get the mode for an UPDATE
+    * @param table The table name
+    * @return The mode
+    */
+   private static int getUpdateMode(String table)
+   {
+      if (fromTo.containsKey(table))
+      {
+         int defaultFields = profile.getProperty("mix.update") != null ?
+            Integer.parseInt(profile.getProperty("mix.update")) : DEFAULT_MIX_UPDATE;
+
+         int fields = profile.getProperty(table + ".mix.update") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.update")) : defaultFields;
+
+         int defaultFK = profile.getProperty("mix.update.foreignkey") != null ?
+            Integer.parseInt(profile.getProperty("mix.update.foreignkey")) : DEFAULT_MIX_UPDATE_FOREIGNKEY;
+
+         int fk = profile.getProperty(table + ".mix.update.foreignkey") != null ?
+            Integer.parseInt(profile.getProperty(table + ".mix.update.foreignkey")) : defaultFK;
+
+         int offset = (int)(100 * (((float)fk) / (fields + fk)));
+
+         int[] distribution = new int[100];
+
+         Arrays.fill(distribution, 0, offset, UPDATE_FOREIGNKEY);
+         Arrays.fill(distribution, offset, 100, UPDATE_FIELDS);
+
+         return distribution[random().nextInt(100)];
+      }
+
+      return UPDATE_FIELDS;
+   }
+
+   /**
+    * Get data
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    * @param row Hint for row number
+    */
+   private static String getData(String table, String name, String type, int row) throws Exception
+   {
+      return getData(table, name, type, row, true);
+   }
+
+   /**
+    * Get data
+    * @param table The table
+    * @param name The column name
+    * @param type The type
+    * @param row Hint for row number
+    * @param r Should the data be random
+    */
+   private static String getData(String table, String name, String type, int row, boolean r) throws Exception
+   {
+      String validChars = "ABCDEFGHIJKLMNOPQRSTUVXWZabcdefghijklmnopqrstuvxwz0123456789";
+
+      if (isNullable(table, name) && random().nextInt(101) > getNullTarget(table))
+      {
+         return "NULL";
+      }
+
+      String base = type;
+      int size = 0;
+      if (base.indexOf("(") != -1)
+      {
+         if (base.indexOf(",") == -1)
+         {
+            size = Integer.parseInt(base.substring(base.indexOf("(") + 1, base.indexOf(")")));
+         }
+         else
+         {
+            size = Integer.parseInt(base.substring(base.indexOf("(") + 1, base.indexOf(",")));
+         }
+         base = base.substring(0, base.indexOf("("));
+      }
+      switch (base.toLowerCase().trim())
+      {
+         case "bigint":
+         case "int8":
+            if (r)
+            {
+               return Long.toString(random().nextLong());
+            }
+            else
+            {
+               return Long.toString(row);
+            }
+         case "bigserial":
+         case "serial8":
+            return "DEFAULT";
+         case "bit":
+         case "bit varying":
+         case "varbit":
+         case "boolean":
+         case "bool":
+            return Boolean.toString(random().nextBoolean());
+            //case "bytea":
+         case "character":
+         case "char":
+            return Character.toString(validChars.charAt(random().nextInt(validChars.length())));
+         case "character varying":
+         case "varchar":
+            if (size == 0)
+               size = 16;
+            StringBuilder sb = new StringBuilder(size);
+            for (int i = 0; i < size; i++)
+               sb.append(validChars.charAt(random().nextInt(validChars.length())));
+            return sb.toString();
+         case "date":
+            return new java.sql.Date(time).toString();
+         case "double precision":
+         case "float8":
+            if (r)
+            {
+               return Double.toString(random().nextDouble());
+            }
+            else
+            {
+               return Double.toString(row);
+            }
+         case "integer":
+         case "int":
+         case "int4":
+            if (r)
+            {
+               return Integer.toString(random().nextInt(Integer.MAX_VALUE));
+            }
+            else
+            {
+               return Integer.toString(row);
+            }
+         case "numeric":
+         case "decimal":
+            if (r)
+            {
+               return new java.math.BigDecimal(random().nextInt(Integer.MAX_VALUE)).toPlainString();
+            }
+            else
+            {
+               return new java.math.BigDecimal(row).toPlainString();
+            }
+         case "real":
+         case "float4":
+            if (r)
+            {
+               return Float.toString(random().nextFloat());
+            }
+            else
+            {
+               return Float.toString(row);
+            }
+         case "smallint":
+         case "int2":
+            return Short.toString((short)random().nextInt(Short.MAX_VALUE));
+         case "smallserial":
+         case "serial2":
+            return "DEFAULT";
+         case "serial":
+         case "serial4":
+            return "DEFAULT";
+         case "text":
+            sb = new StringBuilder(256);
+            for (int i = 0; i < 256; i++)
+               sb.append(validChars.charAt(random().nextInt(validChars.length())));
+            return sb.toString();
+         case "time":
+         case "time without time zone":
+         case "time with time zone":
+         case "timetz":
+            return new java.sql.Time(time).toString();
+         case "timestamp":
+         case "timestamp without time zone":
+         case "timestamp with time zone":
+         case "timestamptz":
+            return new java.sql.Timestamp(time).toString();
+         case "uuid":
+            long msb = (random().nextLong() & ~0xF000L) | 0x4000L;
+            long lsb = (random().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+            return new java.util.UUID(msb, lsb).toString();
+      }
+      throw new Exception("Unsupported type: " + type);
+   }
+
+   /**
+    * Is data random
+    * @param type The type
+    */
+   private static boolean isDataRandom(String type)
+   {
+      String base = type;
+      if (base.indexOf("(") != -1)
+      {
+         base = base.substring(0, base.indexOf("("));
+      }
+      switch (base.toLowerCase().trim())
+      {
+         case "bigserial":
+         case "serial8":
+         case "bigint":
+         case "int8":
+         case "double precision":
+         case "float8":
+         case "integer":
+         case "int":
+         case "int4":
+         case "numeric":
+         case "decimal":
+         case "real":
+         case "float4":
+         case "smallserial":
+         case "serial2":
+         case "serial":
+         case "serial4":
+            return false;
+      }
+      return true;
+   }
+   
+   /**
+    * Must escape
+    * @param type The type
+    * @return True if escape needed, otherwise false
+    */
+   private static boolean mustEscape(String type) throws Exception
+   {
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "character":
+         case "char":
+         case "character varying":
+         case "varchar":
+         case "date":
+         case "text":
+         case "time":
+         case "time without time zone":
+         case "time with time zone":
+         case "timetz":
+         case "timestamp":
+         case "timestamp without time zone":
+         case "timestamp with time zone":
+         case "timestamptz":
+         case "uuid":
+            return true;
+      }
+      return false;
+   }
+
+   /**
+    * Is BTREE index
+    * @param type The column type
+    * @return True if BTREE, otherwise false (HASH)
+    */
+   private static boolean isBTreeIndex(String type)
+   {
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "character varying":
+         case "varchar":
+         case "text":
+            return false;
+      }
+
+      return true;
+   }
+
+   /**
+    * Is integer
+    * @param type The type
+    * @return True if the values are integers, otherwise false
+    */
+   private static boolean isIntegerType(String type)
+   {
+      if (type.indexOf("(") != -1)
+         type = type.substring(0, type.indexOf("("));
+      switch (type.toLowerCase().trim())
+      {
+         case "bigint":
+         case "int8":
+         case "integer":
+         case "int":
+         case "int4":
+         case "smallint":
+         case "int2":
+         case "bigserial":
+         case "serial8":
+         case "smallserial":
+         case "serial2":
+         case "serial":
+         case "serial4":
+            return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Is SERIAL
+    * @param type The type
+    * @return True if SERIAL, otherwise false
+    */
+   private static boolean isSerial(String type)
+   {
+      switch (type.toLowerCase().trim())
+      {
+         case "bigserial":
+         case "serial8":
+         case "smallserial":
+         case "serial2":
+         case "serial":
+         case "serial4":
+            return true;
+      }
+
+      return false;
+   }
+
+   /**
+    * Write the QueryAnalyzer file
+    * @param profileName The name of the profile
+    */
+   private static void writeQueryAnalyzer(String profileName) throws Exception
+   {
+      List<String> l = new ArrayList<>();
+      List<String> queries = new ArrayList<>();
+      int select = 1;
+      int update = 1;
+      int insert = 1;
+      int delete = 1;
+      int padding = (int)Math.log10(wStatements.size()) + 1;
+
+      l.add("# https://github.com/jesperpedersen/postgres-tools/tree/master/QueryAnalyzer");
+      l.add("host=localhost # ChangeMe");
+      l.add("port=5432 # ChangeMe");
+      l.add("database=test # ChangeMe");
+      l.add("user=test # ChangeMe");
+      l.add("password=test # ChangeMe");
+
+      if (partitionCounts.size() > 0)
+         l.add("partition_pruning=true");
+
+      for (String statement : wStatements)
+      {
+         if (statement.startsWith("SELECT"))
+         {
+            queries.add("query.select." + String.format("%0" + padding + "d", select) + "=" + statement);
+            select++;
+         }
+         else if (statement.startsWith("UPDATE"))
+         {
+            queries.add("query.update." + String.format("%0" + padding + "d", update) + "=" + statement);
+            update++;
+         }
+         else if (statement.startsWith("INSERT"))
+         {
+            queries.add("query.insert." + String.format("%0" + padding + "d", insert) + "=" + statement);
+            insert++;
+         }
+         else if (statement.startsWith("DELETE"))
+         {
+            queries.add("query.delete." + String.format("%0" + padding + "d", delete) + "=" + statement);
+            delete++;
+         }
+      }
+
+      Collections.sort(queries);
+      l.addAll(queries);
+
+      writeFile(Paths.get(profileName, profileName + "-queryanalyzer.properties"), l);
+   }
+
+   /**
+    * Create an index definition
+    * @param table The table name
+    * @param columns The columns
+    */
+   private static void defineIndex(String table, List<String> columns)
+   {
+      Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+
+      if (m == null)
+         m = new HashMap<>();
+
+      List<String> colNames = columnNames.get(table);
+      int[] offsets = new int[columns.size()];
+      for (int i = 0; i < columns.size(); i++)
+      {
+         offsets[i] = colNames.indexOf(columns.get(i));
+      }
+
+      IndexDef id = new IndexDef(columns, offsets);
+      m.put(id, new ConcurrentHashMap<>());
+
+      indexes.put(table, m);
+   }
+
+   /**
+    * Insert an index value
+    * @param client The client
+    * @param table The table name
+    * @param colNames The column names
+    * @param colValues The column values
+    */
+   private static void insertIndex(int client, String table, List<String> colNames, List<String> colValues)
+   {
+      Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+
+      if (m != null)
+      {
+         String pk = primaryKeys.get(table);
+         int pkOffset = colNames.indexOf(pk);
+
+         for (Map.Entry<IndexDef, Map<Integer, IndexValues>> entry : m.entrySet())
+         {
+            IndexDef id = entry.getKey();
+            Map<Integer, IndexValues> cmap = entry.getValue();
+            int[] offsets = id.getOffsets();
+            List<String> ivValues = new ArrayList<>(offsets.length);
+
+            for (int i = 0; i < offsets.length; i++)
+            {
+               ivValues.add(colValues.get(offsets[i]));
+            }
+
+            IndexValues liv = cmap.get(client);
+
+            if (liv == null)
+            {
+               liv = new IndexValues(!pseudoPrimaryKeys.contains(table), isRanked(table));
+               cmap.put(client, liv);
+            }
+
+            liv.add(new IndexVal(colValues.get(pkOffset), ivValues));
+         }
+      }
+   }
+
+   /**
+    * Update an index value
+    * @param client The client
+    * @param table The table name
+    * @param colNames The column names
+    * @param colValues The column values
+    */
+   private static void updateIndex(int client, String table, String pkVal, List<String> colNames, List<String> colValues)
+   {
+      Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+
+      if (m != null)
+      {
+         for (Map.Entry<IndexDef, Map<Integer, IndexValues>> entry : m.entrySet())
+         {
+            IndexDef id = entry.getKey();
+            IndexValues liv = entry.getValue().get(client);
+
+            if (liv != null)
+            {
+               List<IndexVal> livs = liv.get(pkVal);
+
+               if (!livs.isEmpty())
+               {
+                  List<String> ivValues = new ArrayList<>(id.getColumns().size());
+                  for (int i = 0; ivValues != null && i < id.getColumns().size(); i++)
+                  {
+                     int offset = colNames.indexOf(id.getColumns().get(i));
+
+                     if (offset != -1)
+                     {
+                        ivValues.add(colValues.get(offset));
+                     }
+                     else
+                     {
+                        ivValues = null;
+                     }
+                  }
+
+                  if (ivValues != null)
+                  {
+                     for (IndexVal iv : livs)
+                     {
+                        iv.setValues(ivValues);
+                     }
+                  }
+               }
+            }
+         }
+      }
+   }
+
+   /**
+    * Delete an index value
+    * @param client The client
+    * @param table The table name
+    * @param pkValue The primary key
+    */
+   private static void deleteIndex(int client, String table, String pkValue)
+   {
+      Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+
+      if (m != null)
+      {
+         for (Map.Entry<IndexDef, Map<Integer, IndexValues>> entry : m.entrySet())
+         {
+            IndexValues liv = entry.getValue().get(client);
+
+            if (liv != null)
+               liv.remove(pkValue);
+         }
+      }
+   }
+
+   /**
+    * Get a random index definition
+    * @param client The client
+    * @param table The table name
+    * @return The index definition; otherwise null
+    */
+   private static IndexDef getRandomIndexDefinition(int client, String table)
+   {
+      Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+
+      if (m != null)
+      {
+         List<IndexDef> lid = new ArrayList<>();
+         for (Map.Entry<IndexDef, Map<Integer, IndexValues>> entry : m.entrySet())
+         {
+            IndexDef id = entry.getKey();
+            Map<Integer, IndexValues> cmap = entry.getValue();
+
+            if (cmap.containsKey(Integer.valueOf(0)) || cmap.containsKey(Integer.valueOf(client)))
+            {
+               lid.add(id);
+            }
+         }
+
+         if (lid.size() > 0)
+         {
+            return lid.get(random().nextInt(lid.size()));
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Get a random index value
+    * @param client The client
+    * @param table The table name
+    * @param id The index definition
+    * @return The index value; otherwise null
+    */
+   private static IndexVal getRandomIndexValue(int client, String table, IndexDef id) throws Exception
+   {
+      if (id != null)
+      {
+         Map<IndexDef, Map<Integer, IndexValues>> m = indexes.get(table);
+         Map<Integer, IndexValues> mliv = m.get(id);
+         IndexValues liv = mliv.get(Integer.valueOf(client));
+
+         if (liv == null)
+         {
+            liv = mliv.get(Integer.valueOf(0));
+            client = 0;
+         }
+
+         if (liv != null && liv.size() > 0)
+         {
+            return liv.get(getDistribution(table, table + ":" + client + ":" + id).next(random(), liv.size()));
+         }
+      }
+
+      return null;
+   }
+
+   /**
+    * Setup
+    * @param name The name of the profile
+    */
+   private static void setup(String name) throws Exception
+   {
+      File p = new File(name);
+      if (p.exists())
+      {
+         Files.walk(Paths.get(name))
+            .sorted(Comparator.reverseOrder())
+            .map(Path::toFile)
+            .forEach(File::delete);
+      }
+      p.mkdir();
+   }
+
+   /**
+    * Get the random stream of the current thread
+    * @return The stream
+    */
+   private static Random random()
+   {
+      return streams.get();
+   }
+
+   /**
+    * Get a random stream derived from the seed
+    * @param name The name of the stream
+    * @param index The index of the stream
+    * @return The stream
+    */
+   private static Random getStream(String name, long index)
+   {
+      return new SplitRandom(SplitRandom.mix(seed ^ SplitRandom.mix(name.hashCode() * 0x9E3779B97F4A7C15L + index)));
+   }
+
+   /**
+    * Main
+    * @param args The arguments
+    */
+   public static void main(String[] args)
+   {
+      try
+      {
+         if (args.length > 8)
+         {
+            System.out.println("Usage: SQLLoadGenerator [-s scale] [-t scale] [-c configuration.properties] [-l] [-r]");
+            return;
+         }
+         
+         String s = DEFAULT_PROFILE;
+         for (int parameter = 0; parameter < args.length; parameter++)
+         {
+            if ("-l".equals(args[parameter]))
+            {
+               load = true;
+            }
+            else if ("-r".equals(args[parameter]))
+            {
+               run = true;
+            }
+            else if (parameter == args.length - 1)
+            {
+               System.out.println("Usage: SQLLoadGenerator [-s scale] [-t scale] [-c configuration.properties] [-l] [-r]");
+               return;
+            }
+            else if ("-s".equals(args[parameter]))
+            {
+               rowScale = Double.valueOf(args[++parameter]);
+            }
+            else if ("-t".equals(args[parameter]))
+            {
+               statementScale = Double.valueOf(args[++parameter]);
+            }
+            else if ("-c".equals(args[parameter]))
+            {
+               s = args[++parameter];
+               if (s.endsWith(".properties"))
+                  s = s.substring(0, s.lastIndexOf("."));
+            }
+            else
+            {
+               throw new Exception("Unknown option: " + args[parameter]);
+            }
+         }
+
+         profile = new Properties();
+         InputStream input = new FileInputStream(s + ".properties");
+         profile.load(input);
+         input.close();
+
+         if (profile.getProperty("seed") != null)
+         {
+            seed = Long.parseLong(profile.getProperty("seed"));
+            time = SEED_TIME;
+         }
+         else
+         {
+            seed = new Random().nextLong();
+            time = System.currentTimeMillis();
+         }
+         streams.set(getStream("workload", 0));
+
+         System.out.println("Seed: " + seed);
+         
+         setup(s);
+         writeDDL(s);
+         writeData(s);
+         if (run)
+         {
+            runWorkload(s);
+         }
+         else
+         {
+            writeWorkload(s);
+         }
+         writeQueryAnalyzer(s);
+      }
+      catch (Exception e)
+      {
+         e.printStackTrace();
+         System.exit(1);
+      }
+   }
+
+   /**
+    * Registry of primary keys with O(1) lookup.
+    * For the uniform distribution the keys are kept in a dense array with O(1) random access
+    * and removal, as removal moves the last key into the freed position. The other distributions
+    * pick keys by rank, so the keys are kept in insertion order, where the rank of a key is stable
+    * when other keys are removed, with O(log n) random access and removal
+    */
+   private static abstract class KeyRegistry
+   {
+      /**
+       * Get the number of keys
+       * @return The value
+       */
+      abstract int size();
+
+      /**
+       * Is a key registered
+       * @param key The key
+       * @return True if registered, otherwise false
+       */
+      abstract boolean contains(String key);
+
+      /**
+       * Register a key
+       * @param key The key
+       * @return True if added, otherwise false if already registered
+       */
+      abstract boolean add(String key);
+
+      /**
+       * Get a key
+       * @param index The rank of the key, between 0 and size() - 1
+       * @return The key
+       */
+      abstract String get(int index);
+
+      /**
+       * Remove a key
+       * @param key The key
+       * @return True if removed, otherwise false if not registered
+       */
+      abstract boolean remove(String key);
+   }
+
+   /**
+    * The positions of the live entries of a registry, where removed entries leave a hole.
+    * A Fenwick tree over the positions finds the position of the n'th live entry
+    */
+   private static class Ranks
+   {
+      private int[] tree;
+      private boolean[] live;
+      private int end;
+      private int size;
+
+      /**
+       * Constructor
+       * @param capacity The expected number of entries
+       */
+      Ranks(int capacity)
+      {
+         this.tree = new int[Math.max(16, capacity) + 1];
+         this.live = new boolean[Math.max(16, capacity)];
+         this.end = 0;
+         this.size = 0;
+      }
+
+      /**
+       * Get the number of live entries
+       * @return The value
+       */
+      int size()
+      {
+         return size;
+      }
+
+      /**
+       * Get the position after the last entry, live or removed
+       * @return The value
+       */
+      int end()
+      {
+         return end;
+      }
+
+      /**
+       * Is the entry at a position live
+       * @param position The position
+       * @return True if live, otherwise false if removed
+       */
+      boolean isLive(int position)
+      {
+         return live[position];
+      }
+
+      /**
+       * More holes than entries, so the owner should compact
+       * @return True if sparse, otherwise false
+       */
+      boolean isSparse()
+      {
+         return end - size > Math.max(16, size);
+      }
+
+      /**
+       * Add an entry at the end
+       * @return The position
+       */
+      int add()
+      {
+         if (end == live.length)
+         {
+            live = Arrays.copyOf(live, live.length * 2);
+            rebuild();
+         }
+
+         live[end] = true;
+         size++;
+
+         for (int i = end + 1; i < tree.length; i += i & -i)
+            tree[i]++;
+
+         return end++;
+      }
+
+      /**
+       * Remove the entry at a position, which leaves a hole
+       * @param position The position
+       */
+      void remove(int position)
+      {
+         live[position] = false;
+         size--;
+
+         for (int i = position + 1; i < tree.length; i += i & -i)
+            tree[i]--;
+      }
+
+      /**
+       * The position of a live entry
+       * @param rank The rank among the live entries
+       * @return The position
+       */
+      int position(int rank)
+      {
+         int position = 0;
+         int remaining = rank + 1;
+
+         for (int step = Integer.highestOneBit(tree.length - 1); step > 0; step >>= 1)
+         {
+            int next = position + step;
+
+            if (next < tree.length && tree[next] < remaining)
+            {
+               position = next;
+               remaining -= tree[next];
+            }
+         }
+
+         return position;
+      }
+
+      /**
+       * The owner has moved the live entries to the first positions
+       */
+      void compact()
+      {
+         Arrays.fill(live, 0, end, false);
+         Arrays.fill(live, 0, size, true);
+         end = size;
+         rebuild();
+      }
+
+      /**
+       * Rebuild the tree from the live entries
+       */
+      private void rebuild()
+      {
+         tree = new int[live.length + 1];
+
+         for (int i = 1; i < tree.length; i++)
+         {
+            if (live[i - 1])
+               tree[i]++;
+
+            int parent = i + (i & -i);
+            if (parent < tree.length)
+               tree[parent] += tree[i];
+         }
+      }
+   }
+
+   /**
+    * Key registry for integer keys, stored as primitives in an open addressing hash table.
+    * NULL isn't a key, f.ex. from a nullable first column of a table without a primary key
+    */
+   private static class LongKeyRegistry extends KeyRegistry
+   {
+      private long[] keys;
+      private int[] slots;
+      private int mask;
+      private int size;
+      private Ranks ranks;
+
+      /**
+       * Constructor
+       * @param capacity The expected number of keys
+       * @param ranked Keep the keys in insertion order
+       */
+      LongKeyRegistry(int capacity, boolean ranked)
+      {
+         int n = 16;
+         while (n < capacity * 2)
+            n <<= 1;
+
+         this.keys = new long[Math.max(16, capacity)];
+         this.slots = new int[n];
+         this.mask = n - 1;
+         this.size = 0;
+         this.ranks = ranked ? new Ranks(capacity) : null;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      int size()
+      {
+         return size;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean contains(String key)
+      {
+         if ("NULL".equals(key))
+            return false;
+
+         return find(Long.parseLong(key)) != -1;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean add(String key)
+      {
+         if ("NULL".equals(key))
+            return false;
+
+         long k = Long.parseLong(key);
+
+         if (find(k) != -1)
+            return false;
+
+         if (end() == keys.length)
+            keys = Arrays.copyOf(keys, keys.length * 2);
+
+         if ((size + 1) * 2 > slots.length)
+            rehash(slots.length * 2);
+
+         int position = ranks != null ? ranks.add() : size;
+         keys[position] = k;
+         insert(k, position);
+         size++;
+
+         return true;
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      String get(int index)
+      {
+         return Long.toString(keys[ranks != null ? ranks.position(index) : index]);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean remove(String key)
+      {
+         if ("NULL".equals(key))
+            return false;
+
+         int slot = find(Long.parseLong(key));
+
+         if (slot == -1)
+            return false;
+
+         int position = slots[slot] - 1;
+         delete(slot);
+         size--;
+
+         if (ranks == null)
+         {
+            if (position != size)
+            {
+               long k = keys[size];
+               slots[find(k)] = position + 1;
+               keys[position] = k;
+            }
+
+            return true;
+         }
+
+         ranks.remove(position);
+
+         if (ranks.isSparse())
+         {
+            int n = 0;
+            for (int i = 0; i < ranks.end(); i++)
+            {
+               if (ranks.isLive(i))
+                  keys[n++] = keys[i];
+            }
+
+            ranks.compact();
+            rehash(slots.length);
          }
+
+         return true;
       }
 
-      return null;
-   }
+      /**
+       * Get the position after the last key, live or removed
+       * @return The value
+       */
+      private int end()
+      {
+         return ranks != null ? ranks.end() : size;
+      }
 
-   /**
-    * Generate foreign key
-    * @param table The table
-    * @param col The column
-    * @return The foreign key
-    */
-   private static String generateForeignKey(int client, String table, String col)
-   {
-      Set<String> ts = foreignKeys.get(table);
+      /**
+       * Get the home slot of a key
+       * @param k The key
+       * @return The slot
+       */
+      private int hash(long k)
+      {
+         long h = k * 0x9E3779B97F4A7C15L;
+         return (int)(h ^ (h >>> 32)) & mask;
+      }
 
-      for (String data : ts)
+      /**
+       * Find the slot of a key
+       * @param k The key
+       * @return The slot, or -1 if not registered
+       */
+      private int find(long k)
       {
-         int index1 = data.indexOf(":");
+         for (int slot = hash(k); ; slot = (slot + 1) & mask)
+         {
+            int index = slots[slot];
 
-         String c = data.substring(0, index1);
-         if (c.equals(col))
+            if (index == 0)
+               return -1;
+
+            if (keys[index - 1] == k)
+               return slot;
+         }
+      }
+
+      /**
+       * Insert a key into the hash table
+       * @param k The key
+       * @param index The position of the key
+       */
+      private void insert(long k, int index)
+      {
+         int slot = hash(k);
+
+         while (slots[slot] != 0)
+            slot = (slot + 1) & mask;
+
+         slots[slot] = index + 1;
+      }
+
+      /**
+       * Delete a slot from the hash table, and move the following keys
+       * of the probe sequence into the freed slot
+       * @param slot The slot
+       */
+      private void delete(int slot)
+      {
+         int free = slot;
+         int next = slot;
+
+         slots[free] = 0;
+
+         while (true)
          {
-            int index2 = data.lastIndexOf(":");
-            String fkTable = data.substring(index1 + 1, index2);
-            String fkCol = data.substring(index2 + 1);
+            next = (next + 1) & mask;
 
-            Map<Integer, List<String>> m = activePKs.get(fkTable);
-            List<String> apks = m.get(Integer.valueOf(client));
+            if (slots[next] == 0)
+               return;
 
-            if (apks == null || apks.size() == 0)
-               apks = m.get(Integer.valueOf(0));
+            int home = hash(keys[slots[next] - 1]);
 
-            return apks.get(random.nextInt(apks.size()));
+            if (((next - home) & mask) >= ((next - free) & mask))
+            {
+               slots[free] = slots[next];
+               slots[next] = 0;
+               free = next;
+            }
          }
       }
 
-      return "";
+      /**
+       * Rebuild the hash table
+       * @param n The number of slots
+       */
+      private void rehash(int n)
+      {
+         slots = new int[n];
+         mask = n - 1;
+
+         for (int i = 0; i < end(); i++)
+         {
+            if (ranks == null || ranks.isLive(i))
+               insert(keys[i], i);
+         }
+      }
    }
 
    /**
-    * Is nullable
-    * @param table The table
-    * @param col The col
-    * @return True if NULL is supported, otherwise false
+    * Key registry for other keys
     */
-   private static boolean isNullable(String table, String col)
+   private static class StringKeyRegistry extends KeyRegistry
    {
-      if (isPrimaryKey(table, col) || isForeignKey(table, col))
-         return false;
+      private List<String> keys;
+      private Map<String, Integer> indexes;
+      private Ranks ranks;
+
+      /**
+       * Constructor
+       * @param capacity The expected number of keys
+       * @param ranked Keep the keys in insertion order
+       */
+      StringKeyRegistry(int capacity, boolean ranked)
+      {
+         this.keys = new ArrayList<>(capacity);
+         this.indexes = new HashMap<>(capacity * 2);
+         this.ranks = ranked ? new Ranks(capacity) : null;
+      }
 
-      Set<String> ts = notNulls.get(table);
+      /**
+       * {@inheritDoc}
+       */
+      int size()
+      {
+         return ranks != null ? ranks.size() : keys.size();
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean contains(String key)
+      {
+         return indexes.containsKey(key);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean add(String key)
+      {
+         if (indexes.containsKey(key))
+            return false;
+
+         indexes.put(key, Integer.valueOf(ranks != null ? ranks.add() : keys.size()));
+         keys.add(key);
 
-      if (ts == null)
          return true;
+      }
 
-      return !ts.contains(col);
-   }
+      /**
+       * {@inheritDoc}
+       */
+      String get(int index)
+      {
+         return keys.get(ranks != null ? ranks.position(index) : index);
+      }
 
-   /**
-    * Get the NULL target for a table
-    * @param table The table name
-    * @return The value
-    */
-   private static int getNullTarget(String table)
-   {
-      int defaultNotNull = profile.getProperty("notnull") != null ?
-         Integer.parseInt(profile.getProperty("notnull")) : DEFAULT_NOT_NULL;
+      /**
+       * {@inheritDoc}
+       */
+      boolean remove(String key)
+      {
+         Integer position = indexes.remove(key);
 
-      int notnull = profile.getProperty(table + ".notnull") != null ?
-         Integer.parseInt(profile.getProperty(table + ".notnull")) : defaultNotNull;
+         if (position == null)
+            return false;
 
-      return notnull;
-   }
+         if (ranks == null)
+         {
+            String last = keys.remove(keys.size() - 1);
 
-   /**
-    * Is unique
-    * @param table The table
-    * @param col The col
-    * @return True if UNIQUE, otherwise false
-    */
-   private static boolean isUnique(String table, String col)
-   {
-      Map<String, Set<String>> m = uniques.get(table);
+            if (position.intValue() != keys.size())
+            {
+               keys.set(position.intValue(), last);
+               indexes.put(last, position);
+            }
 
-      if (m == null)
-         return false;
+            return true;
+         }
 
-      return m.containsKey(col);
+         keys.set(position.intValue(), null);
+         ranks.remove(position.intValue());
+
+         if (ranks.isSparse())
+         {
+            List<String> l = new ArrayList<>(ranks.size());
+            for (String k : keys)
+            {
+               if (k != null)
+               {
+                  indexes.put(k, Integer.valueOf(l.size()));
+                  l.add(k);
+               }
+            }
+
+            keys = l;
+            ranks.compact();
+         }
+
+         return true;
+      }
    }
 
    /**
-    * Generate unique value
-    * @param table The table
-    * @param name The column name
-    * @param type The type
+    * Key registry for integer keys of a hash partitioned table, which also
+    * keeps the keys of each partition
     */
-   private static String generateUnique(String table, String name, String type) throws Exception
+   private static class PartitionedKeyRegistry extends KeyRegistry
    {
-      String val = getData(table, name, type, Integer.MAX_VALUE, true);
-      Map<String, Set<String>> m = uniques.get(table);
+      private String table;
+      private KeyRegistry keys;
+      private KeyRegistry[] partitions;
+
+      /**
+       * Constructor
+       * @param table The table
+       * @param capacity The expected number of keys
+       * @param partitions The number of partitions
+       * @param ranked Keep the keys in insertion order
+       */
+      PartitionedKeyRegistry(String table, int capacity, int partitions, boolean ranked)
+      {
+         this.table = table;
+         this.keys = new LongKeyRegistry(capacity, ranked);
+         this.partitions = new KeyRegistry[partitions];
 
-      if (m == null)
-         m = new HashMap<>();
+         for (int i = 0; i < partitions; i++)
+            this.partitions[i] = new LongKeyRegistry(capacity / partitions, ranked);
+      }
 
-      Set<String> values = m.get(name);
+      /**
+       * {@inheritDoc}
+       */
+      int size()
+      {
+         return keys.size();
+      }
 
-      if (values == null)
-         values = new HashSet<>();
+      /**
+       * Get the number of keys of a partition
+       * @param partition The partition
+       * @return The value
+       */
+      int size(int partition)
+      {
+         return partitions[partition].size();
+      }
 
-      while (values.contains(val))
+      /**
+       * {@inheritDoc}
+       */
+      boolean contains(String key)
       {
-         val = getData(table, name, type, Integer.MAX_VALUE, true);
+         return keys.contains(key);
       }
 
-      m.put(name, values);
-      uniques.put(table, m);
+      /**
+       * {@inheritDoc}
+       */
+      boolean add(String key)
+      {
+         if (!keys.add(key))
+            return false;
 
-      return val;
-   }
+         partitions[getPartition(table, key)].add(key);
 
-   /**
-    * Get rows for a table
-    * @param table The table name
-    * @return The number of rows
-    */
-   private static int getRows(String table)
-   {
-      int defaultRows = profile.getProperty("rows") != null ?
-         Integer.parseInt(profile.getProperty("rows")) : DEFAULT_ROWS;
+         return true;
+      }
 
-      int rows = profile.getProperty(table + ".rows") != null ?
-         Integer.parseInt(profile.getProperty(table + ".rows")) : defaultRows;
+      /**
+       * {@inheritDoc}
+       */
+      String get(int index)
+      {
+         return keys.get(index);
+      }
 
-      return (int)(rowScale * rows);
+      /**
+       * Get a key of a partition
+       * @param partition The partition
+       * @param index The rank of the key in the partition
+       * @return The key
+       */
+      String get(int partition, int index)
+      {
+         return partitions[partition].get(index);
+      }
+
+      /**
+       * {@inheritDoc}
+       */
+      boolean remove(String key)
+      {
+         if (!keys.remove(key))
+            return false;
+
+         partitions[getPartition(table, key)].remove(key);
+
+         return true;
+      }
    }
 
    /**
-    * Get the SELECT mode
-    * @param table The table name
-    * @return The mode
+    * Index definition
     */
-   private static int getSelectMode(String table)
+   private static class IndexDef
    {
-      int defaultPk = profile.getProperty("mix.select") != null ?
-         Integer.parseInt(profile.getProperty("mix.select")) : DEFAULT_MIX_SELECT;
+      private List<String> columns;
+      private int[] offsets;
 
-      int pk = profile.getProperty(table + ".mix.select") != null ?
-         Integer.parseInt(profile.getProperty(table + ".mix.select")) : defaultPk;
+      IndexDef(List<String> columns, int[] offsets)
+      {
+         this.columns = columns;
+         this.offsets = offsets;
+      }
 
-      int defaultIndex = profile.getProperty("mix.select.index") != null ?
-         Integer.parseInt(profile.getProperty("mix.select.index")) : DEFAULT_MIX_SELECT_INDEX;
+      List<String> getColumns()
+      {
+         return columns;
+      }
 
-      int index = profile.getProperty(table + ".mix.select.index") != null ?
-         Integer.parseInt(profile.getProperty(table + ".mix.select.index")) : defaultIndex;
+      int[] getOffsets()
+      {
+         return offsets;
+      }
 
-      int defaultIn = profile.getProperty("mix.select.in") != null ?
-         Integer.parseInt(profile.getProperty("mix.select.in")) : DEFAULT_MIX_SELECT_IN;
+      @Override
+      public String toString()
+      {
+         StringBuilder sb = new StringBuilder();
 
-      int in = profile.getProperty(table + ".mix.select.in") != null ?
-         Integer.parseInt(profile.getProperty(table + ".mix.select.in")) : defaultIn;
+         sb.append("IndexDef({");
+         for (int i = 0; i < columns.size(); i++)
+         {
+            sb.append(columns.get(i));
+            if (i < columns.size() - 1)
+               sb.append(", ");
+         }
+         sb.append("})");
 
-      int offset1 = (int)(100 * (((float)index) / (pk + index + in)));
-      int offset2 = (int)(100 * (((float)index + (float)in) / (pk + index + in)));
+         return sb.toString();
+      }
 
-      int[] distribution = new int[100];
+      @Override
+      public int hashCode()
+      {
+         int hash = 41;
 
-      Arrays.fill(distribution, 0, offset1, SELECT_INDEX);
-      Arrays.fill(distribution, offset1, offset2, SELECT_IN);
-      Arrays.fill(distribution, offset2, 100, SELECT_PRIMARY_KEY);
+         for (String col : columns)
+         {
+            hash += 7 * Objects.hashCode(col);
+         }
 
-      return distribution[random.nextInt(100)];
-   }
+         return hash;
+      }
 
-   /**
-    * Get the number of primary keys for IN
-    * @param table The table name
-    * @return The number
-    */
-   private static int getINCount(String table)
-   {
-      int defaultInCount = profile.getProperty("mix.select.in.count") != null ?
-         Integer.parseInt(profile.getProperty("mix.select.in.count")) : DEFAULT_MIX_SELECT_IN_COUNT;
+      @Override
+      public boolean equals(Object o)
+      {
+         if (o == null || !(o instanceof IndexDef))
+            return false;
 
-      int inCount = profile.getProperty(table + ".mix.select.in.count") != null ?
-         Integer.parseInt(profile.getProperty(table + ".mix.select.in.count")) : defaultInCount;
+         if (o == this)
+            return true;
+
+         IndexDef id = (IndexDef)o;
+
+         if (columns.size() != id.getColumns().size())
+            return false;
+
+         for (int i = 0; i < columns.size(); i++)
+         {
+            if (!Objects.equals(columns.get(i), id.getColumns().get(i)))
+               return false;
+         }
 
-      return inCount;
+         return true;
+      }
    }
 
    /**
-    * Get the mode for an UPDATE
-    * @param table The table name
-    * @return The mode
+    * Index values of a client, with lookup by primary key, kept in insertion order
+    * like the key registry when ranked.
+    * A table without a primary key is keyed by its first column, which can have
+    * the same value in several rows
     */
-   private static int getUpdateMode(String table)
+   private static class IndexValues
    {
-      if (fromTo.containsKey(table))
+      private boolean unique;
+      private List<IndexVal> values;
+      private Map<String, List<Integer>> positions;
+      private Ranks ranks;
+
+      IndexValues(boolean unique, boolean ranked)
       {
-         int defaultFields = profile.getProperty("mix.update") != null ?
-            Integer.parseInt(profile.getProperty("mix.update")) : DEFAULT_MIX_UPDATE;
+         this.unique = unique;
+         this.values = new ArrayList<>();
+         this.positions = new HashMap<>();
+         this.ranks = ranked ? new Ranks(16) : null;
+      }
 
-         int fields = profile.getProperty(table + ".mix.update") != null ?
-            Integer.parseInt(profile.getProperty(table + ".mix.update")) : defaultFields;
+      int size()
+      {
+         return ranks != null ? ranks.size() : values.size();
+      }
 
-         int defaultFK = profile.getProperty("mix.update.foreignkey") != null ?
-            Integer.parseInt(profile.getProperty("mix.update.foreignkey")) : DEFAULT_MIX_UPDATE_FOREIGNKEY;
+      IndexVal get(int index)
+      {
+         return values.get(ranks != null ? ranks.position(index) : index);
+      }
 
-         int fk = profile.getProperty(table + ".mix.update.foreignkey") != null ?
-            Integer.parseInt(profile.getProperty(table + ".mix.update.foreignkey")) : defaultFK;
+      List<IndexVal> get(String pk)
+      {
+         List<Integer> l = positions.get(pk);
 
-         int offset = (int)(100 * (((float)fk) / (fields + fk)));
+         if (l == null)
+            return Collections.emptyList();
 
-         int[] distribution = new int[100];
+         List<IndexVal> result = new ArrayList<>(l.size());
+         for (Integer index : l)
+         {
+            result.add(values.get(index.intValue()));
+         }
 
-         Arrays.fill(distribution, 0, offset, UPDATE_FOREIGNKEY);
-         Arrays.fill(distribution, offset, 100, UPDATE_FIELDS);
+         return result;
+      }
+
+      void add(IndexVal iv)
+      {
+         List<Integer> l = positions.get(iv.getPrimaryKey());
+
+         if (l != null && unique)
+         {
+            values.set(l.get(0).intValue(), iv);
+         }
+         else
+         {
+            if (l == null)
+            {
+               l = new ArrayList<>(1);
+               positions.put(iv.getPrimaryKey(), l);
+            }
 
-         return distribution[random.nextInt(100)];
+            l.add(Integer.valueOf(ranks != null ? ranks.add() : values.size()));
+            values.add(iv);
+         }
       }
 
-      return UPDATE_FIELDS;
-   }
+      void remove(String pk)
+      {
+         List<Integer> l = positions.remove(pk);
 
-   /**
-    * Get data
-    * @param table The table
-    * @param name The column name
-    * @param type The type
-    * @param row Hint for row number
-    */
-   private static String getData(String table, String name, String type, int row) throws Exception
-   {
-      return getData(table, name, type, row, true);
+         if (l != null && ranks == null)
+         {
+            // From the back, so the last value is either the removed one or of another key
+            l.sort(Collections.reverseOrder());
+
+            for (Integer index : l)
+            {
+               IndexVal last = values.remove(values.size() - 1);
+
+               if (index.intValue() != values.size())
+               {
+                  values.set(index.intValue(), last);
+
+                  List<Integer> p = positions.get(last.getPrimaryKey());
+                  p.set(p.indexOf(Integer.valueOf(values.size())), index);
+               }
+            }
+         }
+         else if (l != null)
+         {
+            for (Integer index : l)
+            {
+               values.set(index.intValue(), null);
+               ranks.remove(index.intValue());
+            }
+
+            if (ranks.isSparse())
+            {
+               List<IndexVal> compacted = new ArrayList<>(ranks.size());
+               positions.clear();
+
+               for (IndexVal iv : values)
+               {
+                  if (iv != null)
+                  {
+                     List<Integer> p = positions.get(iv.getPrimaryKey());
+
+                     if (p == null)
+                     {
+                        p = new ArrayList<>(1);
+                        positions.put(iv.getPrimaryKey(), p);
+                     }
+
+                     p.add(Integer.valueOf(compacted.size()));
+                     compacted.add(iv);
+                  }
+               }
+
+               values = compacted;
+               ranks.compact();
+            }
+         }
+      }
    }
 
    /**
-    * Get data
-    * @param table The table
-    * @param name The column name
-    * @param type The type
-    * @param row Hint for row number
-    * @param r Should the data be random
+    * Index values
     */
-   private static String getData(String table, String name, String type, int row, boolean r) throws Exception
+   private static class IndexVal
    {
-      String validChars = "ABCDEFGHIJKLMNOPQRSTUVXWZabcdefghijklmnopqrstuvxwz0123456789";
+      private String pk;
+      private List<String> values;
 
-      if (isNullable(table, name) && random.nextInt(101) > getNullTarget(table))
+      IndexVal(String pk, List<String> values)
       {
-         return "NULL";
+         this.pk = pk;
+         this.values = values;
       }
 
-      String base = type;
-      int size = 0;
-      if (base.indexOf("(") != -1)
+      String getPrimaryKey()
       {
-         if (base.indexOf(",") == -1)
+         return pk;
+      }
+
+      List<String> getValues()
+      {
+         return values;
+      }
+
+      void setValues(List<String> values)
+      {
+         this.values = values;
+      }
+
+      @Override
+      public String toString()
+      {
+         StringBuilder sb = new StringBuilder();
+
+         sb.append("IndexVal(");
+         sb.append(pk);
+         sb.append(", {");
+         for (int i = 0; i < values.size(); i++)
          {
-            size = Integer.parseInt(base.substring(base.indexOf("(") + 1, base.indexOf(")")));
+            sb.append(values.get(i));
+            if (i < values.size() - 1)
+               sb.append(", ");
          }
-         else
+         sb.append("})");
+
+         return sb.toString();
+      }
+
+      @Override
+      public int hashCode()
+      {
+         int hash = 41;
+
+         hash += 7 * Objects.hashCode(pk);
+
+         for (String val : values)
          {
-            size = Integer.parseInt(base.substring(base.indexOf("(") + 1, base.indexOf(",")));
+            hash += 7 * Objects.hashCode(val);
          }
-         base = base.substring(0, base.indexOf("("));
+
+         return hash;
       }
-      switch (base.toLowerCase().trim())
+
+      @Override
+      public boolean equals(Object o)
       {
-         case "bigint":
-         case "int8":
-            if (r)
-            {
-               return Long.toString(random.nextLong());
-            }
-            else
-            {
-               return Long.toString(row);
-            }
-         case "bigserial":
-         case "serial8":
-            return "DEFAULT";
-         case "bit":
-         case "bit varying":
-         case "varbit":
-         case "boolean":
-         case "bool":
-            return Boolean.toString(random.nextBoolean());
-            //case "bytea":
-         case "character":
-         case "char":
-            return Character.toString(validChars.charAt(random.nextInt(validChars.length())));
-         case "character varying":
-         case "varchar":
-            if (size == 0)
-               size = 16;
-            StringBuilder sb = new StringBuilder(size);
-            for (int i = 0; i < size; i++)
-               sb.append(validChars.charAt(random.nextInt(validChars.length())));
-            return sb.toString();
-         case "date":
-            return new java.sql.Date(System.currentTimeMillis()).toString();
-         case "double precision":
-         case "float8":
-            if (r)
-            {
-               return Double.toString(random.nextDouble());
-            }
-            else
-            {
-               return Double.toString(row);
-            }
-         case "integer":
-         case "int":
-         case "int4":
-            if (r)
-            {
-               return Integer.toString(random.nextInt(Integer.MAX_VALUE));
-            }
-            else
-            {
-               return Integer.toString(row);
-            }
-         case "numeric":
-         case "decimal":
-            if (r)
-            {
-               return new java.math.BigDecimal(random.nextInt(Integer.MAX_VALUE)).toPlainString();
-            }
-            else
-            {
-               return new java.math.BigDecimal(row).toPlainString();
-            }
-         case "real":
-         case "float4":
-            if (r)
-            {
-               return Float.toString(random.nextFloat());
-            }
-            else
-            {
-               return Float.toString(row);
-            }
-         case "smallint":
-         case "int2":
-            return Short.toString((short)random.nextInt(Short.MAX_VALUE));
-         case "smallserial":
-         case "serial2":
-            return "DEFAULT";
-         case "serial":
-         case "serial4":
-            return "DEFAULT";
-         case "text":
-            sb = new StringBuilder(256);
-            for (int i = 0; i < 256; i++)
-               sb.append(validChars.charAt(random.nextInt(validChars.length())));
-            return sb.toString();
-         case "time":
-         case "time without time zone":
-         case "time with time zone":
-         case "timetz":
-            return new java.sql.Time(System.currentTimeMillis()).toString();
-         case "timestamp":
-         case "timestamp without time zone":
-         case "timestamp with time zone":
-         case "timestamptz":
-            return new java.sql.Timestamp(System.currentTimeMillis()).toString();
-         case "uuid":
-            return java.util.UUID.randomUUID().toString();
+         if (o == null || !(o instanceof IndexVal))
+            return false;
+
+         if (o == this)
+            return true;
+
+         IndexVal iv = (IndexVal)o;
+
+         if (!Objects.equals(pk, iv.getPrimaryKey()))
+            return false;
+
+         if (values.size() != iv.getValues().size())
+            return false;
+
+         for (int i = 0; i < values.size(); i++)
+         {
+            if (!Objects.equals(values.get(i), iv.getValues().get(i)))
+               return false;
+         }
+
+         return true;
       }
-      throw new Exception("Unsupported type: " + type);
    }
 
    /**
-    * Is data random
-    * @param type The type
+    * The workload of a client
     */
-   private static boolean isDataRandom(String type)
+   private static class ClientWorkload
    {
-      String base = type;
-      if (base.indexOf("(") != -1)
+      private int client;
+      private int statements;
+      private int mixSelect;
+      private int mixUpdate;
+      private int mixInsert;
+      private int mixDelete;
+      private int commit;
+      private int rollback;
+      private int rate;
+      private int duration;
+      private int statement;
+      private int select;
+      private int update;
+      private int insert;
+      private int delete;
+      private int tx;
+      private int txC;
+      private int txR;
+      private int[] distTx;
+
+      ClientWorkload(int client, int mspt)
       {
-         base = base.substring(0, base.indexOf("("));
+         this.client = client;
+         this.distTx = new int[mspt];
       }
-      switch (base.toLowerCase().trim())
+
+      void add(ClientWorkload cw)
       {
-         case "bigserial":
-         case "serial8":
-         case "bigint":
-         case "int8":
-         case "double precision":
-         case "float8":
-         case "integer":
-         case "int":
-         case "int4":
-         case "numeric":
-         case "decimal":
-         case "real":
-         case "float4":
-         case "smallserial":
-         case "serial2":
-         case "serial":
-         case "serial4":
-            return false;
+         select += cw.select;
+         update += cw.update;
+         insert += cw.insert;
+         delete += cw.delete;
+         tx += cw.tx;
+         txC += cw.txC;
+         txR += cw.txR;
+
+         for (int i = 0; i < distTx.length; i++)
+         {
+            distTx[i] += cw.distTx[i];
+         }
       }
-      return true;
    }
-   
+
    /**
-    * Must escape
-    * @param type The type
-    * @return True if escape needed, otherwise false
+    * Generates and executes the transactions of a client, phase by phase
     */
-   private static boolean mustEscape(String type) throws Exception
+   private static class WorkloadRunner implements Runnable
    {
-      if (type.indexOf("(") != -1)
-         type = type.substring(0, type.indexOf("("));
-      switch (type.toLowerCase().trim())
+      private ClientWorkload cw;
+      private List<ClientWorkload> work;
+      private List<String> tableNames;
+      private CyclicBarrier barrier;
+      private Histogram[] histograms;
+      private long[] phaseTimes;
+      private long runTime;
+      private long connectionTime;
+      private long statements;
+      private long errors;
+
+      WorkloadRunner(int client, int mspt, List<ClientWorkload> work, List<String> tableNames)
       {
-         case "character":
-         case "char":
-         case "character varying":
-         case "varchar":
-         case "date":
-         case "text":
-         case "time":
-         case "time without time zone":
-         case "time with time zone":
-         case "timetz":
-         case "timestamp":
-         case "timestamp without time zone":
-         case "timestamp with time zone":
-         case "timestamptz":
-         case "uuid":
-            return true;
+         this.cw = new ClientWorkload(client, mspt);
+         this.work = work;
+         this.tableNames = tableNames;
+         this.barrier = null;
+         this.histograms = new Histogram[work.size()];
+         this.phaseTimes = new long[work.size()];
+         this.runTime = 0;
+         this.connectionTime = 0;
+         this.statements = 0;
+         this.errors = 0;
+
+         for (int i = 0; i < histograms.length; i++)
+         {
+            histograms[i] = new Histogram();
+         }
       }
-      return false;
-   }
 
-   /**
-    * Is BTREE index
-    * @param type The column type
-    * @return True if BTREE, otherwise false (HASH)
-    */
-   private static boolean isBTreeIndex(String type)
-   {
-      if (type.indexOf("(") != -1)
-         type = type.substring(0, type.indexOf("("));
-      switch (type.toLowerCase().trim())
+      void setBarrier(CyclicBarrier barrier)
       {
-         case "character varying":
-         case "varchar":
-         case "text":
-            return false;
+         this.barrier = barrier;
       }
 
-      return true;
-   }
+      ClientWorkload getWorkload()
+      {
+         return cw;
+      }
 
-   /**
-    * Is SERIAL
-    * @param type The type
-    * @return True if SERIAL, otherwise false
-    */
-   private static boolean isSerial(String type)
-   {
-      switch (type.toLowerCase().trim())
+      ClientWorkload getWork(int phase)
       {
-         case "bigserial":
-         case "serial8":
-         case "smallserial":
-         case "serial2":
-         case "serial":
-         case "serial4":
-            return true;
+         return work.get(phase);
       }
 
-      return false;
-   }
+      Histogram getHistogram(int phase)
+      {
+         return histograms[phase];
+      }
 
-   /**
-    * Write the QueryAnalyzer file
-    * @param profileName The name of the profile
-    */
-   private static void writeQueryAnalyzer(String profileName) throws Exception
-   {
-      List<String> l = new ArrayList<>();
-      List<String> queries = new ArrayList<>();
-      int select = 1;
-      int update = 1;
-      int insert = 1;
-      int delete = 1;
-      int padding = (int)Math.log10(wStatements.size()) + 1;
+      long getPhaseTime(int phase)
+      {
+         return phaseTimes[phase];
+      }
 
-      l.add("# https://github.com/jesperpedersen/postgres-tools/tree/master/QueryAnalyzer");
-      l.add("host=localhost # ChangeMe");
-      l.add("port=5432 # ChangeMe");
-      l.add("database=test # ChangeMe");
-      l.add("user=test # ChangeMe");
-      l.add("password=test # ChangeMe");
+      long getRunTime()
+      {
+         return runTime;
+      }
 
-      for (String statement : wStatements)
+      long getConnectionTime()
       {
-         if (statement.startsWith("SELECT"))
-         {
-            queries.add("query.select." + String.format("%0" + padding + "d", select) + "=" + statement);
-            select++;
-         }
-         else if (statement.startsWith("UPDATE"))
-         {
-            queries.add("query.update." + String.format("%0" + padding + "d", update) + "=" + statement);
-            update++;
-         }
-         else if (statement.startsWith("INSERT"))
-         {
-            queries.add("query.insert." + String.format("%0" + padding + "d", insert) + "=" + statement);
-            insert++;
-         }
-         else if (statement.startsWith("DELETE"))
-         {
-            queries.add("query.delete." + String.format("%0" + padding + "d", delete) + "=" + statement);
-            delete++;
-         }
+         return connectionTime;
       }
 
-      Collections.sort(queries);
-      l.addAll(queries);
+      long getStatements()
+      {
+         return statements;
+      }
 
-      writeFile(Paths.get(profileName, profileName + "-queryanalyzer.properties"), l);
-   }
+      long getErrors()
+      {
+         return errors;
+      }
 
-   /**
-    * Create an index definition
-    * @param table The table name
-    * @param columns The columns
-    */
-   private static void defineIndex(String table, List<String> columns)
-   {
-      Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
+      public void run()
+      {
+         Connection c = null;
+         Map<String, PreparedStatement> prepared = new HashMap<>();
+         long start = System.currentTimeMillis();
 
-      if (m == null)
-         m = new HashMap<>();
+         streams.set(getStream("client", cw.client));
 
-      IndexDef id = new IndexDef(columns);
-      m.put(id, new HashMap<>());
+         try
+         {
+            c = getConnection();
+            c.setAutoCommit(false);
+            connectionTime = System.currentTimeMillis() - start;
+         }
+         catch (Exception e)
+         {
+            e.printStackTrace();
+         }
 
-      indexes.put(table, m);
-   }
+         try
+         {
+            for (int p = 0; p < work.size(); p++)
+            {
+               long phaseStart = System.currentTimeMillis();
 
-   /**
-    * Insert an index value
-    * @param client The client
-    * @param table The table name
-    * @param colNames The column names
-    * @param colValues The column values
-    */
-   private static void insertIndex(int client, String table, List<String> colNames, List<String> colValues)
-   {
-      Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
+               if (c != null && work.get(p) != null)
+               {
+                  try
+                  {
+                     runPhase(c, prepared, work.get(p), histograms[p]);
+                  }
+                  catch (Exception e)
+                  {
+                     e.printStackTrace();
+                  }
 
-      if (m != null)
-      {
-         String pk = primaryKeys.get(table);
-         int pkOffset = colNames.indexOf(pk);
+                  cw.add(work.get(p));
+               }
 
-         for (Map.Entry<IndexDef, Map<Integer, List<IndexVal>>> entry : m.entrySet())
-         {
-            IndexDef id = entry.getKey();
-            Map<Integer, List<IndexVal>> cmap = entry.getValue();
-            List<String> ivValues = new ArrayList<>();
+               barrier.await();
 
-            for (int i = 0; i < id.getColumns().size(); i++)
-            {
-               String col = id.getColumns().get(i);
-               int offset = colNames.indexOf(col);
-               ivValues.add(colValues.get(offset));
+               phaseTimes[p] = System.currentTimeMillis() - phaseStart;
             }
+         }
+         catch (Exception e)
+         {
+            e.printStackTrace();
+         }
+         finally
+         {
+            runTime = System.currentTimeMillis() - start;
 
-            IndexVal iv = new IndexVal(colValues.get(pkOffset), ivValues);
-            List<IndexVal> liv = cmap.get(client);
-
-            if (liv == null)
-               liv = new ArrayList<>();
+            try
+            {
+               for (PreparedStatement ps : prepared.values())
+               {
+                  ps.close();
+               }
 
-            liv.add(iv);
-            cmap.put(client, liv);
-            m.put(id, cmap);
+               if (c != null)
+                  c.close();
+            }
+            catch (Exception e)
+            {
+               // Ignore
+            }
          }
       }
-   }
-
-   /**
-    * Update an index value
-    * @param client The client
-    * @param table The table name
-    * @param colNames The column names
-    * @param colValues The column values
-    */
-   private static void updateIndex(int client, String table, String pkVal, List<String> colNames, List<String> colValues)
-   {
-      Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
 
-      if (m != null)
+      private void runPhase(Connection c, Map<String, PreparedStatement> prepared, ClientWorkload phase,
+                            Histogram histogram) throws Exception
       {
-         for (Map.Entry<IndexDef, Map<Integer, List<IndexVal>>> entry : m.entrySet())
+         List<List<String>> tx = new ArrayList<>();
+         long start = System.nanoTime();
+         long end = phase.duration > 0 ? start + phase.duration * 1000000000L : Long.MAX_VALUE;
+
+         while (phase.duration > 0 ? System.nanoTime() < end : phase.statement <= phase.statements)
          {
-            IndexDef id = entry.getKey();
-            Map<Integer, List<IndexVal>> cmap = entry.getValue();
-            List<IndexVal> liv = cmap.get(client);
+            tx.clear();
+            boolean commit = generateTransaction(phase, tableNames, tx);
 
-            if (liv != null)
+            try
             {
-               IndexVal iv = null;
-               for (int i = 0; iv == null && i < liv.size(); i++)
+               for (List<String> result : tx)
                {
-                  IndexVal v = liv.get(i);
-
-                  if (pkVal.equals(v.getPrimaryKey()))
+                  long before = System.nanoTime();
+                  PreparedStatement ps = prepared.get(result.get(0));
+                  if (ps == null)
                   {
-                     boolean set = true;
-
-                     for (int j = 0; set && j < id.getColumns().size(); j++)
-                     {
-                        String idCol = id.getColumns().get(j);
-                        if (!colNames.contains(idCol))
-                           set = false;
-                     }
-
-                     if (set)
-                        iv = v;
+                     ps = c.prepareStatement(result.get(0));
+                     prepared.put(result.get(0), ps);
                   }
-               }
 
-               if (iv != null)
-               {
-                  List<String> ivValues = new ArrayList<>(id.getColumns().size());
-                  for (int i = 0; i < id.getColumns().size(); i++)
+                  setParameters(ps, result.get(1), result.get(2));
+
+                  if (ps.execute())
                   {
-                     String col = id.getColumns().get(i);
-                     int offset = colNames.indexOf(col);
-                     ivValues.add(colValues.get(offset));
+                     ResultSet rs = ps.getResultSet();
+                     while (rs.next())
+                     {
+                        // Fetch the rows
+                     }
+                     rs.close();
                   }
 
-                  iv.setValues(ivValues);
-                  cmap.put(client, liv);
-                  m.put(id, cmap);
+                  histogram.record((System.nanoTime() - before) / 1000L);
                }
-            }
-         }
-      }
-   }
 
-   /**
-    * Delete an index value
-    * @param client The client
-    * @param table The table name
-    * @param colNames The column names
-    * @param colValues The column values
-    */
-   private static void deleteIndex(int client, String table, String pkValue)
-   {
-      Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
+               long before = System.nanoTime();
 
-      if (m != null)
-      {
-         for (Map.Entry<IndexDef, Map<Integer, List<IndexVal>>> entry : m.entrySet())
-         {
-            IndexDef id = entry.getKey();
-            Map<Integer, List<IndexVal>> cmap = entry.getValue();
+               if (commit)
+               {
+                  c.commit();
+               }
+               else
+               {
+                  c.rollback();
+               }
 
-            List<IndexVal> liv = cmap.get(client);
-            if (liv != null)
+               histogram.record((System.nanoTime() - before) / 1000L);
+               statements += tx.size() + 2;
+            }
+            catch (SQLException se)
             {
-               Integer offset = null;
-               for (int i = 0; offset == null && i < liv.size(); i++)
-               {
-                  IndexVal iv = liv.get(i);
+               errors++;
+               c.rollback();
+            }
 
-                  if (pkValue.equals(iv.getPrimaryKey()))
-                     offset = Integer.valueOf(i);
-               }
+            long now = System.nanoTime();
 
-               if (offset != null)
-                  liv.remove(offset.intValue());
+            if (phase.rate > 0)
+            {
+               long wait = Math.min(start + (long)(phase.statement * 1000000000.0 / phase.rate), end) - now;
 
-               cmap.put(client, liv);
-               m.put(id, cmap);
+               if (wait > 0)
+                  Thread.sleep(wait / 1000000L, (int)(wait % 1000000L));
             }
          }
       }
    }
 
    /**
-    * Get a random index definition
-    * @param client The client
-    * @param table The table name
-    * @return The index definition; otherwise null
+    * Latency histogram with logarithmic buckets, in the format of Replay's latency.csv
     */
-   private static IndexDef getRandomIndexDefinition(int client, String table)
+   private static class Histogram
    {
-      Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
+      private static final int SUB_BUCKETS = 8;
+      private static final int BUCKETS = 64 * SUB_BUCKETS;
 
-      if (m != null)
+      private long[] counts;
+      private long count;
+      private long sum;
+
+      Histogram()
       {
-         List<IndexDef> lid = new ArrayList<>();
-         for (Map.Entry<IndexDef, Map<Integer, List<IndexVal>>> entry : m.entrySet())
-         {
-            IndexDef id = entry.getKey();
-            Map<Integer, List<IndexVal>> cmap = entry.getValue();
+         this.counts = new long[BUCKETS];
+         this.count = 0;
+         this.sum = 0;
+      }
 
-            if (cmap.containsKey(Integer.valueOf(0)) || cmap.containsKey(Integer.valueOf(client)))
-            {
-               lid.add(id);
-            }
-         }
+      static int bucket(long v)
+      {
+         if (v < SUB_BUCKETS)
+            return v < 0 ? 0 : (int)v;
 
-         if (lid.size() > 0)
-         {
-            return lid.get(random.nextInt(lid.size()));
-         }
-      }
+         int exp = 63 - Long.numberOfLeadingZeros(v);
+         int sub = (int)((v >>> (exp - 3)) & (SUB_BUCKETS - 1));
 
-      return null;
-   }
+         return (exp - 2) * SUB_BUCKETS + sub;
+      }
 
-   /**
-    * Get a random index value
-    * @param client The client
-    * @param table The table name
-    * @param id The index definition
-    * @return The index value; otherwise null
-    */
-   private static IndexVal getRandomIndexValue(int client, String table, IndexDef id)
-   {
-      if (id != null)
+      static long highest(int b)
       {
-         Map<IndexDef, Map<Integer, List<IndexVal>>> m = indexes.get(table);
-         Map<Integer, List<IndexVal>> mliv = m.get(id);
-         List<IndexVal> liv = mliv.get(Integer.valueOf(client));
+         if (b < SUB_BUCKETS)
+            return b;
 
-         if (liv == null)
-            liv = mliv.get(Integer.valueOf(0));
+         int exp = b / SUB_BUCKETS + 2;
+         int sub = b % SUB_BUCKETS;
 
-         if (liv != null && liv.size() > 0)
-         {
-            return liv.get(random.nextInt(liv.size()));
-         }
+         return ((long)(SUB_BUCKETS + sub + 1) << (exp - 3)) - 1;
       }
 
-      return null;
-   }
-
-   /**
-    * Setup
-    * @param name The name of the profile
-    */
-   private static void setup(String name) throws Exception
-   {
-      File p = new File(name);
-      if (p.exists())
+      void record(long v)
       {
-         Files.walk(Paths.get(name))
-            .sorted(Comparator.reverseOrder())
-            .map(Path::toFile)
-            .forEach(File::delete);
+         counts[bucket(v)]++;
+         count++;
+         sum += v;
       }
-      p.mkdir();
-   }
 
-   /**
-    * Main
-    * @param args The arguments
-    */
-   public static void main(String[] args)
-   {
-      try
+      void add(Histogram h)
       {
-         if (args.length == 1 || args.length > 6)
-         {
-            System.out.println("Usage: SQLLoadGenerator [-s scale] [-t scale] [-c configuration.properties]");
-            return;
-         }
-         
-         String s = DEFAULT_PROFILE;
-         if (args.length >= 1)
-         {
-            if (!"-c".equals(args[0]) && !"-s".equals(args[0]) && !"-t".equals(args[0]))
-               throw new Exception("Unknown option: " + args[0]);
-         }
-         if (args.length >= 2)
+         for (int i = 0; i < BUCKETS; i++)
          {
-            for (int parameter = 0; parameter < args.length - 1; parameter++)
-            {
-               if ("-s".equals(args[parameter]))
-               {
-                  rowScale = Double.valueOf(args[++parameter]);
-               }
-               else if ("-t".equals(args[parameter]))
-               {
-                  statementScale = Double.valueOf(args[++parameter]);
-               }
-               else if ("-c".equals(args[parameter]))
-               {
-                  s = args[++parameter];
-                  if (s.endsWith(".properties"))
-                     s = s.substring(0, s.lastIndexOf("."));
-               }
-            }
+            counts[i] += h.counts[i];
          }
-
-         profile = new Properties();
-         InputStream input = new FileInputStream(s + ".properties");
-         profile.load(input);
-         input.close();
-         
-         setup(s);
-         writeDDL(s);
-         writeData(s);
-         writeWorkload(s);
-         writeQueryAnalyzer(s);
+         count += h.count;
+         sum += h.sum;
       }
-      catch (Exception e)
+
+      long getCount()
       {
-         e.printStackTrace();
+         return count;
       }
-   }
-
-   /**
-    * Index definition
-    */
-   private static class IndexDef
-   {
-      private List<String> columns;
 
-      IndexDef(List<String> columns)
+      long getCount(int b)
       {
-         this.columns = columns;
+         return counts[b];
       }
 
-      List<String> getColumns()
+      long getSum()
       {
-         return columns;
+         return sum;
       }
 
-      @Override
-      public String toString()
+      long getPercentile(double p)
       {
-         StringBuilder sb = new StringBuilder();
+         long target = (long)Math.ceil(count * p / 100.0);
+         long seen = 0;
 
-         sb.append("IndexDef({");
-         for (int i = 0; i < columns.size(); i++)
+         for (int i = 0; i < BUCKETS; i++)
          {
-            sb.append(columns.get(i));
-            if (i < columns.size() - 1)
-               sb.append(", ");
+            seen += counts[i];
+            if (seen > 0 && seen >= target)
+               return highest(i);
          }
-         sb.append("})");
 
-         return sb.toString();
+         return 0;
       }
 
-      @Override
-      public int hashCode()
+      long getMax()
       {
-         int hash = 41;
-
-         for (String col : columns)
+         for (int i = BUCKETS - 1; i >= 0; i--)
          {
-            hash += 7 * Objects.hashCode(col);
+            if (counts[i] > 0)
+               return highest(i);
          }
 
-         return hash;
+         return 0;
       }
+   }
 
-      @Override
-      public boolean equals(Object o)
+   /**
+    * Distribution of the access to a list of keys. The Zipfian sampler follows
+    * Gray et al., "Quickly Generating Billion-Record Synthetic Databases", and keeps
+    * the zeta constant up-to-date as the number of keys changes
+    */
+   private static class Distribution
+   {
+      private int type;
+      private double theta;
+      private int hotspot;
+      private int access;
+      private int n;
+      private double zetan;
+      private double zeta2;
+      private double alpha;
+      private double eta;
+
+      Distribution(int type, double theta, int hotspot, int access)
       {
-         if (o == null || !(o instanceof IndexDef))
-            return false;
+         this.type = type;
+         this.theta = theta;
+         this.hotspot = hotspot;
+         this.access = access;
+         this.n = 0;
+         this.zetan = 0.0;
+         this.zeta2 = 1.0 + Math.pow(0.5, theta);
+         this.alpha = 1.0 / (1.0 - theta);
+         this.eta = 0.0;
+      }
 
-         if (o == this)
-            return true;
+      synchronized int next(Random r, int size)
+      {
+         switch (type)
+         {
+            case DISTRIBUTION_ZIPFIAN:
+               return zipfian(r, size);
+            case DISTRIBUTION_LATEST:
+               return size - 1 - zipfian(r, size);
+            case DISTRIBUTION_HOTSPOT:
+               int hot = Math.max(1, (int)((long)size * hotspot / 100));
+               if (hot >= size || r.nextInt(100) < access)
+                  return r.nextInt(hot);
+               return hot + r.nextInt(size - hot);
+            default:
+               return r.nextInt(size);
+         }
+      }
 
-         IndexDef id = (IndexDef)o;
+      private int zipfian(Random r, int size)
+      {
+         if (size != n)
+         {
+            while (n < size)
+            {
+               n++;
+               zetan += 1.0 / Math.pow(n, theta);
+            }
 
-         if (columns.size() != id.getColumns().size())
-            return false;
+            while (n > size)
+            {
+               zetan -= 1.0 / Math.pow(n, theta);
+               n--;
+            }
 
-         for (int i = 0; i < columns.size(); i++)
-         {
-            if (!Objects.equals(columns.get(i), id.getColumns().get(i)))
-               return false;
+            eta = (1.0 - Math.pow(2.0 / n, 1.0 - theta)) / (1.0 - zeta2 / zetan);
          }
 
-         return true;
+         double u = r.nextDouble();
+         double uz = u * zetan;
+
+         if (uz < 1.0)
+            return 0;
+
+         if (uz < zeta2)
+            return Math.min(1, size - 1);
+
+         return Math.min(size - 1, (int)(size * Math.pow(eta * u - eta + 1.0, alpha)));
       }
    }
 
    /**
-    * Index values
+    * Random generator based on SplitMix64, which can be seeded per stream
     */
-   private static class IndexVal
+   private static class SplitRandom extends Random
    {
-      private String pk;
-      private List<String> values;
+      private static final long serialVersionUID = 1L;
 
-      IndexVal(String pk, List<String> values)
-      {
-         this.pk = pk;
-         this.values = values;
-      }
+      private long state;
 
-      String getPrimaryKey()
+      SplitRandom(long state)
       {
-         return pk;
+         super(0L);
+         this.state = state;
       }
 
-      List<String> getValues()
+      static long mix(long z)
       {
-         return values;
+         z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+         z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+         return z ^ (z >>> 31);
       }
 
-      void setValues(List<String> values)
+      @Override
+      protected int next(int bits)
       {
-         this.values = values;
+         return (int)(nextLong() >>> (64 - bits));
       }
 
       @Override
-      public String toString()
+      public long nextLong()
       {
-         StringBuilder sb = new StringBuilder();
-
-         sb.append("IndexVal(");
-         sb.append(pk);
-         sb.append(", {");
-         for (int i = 0; i < values.size(); i++)
-         {
-            sb.append(values.get(i));
-            if (i < values.size() - 1)
-               sb.append(", ");
-         }
-         sb.append("})");
+         state += 0x9E3779B97F4A7C15L;
+         return mix(state);
+      }
+   }
 
-         return sb.toString();
+   /**
+    * A range of rows of a table
+    */
+   private static class RowRange implements Callable<RowRange>
+   {
+      private String table;
+      private String columns;
+      private boolean copy;
+      private String[] keys;
+      private boolean sequential;
+      private int index;
+      private int first;
+      private int last;
+      private String data;
+      private List<List<String>> values;
+
+      RowRange(String table, String columns, boolean copy, String[] keys, boolean sequential, int index, int first, int last)
+      {
+         this.table = table;
+         this.columns = columns;
+         this.copy = copy;
+         this.keys = keys;
+         this.sequential = sequential;
+         this.index = index;
+         this.first = first;
+         this.last = last;
+         this.data = null;
+         this.values = null;
       }
 
-      @Override
-      public int hashCode()
+      public RowRange call() throws Exception
       {
-         int hash = 41;
+         List<String> colNames = columnNames.get(table);
+         List<String> colTypes = columnTypes.get(table);
+         StringBuilder sb = new StringBuilder();
 
-         hash += 7 * Objects.hashCode(pk);
+         streams.set(getStream(table, index));
+         values = new ArrayList<>(last - first + 1);
 
-         for (String val : values)
+         for (int row = first; row <= last; row++)
          {
-            hash += 7 * Objects.hashCode(val);
-         }
-
-         return hash;
-      }
-
-      @Override
-      public boolean equals(Object o)
-      {
-         if (o == null || !(o instanceof IndexVal))
-            return false;
+            List<String> colValues = new ArrayList<>(colNames.size());
+            boolean separator = false;
 
-         if (o == this)
-            return true;
+            if (!copy)
+            {
+               sb.append("INSERT INTO ");
+               sb.append(table);
+               sb.append(" (");
+               sb.append(columns);
+               sb.append(") VALUES (");
+            }
+            for (int i = 0; i < colTypes.size(); i++)
+            {
+               String colType = colTypes.get(i);
+               String val;
+               if (!isSerial(colType))
+               {
+                  if (isPrimaryKey(table, colNames.get(i)))
+                  {
+                     if (keys != null)
+                     {
+                        val = keys[row - 1];
+                     }
+                     else if (sequential)
+                     {
+                        val = generatePrimaryKey(0, table, colNames.get(i), colType, row, false);
+                     }
+                     else
+                     {
+                        val = getData(table, colNames.get(i), colType, row, false);
+                     }
+                  }
+                  else if (isForeignKey(table, colNames.get(i)))
+                  {
+                     val = generateForeignKey(0, table, colNames.get(i));
+                  }
+                  else if (isUnique(table, colNames.get(i)))
+                  {
+                     val = generateUnique(table, colNames.get(i), colType);
+                  }
+                  else
+                  {
+                     val = getData(table, colNames.get(i), colType, row, i == 0 ? false : true);
+                  }
 
-         IndexVal iv = (IndexVal)o;
+                  if (copy)
+                  {
+                     if (separator)
+                        sb.append('\t');
+                     appendCopyValue(sb, val);
+                     separator = true;
+                  }
+                  else
+                  {
+                     if (!"NULL".equals(val) && mustEscape(colType))
+                        sb.append("\'");
+                     sb.append(val);
+                     if (!"NULL".equals(val) && mustEscape(colType))
+                        sb.append("\'");
+                     if (i < colTypes.size() - 1)
+                        sb.append(", ");
+                  }
+               }
+               else
+               {
+                  val = Integer.toString(row);
 
-         if (!Objects.equals(pk, iv.getPrimaryKey()))
-            return false;
+                  if (sequential)
+                     getKeyRegistry(0, table, true).add(val);
+               }
 
-         if (values.size() != iv.getValues().size())
-            return false;
+               colValues.add(val);
+            }
+            // COPY's text format only accepts \n as the row terminator
+            if (copy)
+               sb.append('\n');
+            else
+               sb.append(");").append(System.lineSeparator());
 
-         for (int i = 0; i < values.size(); i++)
-         {
-            if (!Objects.equals(values.get(i), iv.getValues().get(i)))
-               return false;
+            values.add(colValues);
          }
 
-         return true;
+         data = sb.toString();
+
+         return this;
       }
    }
 }